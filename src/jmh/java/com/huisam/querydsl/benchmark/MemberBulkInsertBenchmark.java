@@ -0,0 +1,91 @@
+package com.huisam.querydsl.benchmark;
+
+import com.huisam.querydsl.dto.BulkOperationResult;
+import com.huisam.querydsl.dto.MemberBulkRow;
+import com.huisam.querydsl.entity.Member;
+import com.huisam.querydsl.entity.Team;
+import com.huisam.querydsl.repository.MemberBulkRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * 회원 insert 처리량 (rows/sec)
+ * 엔티티를 하나씩 persist 하는 기존 방식과 batch 단위 insert, StatelessSession insert 를 비교한다
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MemberBulkInsertBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private MemberDataState data;
+    private MemberBulkRepository memberBulkRepository;
+    private TransactionTemplate transactionTemplate;
+    private EntityManager em;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp(MemberDataState data) {
+        this.data = data;
+        memberBulkRepository = data.getBean(MemberBulkRepository.class);
+        transactionTemplate = data.getBean(TransactionTemplate.class);
+        em = data.getBean(EntityManager.class);
+        jdbcTemplate = data.getBean(JdbcTemplate.class);
+    }
+
+    /**
+     * 반복마다 넣은 회원을 지워서 테이블 크기를 처음과 같게 유지한다
+     */
+    @TearDown(Level.Iteration)
+    public void deleteInserted() {
+        jdbcTemplate.update("delete from member where member_id > ?", data.memberIdAt(data.memberCount - 1));
+    }
+
+    /**
+     * InitMember 가 하던 방식, 한 트랜잭션에서 엔티티를 하나씩 persist 한다
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void persistLoop() {
+        transactionTemplate.executeWithoutResult(status -> {
+            final Team team = em.find(Team.class, 1L);
+            for (int i = 0; i < ROWS; i++) {
+                em.persist(new Member("bulk" + i, i % 100, team));
+            }
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public BulkOperationResult insertMembers() {
+        return memberBulkRepository.insertMembers(rows());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public BulkOperationResult insertMembersStateless() {
+        return memberBulkRepository.insertMembersStateless(rows());
+    }
+
+    private Iterator<MemberBulkRow> rows() {
+        return IntStream.range(0, ROWS)
+                .mapToObj(i -> new MemberBulkRow("bulk" + i, i % 100, (long) (i % data.teamCount) + 1))
+                .iterator();
+    }
+}
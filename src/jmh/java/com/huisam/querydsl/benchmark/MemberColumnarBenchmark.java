@@ -0,0 +1,104 @@
+package com.huisam.querydsl.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.huisam.querydsl.codec.MemberColumnarDecoder;
+import com.huisam.querydsl.codec.MemberColumnarEncoder;
+import com.huisam.querydsl.dto.MemberSearchCondition;
+import com.huisam.querydsl.dto.MemberTeamColumns;
+import com.huisam.querydsl.dto.MemberTeamDto;
+import com.huisam.querydsl.repository.MemberJpaRepository;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /v1/members 응답을 JSON 으로 쓸 때와 컬럼 단위 바이너리로 쓸 때의 비용과 크기
+ * encode 는 조회부터 응답 바이트를 만들 때까지, decode 는 받은 쪽이 행을 읽는 비용이다
+ * bytes 는 호출 한번의 응답 크기를 calls 만큼 더한 값이므로 bytes / calls 가 응답 하나의 크기다
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MemberColumnarBenchmark {
+
+    private static final int BATCH_SIZE = 1024;
+
+    private MemberJpaRepository memberJpaRepository;
+    private ObjectMapper objectMapper;
+    private MemberSearchCondition condition;
+    private byte[] json;
+    private byte[] columnar;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ResponseSize {
+        public long bytes;
+        public long calls;
+
+        private void record(int size) {
+            bytes += size;
+            calls++;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp(MemberDataState data) throws IOException {
+        memberJpaRepository = data.getBean(MemberJpaRepository.class);
+        objectMapper = data.getBean(ObjectMapper.class);
+        condition = new MemberSearchCondition();
+        condition.setTeamName(data.teamName(0));
+        json = encodeJson(new ResponseSize());
+        columnar = encodeColumnar(new ResponseSize());
+    }
+
+    @Benchmark
+    public byte[] encodeJson(ResponseSize size) throws IOException {
+        final byte[] body = objectMapper.writeValueAsBytes(memberJpaRepository.search(condition));
+        size.record(body.length);
+        return body;
+    }
+
+    @Benchmark
+    public byte[] encodeColumnar(ResponseSize size) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final MemberColumnarEncoder encoder = new MemberColumnarEncoder(out, BATCH_SIZE);
+        memberJpaRepository.searchColumns(condition, BATCH_SIZE, encoder::write);
+        encoder.finish();
+        size.record(out.size());
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> decodeJson() throws IOException {
+        return objectMapper.readValue(json, new TypeReference<List<MemberTeamDto>>() {
+        });
+    }
+
+    /**
+     * dto 를 만들지 않고 컬럼 값만 읽는다
+     */
+    @Benchmark
+    public void decodeColumnar(Blackhole blackhole) {
+        final MemberColumnarDecoder decoder = new MemberColumnarDecoder(new ByteArrayInputStream(columnar));
+        for (MemberTeamColumns batch = decoder.next(); batch != null; batch = decoder.next()) {
+            for (int row = 0; row < batch.size(); row++) {
+                blackhole.consume(batch.memberId(row));
+                blackhole.consume(batch.username(row));
+            }
+        }
+    }
+}
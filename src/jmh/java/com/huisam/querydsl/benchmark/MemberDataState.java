@@ -0,0 +1,113 @@
+package com.huisam.querydsl.benchmark;
+
+import com.huisam.querydsl.QuerydslApplication;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 벤치마크용 스프링 컨텍스트와 데이터
+ * in-memory H2 에 memberCount 명의 회원을 teamCount 개 팀으로 나눠 넣는다. 데이터는 항상 같은 규칙으로 만들어지므로 커밋 사이의 결과를 비교할 수 있다
+ * 크기는 -p memberCount=1000000 처럼 바꿔서 돌린다
+ */
+@State(Scope.Benchmark)
+public class MemberDataState {
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+    private static final int SEQUENCE_ALLOCATION_SIZE = 50;
+
+    @Param({"10000", "100000"})
+    public int memberCount;
+
+    @Param({"10"})
+    public int teamCount;
+
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final List<String> arguments = new ArrayList<>(List.of(
+                "--spring.profiles.active=benchmark",
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--spring.jpa.properties.hibernate.use_sql_comments=false",
+                "--decorator.datasource.p6spy.enable-logging=false",
+                "--logging.level.root=warn",
+                "--logging.level.org.hibernate.SQL=warn",
+                "--logging.level.org.hibernate.type=warn",
+                // 캐시가 있으면 쿼리가 아니라 캐시를 재게 되므로 꺼둔다
+                "--member.search.cache.maximum-size=0",
+                "--member.search.count.cache-maximum-size=0",
+                // 페이징 없는 search 로 전체 회원을 읽는 벤치마크가 있으므로 행 수 상한을 끈다
+                "--member.search.guard.max-rows=0"
+        ));
+        arguments.addAll(arguments());
+        context = new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(arguments.toArray(new String[0]));
+        insert(context.getBean(JdbcTemplate.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * 벤치마크마다 더 줄 스프링 설정, 하위 state 에서 @Param 값을 설정으로 넘길 때 쓴다
+     */
+    protected List<String> arguments() {
+        return List.of();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * 검색 조건에 걸리는 팀 이름, 회원 수의 1/teamCount 정도가 나온다
+     */
+    public String teamName(int index) {
+        return "team" + (index % teamCount);
+    }
+
+    /**
+     * 정렬이 id 순일 때 offset 번째 회원의 id
+     */
+    public long memberIdAt(long offset) {
+        return teamCount + offset + 1;
+    }
+
+    private void insert(JdbcTemplate jdbcTemplate) {
+        final List<Object[]> teams = new ArrayList<>(teamCount);
+        for (int i = 0; i < teamCount; i++) {
+            teams.add(new Object[]{(long) i + 1, "team" + i});
+        }
+        jdbcTemplate.batchUpdate("insert into team (id, name) values (?, ?)", teams);
+
+        final List<Object[]> members = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 0; i < memberCount; i++) {
+            members.add(new Object[]{memberIdAt(i), "member" + i, i % 100, (long) (i % teamCount) + 1});
+            if (members.size() == INSERT_BATCH_SIZE) {
+                jdbcTemplate.batchUpdate("insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)", members);
+                members.clear();
+            }
+        }
+        if (!members.isEmpty()) {
+            jdbcTemplate.batchUpdate("insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)", members);
+        }
+        // 직접 넣은 id 와 겹치지 않도록 시퀀스를 뒤로 민다, pooled 시퀀스는 받은 값에서 allocationSize 만큼 앞의 id 부터 쓴다
+        jdbcTemplate.execute("alter sequence team_seq restart with " + (teamCount + SEQUENCE_ALLOCATION_SIZE + 1));
+        jdbcTemplate.execute("alter sequence member_seq restart with " + (memberIdAt(memberCount) + SEQUENCE_ALLOCATION_SIZE + 1));
+    }
+}
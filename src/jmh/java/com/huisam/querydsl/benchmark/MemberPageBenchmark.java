@@ -0,0 +1,106 @@
+package com.huisam.querydsl.benchmark;
+
+import com.huisam.querydsl.dto.CursorPage;
+import com.huisam.querydsl.dto.MemberSearchCondition;
+import com.huisam.querydsl.dto.MemberTeamDto;
+import com.huisam.querydsl.repository.MemberRepository;
+import com.huisam.querydsl.repository.MemberSearchCursor;
+import com.huisam.querydsl.dto.QMemberTeamDto;
+import com.huisam.querydsl.repository.support.MemberSearchQueryCompiler;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.huisam.querydsl.entity.QMember.member;
+import static com.huisam.querydsl.entity.QTeam.team;
+
+/**
+ * 페이징 방식별 비용
+ * 첫 페이지에서는 searchPageSimple 과 searchPageComplex(count 쿼리 생략) 를,
+ * offset 만큼 뒤의 페이지에서는 offset 페이징과 keyset 페이징의 content 쿼리를 비교한다
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MemberPageBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"0", "9000"})
+    public int offset;
+
+    private MemberRepository memberRepository;
+    private JPAQueryFactory queryFactory;
+    private MemberSearchCondition teamCondition;
+    private MemberSearchCondition emptyCondition;
+    private PageRequest firstPage;
+    private PageRequest offsetPage;
+    private PageRequest keysetPage;
+    private String cursor;
+
+    @Setup(Level.Trial)
+    public void setUp(MemberDataState data) {
+        memberRepository = data.getBean(MemberRepository.class);
+        queryFactory = new JPAQueryFactory(data.getBean(EntityManager.class));
+        teamCondition = new MemberSearchCondition();
+        teamCondition.setTeamName(data.teamName(3));
+        emptyCondition = new MemberSearchCondition();
+
+        firstPage = PageRequest.of(0, PAGE_SIZE);
+        offsetPage = PageRequest.of(offset / PAGE_SIZE, PAGE_SIZE);
+        keysetPage = PageRequest.of(0, PAGE_SIZE, Sort.by("id"));
+
+        // offset 페이지 바로 앞 행을 마지막으로 읽었다고 보고 커서를 만든다
+        final long lastId = data.memberIdAt(offsetPage.getOffset() - 1);
+        cursor = offsetPage.getOffset() == 0 ? null : MemberSearchCursor.resolve(null, keysetPage.getSort())
+                .next(new MemberTeamDto(lastId, null, 0, null, null))
+                .encode();
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageSimple() {
+        return memberRepository.searchPageSimple(teamCondition, firstPage);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageComplex() {
+        return memberRepository.searchPageComplex(teamCondition, firstPage);
+    }
+
+    /**
+     * keyset 페이징과 같은 id 순서로 offset 만큼 건너뛴다
+     */
+    @Benchmark
+    public List<MemberTeamDto> offsetPage() {
+        return queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName")
+                ))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(MemberSearchQueryCompiler.where(emptyCondition))
+                .orderBy(member.id.asc())
+                .offset(offsetPage.getOffset())
+                .limit(offsetPage.getPageSize())
+                .fetch();
+    }
+
+    @Benchmark
+    public CursorPage<MemberTeamDto> keysetPage() {
+        return memberRepository.searchByCursor(emptyCondition, cursor, keysetPage);
+    }
+}
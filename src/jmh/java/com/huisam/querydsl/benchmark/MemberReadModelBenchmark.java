@@ -0,0 +1,78 @@
+package com.huisam.querydsl.benchmark;
+
+import com.huisam.querydsl.dto.MemberSearchCondition;
+import com.huisam.querydsl.dto.MemberTeamDto;
+import com.huisam.querydsl.repository.MemberRepository;
+import com.huisam.querydsl.repository.support.MemberTeamReadModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * team 을 join 하는 검색과 member_team 읽기 모델에서 join 없이 하는 검색의 비용
+ * 회원 수를 키워서 돌린다: java -jar build/libs/querydsl-0.0.1-SNAPSHOT-jmh.jar MemberReadModelBenchmark -p memberCount=10000000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MemberReadModelBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    private MemberRepository memberRepository;
+    private MemberSearchCondition teamAndAge;
+    private MemberSearchCondition teamOnly;
+    private PageRequest firstPage;
+
+    @State(Scope.Benchmark)
+    public static class ReadModelState extends MemberDataState {
+
+        @Param({"false", "true"})
+        public boolean readModel;
+
+        @Override
+        protected List<String> arguments() {
+            return List.of("--member.search.read-model.enabled=" + readModel);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp(ReadModelState data) {
+        memberRepository = data.getBean(MemberRepository.class);
+        if (data.readModel) {
+            // 회원을 JDBC 로 직접 넣었으므로 읽기 모델을 한번 만들어 둔다
+            data.getBean(MemberTeamReadModel.class).rebuild();
+        }
+        teamAndAge = new MemberSearchCondition();
+        teamAndAge.setTeamName(data.teamName(3));
+        teamAndAge.setAgeGoe(30);
+        teamAndAge.setAgeLoe(31);
+        teamOnly = new MemberSearchCondition();
+        teamOnly.setTeamName(data.teamName(3));
+        firstPage = PageRequest.of(0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchByTeamAndAge() {
+        return memberRepository.search(teamAndAge);
+    }
+
+    /**
+     * content 한 페이지와 팀 전체 count
+     */
+    @Benchmark
+    public Page<MemberTeamDto> searchPageByTeam() {
+        return memberRepository.searchPageComplex(teamOnly, firstPage);
+    }
+}
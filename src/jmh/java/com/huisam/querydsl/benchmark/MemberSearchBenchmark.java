@@ -0,0 +1,72 @@
+package com.huisam.querydsl.benchmark;
+
+import com.huisam.querydsl.dto.MemberSearchCondition;
+import com.huisam.querydsl.dto.MemberTeamDto;
+import com.huisam.querydsl.dto.QMemberTeamDto;
+import com.huisam.querydsl.repository.MemberJpaRepository;
+import com.huisam.querydsl.repository.support.MemberSearchQueryCompiler;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.huisam.querydsl.entity.QMember.member;
+import static com.huisam.querydsl.entity.QTeam.team;
+
+/**
+ * 동적 쿼리 방식별 검색 비용
+ * where 파라미터(컴파일된 쿼리), BooleanBuilder, 요청마다 Querydsl 식을 새로 만드는 방식을 같은 조건으로 비교한다
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MemberSearchBenchmark {
+
+    private MemberJpaRepository memberJpaRepository;
+    private JPAQueryFactory queryFactory;
+    private MemberSearchCondition condition;
+
+    @Setup(Level.Trial)
+    public void setUp(MemberDataState data) {
+        memberJpaRepository = data.getBean(MemberJpaRepository.class);
+        queryFactory = new JPAQueryFactory(data.getBean(EntityManager.class));
+        condition = new MemberSearchCondition();
+        condition.setTeamName(data.teamName(3));
+        condition.setAgeGoe(30);
+        condition.setAgeLoe(40);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> search() {
+        return memberJpaRepository.search(condition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchByBuilder() {
+        return memberJpaRepository.searchByBuilder(condition);
+    }
+
+    /**
+     * 쿼리 컴파일 전의 search, 요청마다 Querydsl 식을 만들고 JPQL 로 직렬화한다
+     */
+    @Benchmark
+    public List<MemberTeamDto> searchRebuilt() {
+        return queryFactory
+                .select(new QMemberTeamDto(
+                        member.id.as("memberId"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName")
+                ))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(MemberSearchQueryCompiler.where(condition))
+                .fetch();
+    }
+}
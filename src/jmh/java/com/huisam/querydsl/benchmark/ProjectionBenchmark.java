@@ -0,0 +1,135 @@
+package com.huisam.querydsl.benchmark;
+
+import com.huisam.querydsl.dto.MemberDto;
+import com.huisam.querydsl.dto.MemberSearchCondition;
+import com.huisam.querydsl.dto.MemberTeamColumns;
+import com.huisam.querydsl.dto.MemberTeamDto;
+import com.huisam.querydsl.dto.QMemberDto;
+import com.huisam.querydsl.repository.support.JdbcProjection;
+import com.huisam.querydsl.repository.support.MemberRowMappers;
+import com.huisam.querydsl.repository.support.MemberSearchQueryCompiler;
+import com.querydsl.core.types.Projections;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.huisam.querydsl.entity.QMember.member;
+
+/**
+ * dto 조회 방식별 비용 (setter, field, 생성자, @QueryProjection, JDBC RowMapper, 컬럼 batch)
+ * 같은 행을 읽으므로 차이는 결과 행을 dto 로 만드는 비용이다
+ * 한번에 memberCount / 10 행을 읽으므로 -prof gc 의 gc.alloc.rate.norm 을 그 수로 나누면 행당 할당량이다
+ * JDBC 방식은 커넥션을 얻기 위해 트랜잭션 안에서 실행한다
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProjectionBenchmark {
+
+    private static final int MAX_AGE = 10;
+    private static final int COLUMNS_BATCH_SIZE = 1000;
+
+    private JPAQueryFactory queryFactory;
+    private JdbcProjection jdbcProjection;
+    private MemberSearchQueryCompiler queryCompiler;
+    private TransactionTemplate transactionTemplate;
+    private MemberSearchCondition condition;
+    private MemberTeamColumns columns;
+
+    @Setup(Level.Trial)
+    public void setUp(MemberDataState data) {
+        queryFactory = new JPAQueryFactory(data.getBean(EntityManager.class));
+        jdbcProjection = data.getBean(JdbcProjection.class);
+        queryCompiler = data.getBean(MemberSearchQueryCompiler.class);
+        transactionTemplate = new TransactionTemplate(data.getBean(PlatformTransactionManager.class));
+        transactionTemplate.setReadOnly(true);
+        condition = new MemberSearchCondition();
+        condition.setAgeLoe(MAX_AGE - 1);
+        columns = new MemberTeamColumns(COLUMNS_BATCH_SIZE);
+    }
+
+    @Benchmark
+    public List<MemberDto> bean() {
+        return queryFactory
+                .select(Projections.bean(MemberDto.class, member.username.as("userName"), member.age))
+                .from(member)
+                .where(member.age.lt(MAX_AGE))
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberDto> fields() {
+        return queryFactory
+                .select(Projections.fields(MemberDto.class, member.username.as("userName"), member.age))
+                .from(member)
+                .where(member.age.lt(MAX_AGE))
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberDto> constructor() {
+        return queryFactory
+                .select(Projections.constructor(MemberDto.class, member.username, member.age))
+                .from(member)
+                .where(member.age.lt(MAX_AGE))
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberDto> queryProjection() {
+        return queryFactory
+                .select(new QMemberDto(member.username, member.age))
+                .from(member)
+                .where(member.age.lt(MAX_AGE))
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberDto> jdbc() {
+        return transactionTemplate.execute(status -> jdbcProjection.fetch(queryFactory
+                        .select(member.username, member.age)
+                        .from(member)
+                        .where(member.age.lt(MAX_AGE)),
+                MemberRowMappers.MEMBER_DTO));
+    }
+
+    /**
+     * MemberTeamDto, 검색 쿼리와 같은 Object[] + QMemberTeamDto 경로
+     */
+    @Benchmark
+    public List<MemberTeamDto> memberTeamQueryProjection() {
+        return transactionTemplate.execute(status -> queryCompiler.search(condition, Pageable.unpaged()));
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> memberTeamJdbc() {
+        return transactionTemplate.execute(status -> queryCompiler.searchJdbc(condition, Pageable.unpaged()));
+    }
+
+    /**
+     * 행마다 dto 를 만들지 않고 재사용하는 컬럼 배열에 채운다
+     */
+    @Benchmark
+    public void memberTeamColumns(Blackhole blackhole) {
+        transactionTemplate.execute(status -> queryCompiler.searchColumns(condition, Pageable.unpaged(), 0, columns, batch -> {
+            for (int row = 0; row < batch.size(); row++) {
+                blackhole.consume(batch.memberId(row));
+                blackhole.consume(batch.age(row));
+            }
+        }));
+    }
+}
@@ -0,0 +1,112 @@
+package com.huisam.querydsl.benchmark;
+
+import com.huisam.querydsl.entity.Member;
+import com.huisam.querydsl.entity.Team;
+import com.huisam.querydsl.repository.MemberRepository;
+import com.huisam.querydsl.repository.TeamRepository;
+import com.huisam.querydsl.repository.support.StatementCounter;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Team 2차 캐시, 팀 이름 쿼리 캐시를 켰을 때와 껐을 때의 DB 왕복 수
+ * 시간과 함께 statements (실행한 SQL 수) 와 calls (호출 수) 를 보여주므로 statements / calls 가 호출 한번의 왕복 수다
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SecondLevelCacheBenchmark {
+
+    private static final int WALK_PAGE_SIZE = 100;
+
+    private TeamRepository teamRepository;
+    private MemberRepository memberRepository;
+    private TransactionTemplate transactionTemplate;
+    private String knownTeam;
+
+    @State(Scope.Benchmark)
+    public static class CacheState extends MemberDataState {
+
+        @Param({"true", "false"})
+        public boolean secondLevelCache;
+
+        @Override
+        protected List<String> arguments() {
+            return List.of("--member.second-level-cache.enabled=" + secondLevelCache);
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RoundTrips {
+        public long statements;
+        public long calls;
+
+        private void record(StatementCounter counter) {
+            statements += counter.getTotal();
+            calls++;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp(CacheState data) {
+        teamRepository = data.getBean(TeamRepository.class);
+        memberRepository = data.getBean(MemberRepository.class);
+        transactionTemplate = data.getBean(TransactionTemplate.class);
+        knownTeam = data.teamName(0);
+    }
+
+    /**
+     * 캐시를 켜면 team-by-name 쿼리 캐시에서 팀 id 를, team 캐시에서 팀을 읽으므로 SQL 이 없다
+     */
+    @Benchmark
+    public List<Team> findKnownTeamByName(RoundTrips roundTrips) {
+        try (StatementCounter counter = StatementCounter.start()) {
+            final List<Team> result = teamRepository.findByName(knownTeam);
+            roundTrips.record(counter);
+            return result;
+        }
+    }
+
+    /**
+     * 없는 이름도 빈 결과가 쿼리 캐시에 남는다
+     */
+    @Benchmark
+    public List<Team> findUnknownTeamByName(RoundTrips roundTrips) {
+        try (StatementCounter counter = StatementCounter.start()) {
+            final List<Team> result = teamRepository.findByName("no-such-team");
+            roundTrips.record(counter);
+            return result;
+        }
+    }
+
+    /**
+     * findAll 로 읽은 회원마다 member.getTeam() 을 따라간다
+     */
+    @Benchmark
+    public void findAllTeamWalk(RoundTrips roundTrips, Blackhole blackhole) {
+        try (StatementCounter counter = StatementCounter.start()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Member member : memberRepository.findAll(PageRequest.of(0, WALK_PAGE_SIZE, Sort.by("id")))) {
+                    blackhole.consume(member.getTeam().getName());
+                }
+            });
+            roundTrips.record(counter);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.huisam.querydsl.codec;
+
+import com.huisam.querydsl.dto.MemberTeamColumns;
+import com.huisam.querydsl.dto.MemberTeamDto;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.huisam.querydsl.codec.MemberColumnarFormat.*;
+
+/**
+ * {@link MemberColumnarFormat} 을 batch 단위로 읽는다
+ * {@link #next()} 는 같은 {@link MemberTeamColumns} 를 다시 채워서 돌려주므로 다음 호출 전까지만 값을 읽을 수 있다
+ */
+public final class MemberColumnarDecoder {
+
+    private final DataInputStream in;
+    private final List<String> usernames = new ArrayList<>();
+    private final List<String> teamNames = new ArrayList<>();
+    private MemberTeamColumns columns = new MemberTeamColumns(0);
+    private boolean finished;
+    private long totalElements;
+    private int page;
+    private int size;
+
+    public MemberColumnarDecoder(InputStream in) {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+        try {
+            if (this.in.readInt() != MAGIC) {
+                throw new IllegalArgumentException("member columnar 형식이 아닙니다");
+            }
+            final byte version = this.in.readByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("지원하지 않는 버전입니다: " + version);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 스트림 전체를 dto 로 읽는다
+     */
+    public static List<MemberTeamDto> decode(InputStream in) {
+        final MemberColumnarDecoder decoder = new MemberColumnarDecoder(in);
+        final List<MemberTeamDto> rows = new ArrayList<>();
+        for (MemberTeamColumns batch = decoder.next(); batch != null; batch = decoder.next()) {
+            for (int row = 0; row < batch.size(); row++) {
+                rows.add(batch.toDto(row));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * @return 다음 batch, 끝이면 null 이고 그 뒤로 trailer 값을 읽을 수 있다
+     */
+    public MemberTeamColumns next() {
+        if (finished) {
+            return null;
+        }
+        try {
+            final int rows = in.readInt();
+            if (rows == 0) {
+                totalElements = in.readLong();
+                page = in.readInt();
+                size = in.readInt();
+                finished = true;
+                return null;
+            }
+            final int flags = in.readByte();
+            if ((flags & FLAG_RESET_USERNAMES) != 0) {
+                usernames.clear();
+            }
+            if ((flags & FLAG_RESET_TEAM_NAMES) != 0) {
+                teamNames.clear();
+            }
+            readAdded(usernames);
+            readAdded(teamNames);
+
+            final long[] memberIds = new long[rows];
+            long previousId = 0;
+            for (int row = 0; row < rows; row++) {
+                previousId += readSignedVarLong(in);
+                memberIds[row] = previousId;
+            }
+            final int[] ages = new int[rows];
+            for (int row = 0; row < rows; row++) {
+                ages[row] = (int) readSignedVarLong(in);
+            }
+            final boolean[] hasTeam = new boolean[rows];
+            for (int start = 0; start < rows; start += Byte.SIZE) {
+                final int bits = in.readUnsignedByte();
+                for (int row = start; row < Math.min(start + Byte.SIZE, rows); row++) {
+                    hasTeam[row] = (bits & 1 << (row - start)) != 0;
+                }
+            }
+            final long[] teamIds = new long[rows];
+            for (int row = 0; row < rows; row++) {
+                teamIds[row] = hasTeam[row] ? readSignedVarLong(in) : 0;
+            }
+
+            if (columns.capacity() < rows) {
+                columns = new MemberTeamColumns(rows);
+            }
+            columns.clear();
+            final int[] usernameCodes = new int[rows];
+            for (int row = 0; row < rows; row++) {
+                usernameCodes[row] = (int) readVarLong(in);
+            }
+            for (int row = 0; row < rows; row++) {
+                final int teamNameCode = (int) readVarLong(in);
+                columns.add(memberIds[row], lookup(usernames, usernameCodes[row]), ages[row], hasTeam[row], teamIds[row],
+                        lookup(teamNames, teamNameCode));
+            }
+            return columns;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 전체 건수, 모르면 -1
+     */
+    public long getTotalElements() {
+        checkFinished();
+        return totalElements;
+    }
+
+    public int getPage() {
+        checkFinished();
+        return page;
+    }
+
+    public int getSize() {
+        checkFinished();
+        return size;
+    }
+
+    private void checkFinished() {
+        if (!finished) {
+            throw new IllegalStateException("모든 batch 를 읽은 뒤에 trailer 를 읽을 수 있습니다");
+        }
+    }
+
+    private void readAdded(List<String> dictionary) throws IOException {
+        final long count = readVarLong(in);
+        for (long i = 0; i < count; i++) {
+            final byte[] bytes = new byte[(int) readVarLong(in)];
+            in.readFully(bytes);
+            dictionary.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String lookup(List<String> dictionary, int code) {
+        return code == 0 ? null : dictionary.get(code - 1);
+    }
+
+    static long readSignedVarLong(DataInputStream in) throws IOException {
+        final long value = readVarLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            final int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("varint 가 너무 깁니다");
+    }
+}
@@ -0,0 +1,182 @@
+package com.huisam.querydsl.codec;
+
+import com.huisam.querydsl.dto.MemberTeamColumns;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.huisam.querydsl.codec.MemberColumnarFormat.*;
+
+/**
+ * {@link MemberTeamColumns} batch 를 {@link MemberColumnarFormat} 으로 쓴다
+ * batch 를 받는 대로 바로 쓰므로 결과 전체를 메모리에 모으지 않는다, 한 스레드에서만 쓴다
+ */
+public final class MemberColumnarEncoder {
+
+    private final DataOutputStream out;
+    private final Dictionary usernames = new Dictionary();
+    private final Dictionary teamNames = new Dictionary();
+    private final int[] usernameCodes;
+    private final int[] teamNameCodes;
+    private long rows;
+    private boolean finished;
+
+    /**
+     * @param maxBatchSize write 로 넘길 batch 의 최대 행 수
+     */
+    public MemberColumnarEncoder(OutputStream out, int maxBatchSize) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.usernameCodes = new int[maxBatchSize];
+        this.teamNameCodes = new int[maxBatchSize];
+        try {
+            this.out.writeInt(MAGIC);
+            this.out.writeByte(VERSION);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void write(MemberTeamColumns columns) {
+        final int size = columns.size();
+        if (size == 0) {
+            return;
+        }
+        if (size > usernameCodes.length) {
+            throw new IllegalArgumentException("batch 가 maxBatchSize 보다 큽니다: " + size);
+        }
+        try {
+            int flags = 0;
+            flags |= usernames.resetIfFull() ? FLAG_RESET_USERNAMES : 0;
+            flags |= teamNames.resetIfFull() ? FLAG_RESET_TEAM_NAMES : 0;
+            for (int row = 0; row < size; row++) {
+                usernameCodes[row] = usernames.code(columns.username(row));
+                teamNameCodes[row] = teamNames.code(columns.teamName(row));
+            }
+
+            out.writeInt(size);
+            out.writeByte(flags);
+            usernames.writeAdded(out);
+            teamNames.writeAdded(out);
+
+            long previousId = 0;
+            for (int row = 0; row < size; row++) {
+                final long memberId = columns.memberId(row);
+                writeSignedVarLong(out, memberId - previousId);
+                previousId = memberId;
+            }
+            for (int row = 0; row < size; row++) {
+                writeSignedVarLong(out, columns.age(row));
+            }
+            for (int start = 0; start < size; start += Byte.SIZE) {
+                int bits = 0;
+                for (int row = start; row < Math.min(start + Byte.SIZE, size); row++) {
+                    bits |= columns.hasTeam(row) ? 1 << (row - start) : 0;
+                }
+                out.writeByte(bits);
+            }
+            for (int row = 0; row < size; row++) {
+                if (columns.hasTeam(row)) {
+                    writeSignedVarLong(out, columns.teamId(row));
+                }
+            }
+            for (int row = 0; row < size; row++) {
+                writeVarLong(out, usernameCodes[row]);
+            }
+            for (int row = 0; row < size; row++) {
+                writeVarLong(out, teamNameCodes[row]);
+            }
+            rows += size;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 페이징하지 않은 결과를 끝낸다
+     */
+    public void finish() {
+        finish(rows, 0, Math.toIntExact(rows));
+    }
+
+    /**
+     * @param totalElements 전체 건수, 모르면 -1
+     */
+    public void finish(long totalElements, int page, int size) {
+        if (finished) {
+            throw new IllegalStateException("이미 끝난 스트림입니다");
+        }
+        finished = true;
+        try {
+            out.writeInt(0);
+            out.writeLong(totalElements);
+            out.writeInt(page);
+            out.writeInt(size);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    static void writeSignedVarLong(DataOutputStream out, long value) throws IOException {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * 값마다 번호를 붙이고, 마지막 batch 이후에 새로 붙은 값을 기억해 둔다
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> added = new ArrayList<>();
+
+        private int code(String value) {
+            if (value == null) {
+                return 0;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = codes.size() + 1;
+                codes.put(value, code);
+                added.add(value);
+            }
+            return code;
+        }
+
+        private boolean resetIfFull() {
+            if (codes.size() < MAX_DICTIONARY_SIZE) {
+                return false;
+            }
+            codes.clear();
+            return true;
+        }
+
+        private void writeAdded(DataOutputStream out) throws IOException {
+            writeVarLong(out, added.size());
+            for (String value : added) {
+                final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                writeVarLong(out, bytes.length);
+                out.write(bytes);
+            }
+            added.clear();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.huisam.querydsl.codec;
+
+import org.springframework.http.MediaType;
+
+/**
+ * 회원 검색 결과의 컬럼 단위 바이너리 형식
+ * <pre>
+ * header  : magic "MCOL"(int) version(byte)
+ * batch*  : rows(int, 0 보다 큼) flags(byte)
+ *           username 사전 추가분, teamName 사전 추가분 : count(varint) (length(varint) UTF-8 bytes)*
+ *           memberId : 앞 행과의 차이(zigzag varint), batch 의 첫 행은 0 과의 차이
+ *           age      : zigzag varint
+ *           team 유무 : bitmap (rows + 7) / 8 bytes, 팀이 있는 행만 teamId(zigzag varint)
+ *           username, teamName : 사전 번호(varint), 0 은 null, n 은 사전의 n-1 번째 값
+ * end     : rows = 0(int)
+ * trailer : totalElements(long, 모르면 -1) page(int) size(int), 페이징하지 않았으면 page = 0, size = 전체 행 수
+ * </pre>
+ * 사전은 스트림 전체에서 이어지고 새로 나온 값만 batch 앞에 싣는다, 팀 이름처럼 값이 적은 컬럼은 batch 마다 번호만 남는다
+ * 사전이 {@link #MAX_DICTIONARY_SIZE} 를 넘으면 flags 의 RESET 비트를 세우고 양쪽이 사전을 비운다
+ */
+public final class MemberColumnarFormat {
+
+    public static final String MEDIA_TYPE_VALUE = "application/x-member-columnar";
+    public static final MediaType MEDIA_TYPE = MediaType.valueOf(MEDIA_TYPE_VALUE);
+
+    static final int MAGIC = 0x4D434F4C;
+    static final byte VERSION = 1;
+    static final int FLAG_RESET_USERNAMES = 1;
+    static final int FLAG_RESET_TEAM_NAMES = 1 << 1;
+    static final int MAX_DICTIONARY_SIZE = 1 << 16;
+
+    private MemberColumnarFormat() {
+    }
+}
@@ -0,0 +1,73 @@
+package com.huisam.querydsl.config;
+
+import com.huisam.querydsl.datasource.ReplicaLagProbe;
+import com.huisam.querydsl.datasource.ReplicaRoutingDataSource;
+import com.huisam.querydsl.datasource.ReplicaRoutingTransactionManager;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * member.datasource.replicas 가 있으면 spring.datasource 를 primary 로 하고, 읽기 전용 트랜잭션은 replica 로 보낸다
+ */
+@Configuration
+@ConditionalOnProperty("member.datasource.replicas[0].url")
+@EnableConfigurationProperties(DataSourceRoutingProperties.class)
+public class DataSourceRoutingConfig {
+
+    /**
+     * primary, replica 풀은 빈으로 따로 등록하지 않는다, DataSource 빈이 여러 개면 DataSourceInitializer 같은 자동 설정이 그중 하나를 고르지 못한다
+     */
+    @Bean
+    public ReplicaRoutingDataSource dataSource(DataSourceProperties dataSourceProperties, DataSourceRoutingProperties properties,
+                                               ObjectProvider<ReplicaLagProbe> lagProbe, Environment environment) {
+        // DataSourceAutoConfiguration 이 만드는 풀과 같도록 spring.datasource.hikari 설정을 primary 풀에 적용한다
+        final HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+
+        final Map<String, DataSource> replicas = new LinkedHashMap<>();
+        final List<DataSourceRoutingProperties.Replica> replicaProperties = properties.getReplicas();
+        for (int i = 0; i < replicaProperties.size(); i++) {
+            final DataSourceRoutingProperties.Replica replica = replicaProperties.get(i);
+            final String name = replica.getName() == null ? "replica-" + i : replica.getName();
+            final HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(replica.getUrl())
+                    .username(replica.getUsername())
+                    .password(replica.getPassword())
+                    .build();
+            dataSource.setPoolName(name);
+            dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+            dataSource.setReadOnly(true);
+            replicas.put(name, dataSource);
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, properties.getSelection(),
+                lagProbe.getIfAvailable(), properties.getMaxLag(), properties.getLagCheckInterval());
+    }
+
+    /**
+     * 자동 설정의 JpaTransactionManager 대신 쓴다
+     */
+    @Bean
+    public PlatformTransactionManager transactionManager(ObjectProvider<TransactionManagerCustomizers> transactionManagerCustomizers) {
+        final ReplicaRoutingTransactionManager transactionManager = new ReplicaRoutingTransactionManager();
+        transactionManagerCustomizers.ifAvailable(customizers -> customizers.customize(transactionManager));
+        return transactionManager;
+    }
+}
@@ -0,0 +1,46 @@
+package com.huisam.querydsl.config;
+
+import com.huisam.querydsl.datasource.ReplicaRoutingDataSource;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 읽기 전용 트랜잭션을 보낼 replica 설정, primary 는 spring.datasource 를 그대로 쓴다
+ */
+@Getter
+@Setter
+@ConfigurationProperties("member.datasource")
+public class DataSourceRoutingProperties {
+
+    /**
+     * 비어 있으면 라우팅하지 않고 spring.datasource 하나만 쓴다
+     */
+    private List<Replica> replicas = new ArrayList<>();
+
+    private ReplicaRoutingDataSource.Selection selection = ReplicaRoutingDataSource.Selection.ROUND_ROBIN;
+
+    /**
+     * {@link com.huisam.querydsl.datasource.ReplicaLagProbe} 빈이 잰 지연이 이보다 크면 그 replica 에서 읽지 않는다
+     */
+    private Duration maxLag = Duration.ofSeconds(1);
+
+    private Duration lagCheckInterval = Duration.ofSeconds(1);
+
+    @Getter
+    @Setter
+    public static class Replica {
+        /**
+         * 풀 이름, 없으면 replica-<순번>
+         */
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
@@ -0,0 +1,37 @@
+package com.huisam.querydsl.config;
+
+import com.huisam.querydsl.repository.support.CountCache;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import java.util.List;
+
+/**
+ * repository 구현체가 주입받는 지원 빈 설정
+ * {@code @DataJpaTest} 같은 slice 테스트에서는 이 설정을 import 해서 repository 를 그대로 쓴다
+ */
+@Configuration
+@ComponentScan(basePackageClasses = CountCache.class)
+@Import(SecondLevelCacheConfig.class)
+public class RepositorySupportConfig {
+
+    /**
+     * Hibernate 에는 StatementInspector 를 하나만 등록할 수 있으므로 빈으로 등록된 inspector 들을 차례로 실행한다
+     */
+    @Bean
+    public HibernatePropertiesCustomizer statementInspectorCustomizer(List<StatementInspector> inspectors) {
+        final StatementInspector composite = sql -> {
+            String inspected = sql;
+            for (StatementInspector inspector : inspectors) {
+                inspected = inspector.inspect(inspected);
+            }
+            return inspected;
+        };
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, composite);
+    }
+}
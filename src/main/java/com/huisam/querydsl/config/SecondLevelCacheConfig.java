@@ -0,0 +1,73 @@
+package com.huisam.querydsl.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.Properties;
+import java.util.UUID;
+
+/**
+ * Team 과 Team.members, 팀 이름 조회 쿼리 결과를 로컬 Caffeine(JCache) 2차 캐시에 둔다
+ * region 은 application.yaml 에 적힌 것만 만들고, 없는 region 을 쓰면 기동 시점에 실패하도록 해서 크기 제한이 없는 캐시가 생기지 않게 한다
+ */
+@Configuration
+@EnableConfigurationProperties(SecondLevelCacheProperties.class)
+public class SecondLevelCacheConfig {
+
+    /**
+     * 쿼리 캐시 결과가 유효한지 판단하는 테이블별 마지막 변경 시각, 밀려나면 안 되므로 크기와 만료를 두지 않는다
+     */
+    private static final String UPDATE_TIMESTAMPS_REGION = RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(SecondLevelCacheProperties properties) {
+        // 테스트처럼 한 JVM 에 컨텍스트가 여러 개 떠도 region 이 겹치지 않도록 컨텍스트마다 CacheManager 를 따로 만든다
+        final CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("hibernate-" + UUID.randomUUID()), getClass().getClassLoader(), new Properties());
+        properties.getRegions().forEach((name, region) -> cacheManager.createCache(name, configurationOf(region)));
+        if (cacheManager.getCache(UPDATE_TIMESTAMPS_REGION) == null) {
+            final CaffeineConfiguration<Object, Object> timestamps = new CaffeineConfiguration<>();
+            timestamps.setStoreByValue(false);
+            cacheManager.createCache(UPDATE_TIMESTAMPS_REGION, timestamps);
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(SecondLevelCacheProperties properties, CacheManager hibernateCacheManager) {
+        return hibernateProperties -> {
+            hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, properties.isEnabled());
+            hibernateProperties.put(AvailableSettings.USE_QUERY_CACHE, properties.isEnabled());
+            if (!properties.isEnabled()) {
+                return;
+            }
+            hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            hibernateProperties.put("hibernate.javax.cache.cache_manager", hibernateCacheManager);
+            hibernateProperties.put("hibernate.javax.cache.missing_cache_strategy", "fail");
+            // mappedBy 쪽인 Team.members 는 Member 의 team 이 바뀔 때 직접 비워야 한다
+            hibernateProperties.put(AvailableSettings.AUTO_EVICT_COLLECTION_CACHE, true);
+        };
+    }
+
+    private static CaffeineConfiguration<Object, Object> configurationOf(SecondLevelCacheProperties.Region region) {
+        final CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        // Hibernate 는 엔티티를 분해한 값으로 넣으므로 JCache 기본값인 store-by-value 복사(직렬화)는 필요 없다
+        configuration.setStoreByValue(false);
+        configuration.setMaximumSize(OptionalLong.of(region.getMaximumSize()));
+        configuration.setExpireAfterWrite(OptionalLong.of(region.getExpireAfterWrite().toNanos()));
+        if (region.getExpireAfterAccess() != null) {
+            configuration.setExpireAfterAccess(OptionalLong.of(region.getExpireAfterAccess().toNanos()));
+        }
+        return configuration;
+    }
+}
@@ -0,0 +1,41 @@
+package com.huisam.querydsl.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Hibernate 2차 캐시 설정, region 마다 크기(넘으면 W-TinyLFU 로 밀어낸다)와 만료 시간을 정한다
+ */
+@Getter
+@Setter
+@ConfigurationProperties("member.second-level-cache")
+public class SecondLevelCacheProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * 엔티티, 컬렉션, 쿼리 캐시가 쓰는 region, application.yaml 에 없는 값은 기본값을 쓴다
+     */
+    private Map<String, Region> regions = new LinkedHashMap<>(Map.of(
+            "team", new Region(),
+            "team-members", new Region(),
+            "team-by-name", new Region(),
+            "default-query-results-region", new Region()
+    ));
+
+    @Getter
+    @Setter
+    public static class Region {
+        private long maximumSize = 1000;
+        private Duration expireAfterWrite = Duration.ofMinutes(10);
+        /**
+         * 마지막으로 읽은 뒤 이 시간이 지나면 만료, 없으면 쓰인 시간 기준으로만 만료된다
+         */
+        private Duration expireAfterAccess;
+    }
+}
@@ -1,15 +1,15 @@
 package com.huisam.querydsl.controller;
 
-import com.huisam.querydsl.entity.Member;
-import com.huisam.querydsl.entity.Team;
+import com.huisam.querydsl.dto.MemberBulkRow;
+import com.huisam.querydsl.repository.MemberBulkRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
-import javax.persistence.EntityManager;
-import javax.persistence.PersistenceContext;
-import javax.transaction.Transactional;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Profile("local")
 @Component
@@ -24,21 +24,17 @@ public class InitMember {
     }
 
     @Component
+    @RequiredArgsConstructor
     static class InitMemberService {
-        @PersistenceContext
-        private EntityManager em;
+        private final MemberBulkRepository memberBulkRepository;
 
-        @Transactional
         public void init() {
-            final Team teamA = new Team("teamA");
-            final Team teamB = new Team("teamB");
-            em.persist(teamA);
-            em.persist(teamB);
-
-            for (int i = 0; i < 100; i++) {
-                Team selectedTeam = i % 2 == 0 ? teamA : teamB;
-                em.persist(new Member("member" + i, i, selectedTeam));
-            }
+            final List<Long> teamIds = memberBulkRepository.insertTeams(List.of("teamA", "teamB"));
+
+            final List<MemberBulkRow> members = IntStream.range(0, 100)
+                    .mapToObj(i -> new MemberBulkRow("member" + i, i, teamIds.get(i % 2)))
+                    .collect(Collectors.toList());
+            memberBulkRepository.insertMembers(members.iterator());
         }
     }
 }
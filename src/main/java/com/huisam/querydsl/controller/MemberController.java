@@ -1,5 +1,10 @@
 package com.huisam.querydsl.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.huisam.querydsl.codec.MemberColumnarEncoder;
+import com.huisam.querydsl.codec.MemberColumnarFormat;
+import com.huisam.querydsl.dto.CursorPage;
 import com.huisam.querydsl.dto.MemberSearchCondition;
 import com.huisam.querydsl.dto.MemberTeamDto;
 import com.huisam.querydsl.repository.MemberJpaRepository;
@@ -7,22 +12,63 @@ import com.huisam.querydsl.repository.MemberRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    private static final int COLUMNAR_BATCH_SIZE = 1024;
+
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/v1/members")
     public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) {
         return memberJpaRepository.search(condition);
     }
 
+    /**
+     * 검색 결과를 한 줄에 한 건씩 NDJSON 으로 읽는 즉시 내려보낸다
+     */
+    @GetMapping(value = "/v1/members/stream", produces = APPLICATION_NDJSON_VALUE)
+    public void streamMemberV1(MemberSearchCondition condition, HttpServletResponse response) throws IOException {
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+        final ObjectWriter writer = objectMapper.writerFor(MemberTeamDto.class);
+        final OutputStream out = new BufferedOutputStream(response.getOutputStream());
+
+        memberJpaRepository.searchStream(condition, row -> {
+            try {
+                out.write(writer.writeValueAsBytes(row));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.flush();
+    }
+
+    /**
+     * Accept 가 application/x-member-columnar 이면 dto 를 만들지 않고 컬럼 단위 바이너리로 읽는 즉시 내려보낸다
+     */
+    @GetMapping(value = "/v1/members", produces = MemberColumnarFormat.MEDIA_TYPE_VALUE)
+    public void searchMemberV1Columnar(MemberSearchCondition condition, HttpServletResponse response) throws IOException {
+        final MemberColumnarEncoder encoder = columnarEncoder(response);
+        memberJpaRepository.searchColumns(condition, COLUMNAR_BATCH_SIZE, encoder::write);
+        encoder.finish();
+    }
+
     @GetMapping("/v2/members")
     public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
         return memberRepository.searchPageSimple(condition, pageable);
@@ -32,4 +78,34 @@ public class MemberController {
     public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
         return memberRepository.searchPageComplex(condition, pageable);
     }
+
+    /**
+     * v2, v3 의 컬럼 단위 바이너리 응답, 전체 건수는 trailer 에 싣는다
+     * v3 도 같은 경로로 읽는다, 검색 결과 캐시와 병렬 count 는 dto 페이지에만 적용된다
+     */
+    @GetMapping(value = {"/v2/members", "/v3/members"}, produces = MemberColumnarFormat.MEDIA_TYPE_VALUE)
+    public void searchMemberPageColumnar(MemberSearchCondition condition, Pageable pageable, HttpServletResponse response) throws IOException {
+        final MemberColumnarEncoder encoder = columnarEncoder(response);
+        final long total = memberRepository.searchPageColumns(condition, pageable, COLUMNAR_BATCH_SIZE, encoder::write);
+        encoder.finish(total, pageable.getPageNumber(), pageable.getPageSize());
+    }
+
+    @GetMapping("/v4/members")
+    public CursorPage<MemberTeamDto> searchMemberV4(MemberSearchCondition condition,
+                                                    @RequestParam(required = false) String cursor, Pageable pageable) {
+        return memberRepository.searchByCursor(condition, cursor, pageable);
+    }
+
+    /**
+     * 전체 건수를 보여주지 않는 무한 스크롤용, count 쿼리 없이 다음 페이지가 있는지만 알려준다
+     */
+    @GetMapping("/v5/members")
+    public Slice<MemberTeamDto> searchMemberV5(MemberSearchCondition condition, Pageable pageable) {
+        return memberRepository.searchSlice(condition, pageable);
+    }
+
+    private static MemberColumnarEncoder columnarEncoder(HttpServletResponse response) throws IOException {
+        response.setContentType(MemberColumnarFormat.MEDIA_TYPE_VALUE);
+        return new MemberColumnarEncoder(response.getOutputStream(), COLUMNAR_BATCH_SIZE);
+    }
 }
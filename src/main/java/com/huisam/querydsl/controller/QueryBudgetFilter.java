@@ -0,0 +1,56 @@
+package com.huisam.querydsl.controller;
+
+import com.huisam.querydsl.repository.support.StatementCounter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 요청마다 실행된 SQL 을 세서 예산을 넘으면 로그를 남기거나(log) 그 SQL 을 실행하기 전에 요청을 실패시킨다(reject)
+ * open-in-view 로 응답을 만드는 중에 일어나는 lazy loading 까지 세기 위해 interceptor 가 아니라 filter 로 감싼다
+ */
+@Slf4j
+@Component
+public class QueryBudgetFilter extends OncePerRequestFilter {
+
+    private final Mode mode;
+    private final int maxStatements;
+    private final int maxRepeated;
+
+    public QueryBudgetFilter(@Value("${member.query-budget.mode:log}") Mode mode,
+                             @Value("${member.query-budget.max-statements:50}") int maxStatements,
+                             @Value("${member.query-budget.max-repeated:10}") int maxRepeated) {
+        this.mode = mode;
+        this.maxStatements = maxStatements;
+        this.maxRepeated = maxRepeated;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (mode == Mode.OFF) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        try (StatementCounter counter = StatementCounter.start(maxStatements, maxRepeated, mode == Mode.REJECT)) {
+            filterChain.doFilter(request, response);
+            if (counter.isOverBudget()) {
+                log.warn("SQL budget exceeded: {} {} executed {} statements (max {}), repeated statements (max {}): {}",
+                        request.getMethod(), request.getRequestURI(), counter.getTotal(), maxStatements, maxRepeated,
+                        counter.getRepeated());
+            }
+        }
+    }
+
+    public enum Mode {
+        OFF, LOG, REJECT
+    }
+}
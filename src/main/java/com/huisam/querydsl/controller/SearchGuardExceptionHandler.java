@@ -0,0 +1,47 @@
+package com.huisam.querydsl.controller;
+
+import com.huisam.querydsl.repository.support.SearchLimitExceededException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+
+/**
+ * 검색 상한을 넘은 요청은 요청을 고쳐야 하므로 400, query timeout 으로 취소된 검색은 다시 시도할 수 있으므로 503 으로 응답한다
+ */
+@Slf4j
+@RestControllerAdvice
+public class SearchGuardExceptionHandler {
+
+    @ExceptionHandler(SearchLimitExceededException.class)
+    public ResponseEntity<Map<String, String>> searchLimitExceeded(SearchLimitExceededException e) {
+        return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+    }
+
+    /**
+     * repository 밖에서 실행된 쿼리는 Spring 예외로 바뀌지 않으므로 JPA 예외도 같이 받는다
+     */
+    @ExceptionHandler({QueryTimeoutException.class, javax.persistence.QueryTimeoutException.class})
+    public ResponseEntity<Map<String, String>> queryTimeout(RuntimeException e) {
+        log.warn("Search query cancelled by statement timeout", e);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("message", "검색이 제한 시간 안에 끝나지 않아 취소되었습니다"));
+    }
+
+    /**
+     * HikariCP 는 timeout 난 커넥션을 버리므로 이어지는 롤백이 실패하고, 원래 예외는 TransactionSystemException 안에 남는다
+     */
+    @ExceptionHandler(TransactionSystemException.class)
+    public ResponseEntity<Map<String, String>> rollbackFailed(TransactionSystemException e) {
+        final Throwable cause = e.getApplicationException();
+        if (cause instanceof QueryTimeoutException || cause instanceof javax.persistence.QueryTimeoutException) {
+            return queryTimeout((RuntimeException) cause);
+        }
+        throw e;
+    }
+}
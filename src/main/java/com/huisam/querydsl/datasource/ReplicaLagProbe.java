@@ -0,0 +1,19 @@
+package com.huisam.querydsl.datasource;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * replica 가 primary 보다 얼마나 뒤처져 있는지 잰다
+ * MySQL 이면 SHOW REPLICA STATUS 의 Seconds_Behind_Source, PostgreSQL 이면 now() - pg_last_xact_replay_timestamp() 처럼 DB 마다 다르므로 빈으로 등록해서 쓴다
+ * 빈이 없으면 지연을 재지 않고 모든 replica 를 쓴다
+ */
+@FunctionalInterface
+public interface ReplicaLagProbe {
+
+    /**
+     * @throws SQLException 잴 수 없으면 그 replica 는 다음 확인 때까지 쓰지 않는다
+     */
+    Duration lagOf(String name, DataSource replica) throws SQLException;
+}
@@ -0,0 +1,168 @@
+package com.huisam.querydsl.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 읽기 전용 트랜잭션의 커넥션은 replica 에서, 그 밖의 커넥션(쓰기 트랜잭션, 트랜잭션 밖)은 primary 에서 가져온다
+ * JPA 는 트랜잭션을 시작하면서 커넥션을 가져오므로 {@link ReplicaRoutingTransactionManager} 가 그 전에 readOnly 를 기록해 둔다
+ * replica 는 차례로(round-robin) 또는 사용 중인 커넥션이 가장 적은 곳(least-busy)으로 고르고,
+ * maxLag 보다 뒤처졌거나 지연을 잴 수 없는 replica 는 건너뛴다, 쓸 수 있는 replica 가 없으면 primary 에서 읽는다
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    public enum Selection {
+        ROUND_ROBIN, LEAST_BUSY
+    }
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Selection selection;
+    private final ReplicaLagProbe lagProbe;
+    private final Duration maxLag;
+    private final long lagCheckIntervalNanos;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param lagProbe null 이면 지연을 재지 않는다
+     */
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Selection selection,
+                                    ReplicaLagProbe lagProbe, Duration maxLag, Duration lagCheckInterval) {
+        this.primary = primary;
+        this.selection = selection;
+        this.lagProbe = lagProbe;
+        this.maxLag = maxLag;
+        this.lagCheckIntervalNanos = lagCheckInterval.toNanos();
+        replicas.forEach((name, dataSource) -> this.replicas.add(new Replica(name, dataSource)));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return determineTarget().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return determineTarget().getConnection(username, password);
+    }
+
+    /**
+     * 지금 커넥션을 가져오면 갈 DataSource
+     */
+    public DataSource determineTarget() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return primary;
+        }
+        final Replica replica = selectReplica();
+        return replica == null ? primary : replica.dataSource;
+    }
+
+    private Replica selectReplica() {
+        final int size = replicas.size();
+        final int start = Math.floorMod(next.getAndIncrement(), size);
+        Replica selected = null;
+        int selectedBusy = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            final Replica replica = replicas.get((start + i) % size);
+            if (!replica.isAvailable()) {
+                continue;
+            }
+            if (selection == Selection.ROUND_ROBIN) {
+                return replica;
+            }
+            final int busy = replica.busy();
+            if (busy < selectedBusy) {
+                selected = replica;
+                selectedBusy = busy;
+            }
+        }
+        return selected;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return (T) this;
+        }
+        return primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof Closeable) {
+                ((Closeable) replica.dataSource).close();
+            }
+        }
+        if (primary instanceof Closeable) {
+            ((Closeable) primary).close();
+        }
+    }
+
+    private final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private final AtomicBoolean checking = new AtomicBoolean();
+        private volatile long lagCheckedAt = System.nanoTime() - lagCheckIntervalNanos;
+        private volatile boolean lagging;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        /**
+         * 지연은 lagCheckInterval 마다 한 스레드만 다시 재고, 나머지는 직전 결과를 쓴다
+         */
+        private boolean isAvailable() {
+            if (lagProbe == null) {
+                return true;
+            }
+            if (System.nanoTime() - lagCheckedAt >= lagCheckIntervalNanos && checking.compareAndSet(false, true)) {
+                try {
+                    lagging = lagProbe.lagOf(name, dataSource).compareTo(maxLag) > 0;
+                } catch (SQLException | RuntimeException e) {
+                    log.warn("Could not measure lag of replica {}, skipping it until the next check", name, e);
+                    lagging = true;
+                } finally {
+                    lagCheckedAt = System.nanoTime();
+                    checking.set(false);
+                }
+            }
+            return !lagging;
+        }
+
+        /**
+         * Hikari 풀이 아니거나 아직 풀이 만들어지지 않았으면 0
+         */
+        private int busy() {
+            if (!(dataSource instanceof HikariDataSource)) {
+                return 0;
+            }
+            final HikariPoolMXBean pool = ((HikariDataSource) dataSource).getHikariPoolMXBean();
+            return pool == null ? 0 : pool.getActiveConnections();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.huisam.querydsl.datasource;
+
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 트랜잭션의 readOnly 는 doBegin 이 끝난 뒤에야 {@link TransactionSynchronizationManager} 에 기록되는데,
+ * Hibernate 는 doBegin 안에서 커넥션을 가져오므로 {@link ReplicaRoutingDataSource} 가 볼 수 있도록 미리 기록한다
+ * LazyConnectionDataSourceProxy 로 커넥션을 늦게 가져오는 방법도 있지만 p6spy 가 커넥션을 받자마자 getMetaData 를 불러서 소용이 없다
+ */
+public class ReplicaRoutingTransactionManager extends JpaTransactionManager {
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        final boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(definition.isReadOnly());
+        try {
+            super.doBegin(transaction, definition);
+        } catch (RuntimeException | Error e) {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.huisam.querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+
+/**
+ * 대량 작업 결과, 처리한 행 수와 걸린 시간
+ */
+@Getter
+@ToString
+public class BulkOperationResult {
+
+    private final long rows;
+    private final long elapsedMillis;
+    private final double rowsPerSecond;
+
+    public BulkOperationResult(long rows, Duration elapsed) {
+        this.rows = rows;
+        this.elapsedMillis = elapsed.toMillis();
+        this.rowsPerSecond = elapsed.isZero() ? rows : rows * 1_000_000_000d / elapsed.toNanos();
+    }
+}
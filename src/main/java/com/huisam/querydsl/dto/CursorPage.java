@@ -0,0 +1,25 @@
+package com.huisam.querydsl.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * keyset(seek) 페이징 결과
+ * 다음 페이지는 offset 이 아니라 {@code nextCursor} 로 요청한다
+ */
+@Getter
+public class CursorPage<T> {
+
+    private final List<T> content;
+    private final int size;
+    private final boolean hasNext;
+    private final String nextCursor;
+
+    public CursorPage(List<T> content, int size, String nextCursor) {
+        this.content = content;
+        this.size = size;
+        this.hasNext = nextCursor != null;
+        this.nextCursor = nextCursor;
+    }
+}
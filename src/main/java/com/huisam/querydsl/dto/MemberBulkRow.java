@@ -0,0 +1,15 @@
+package com.huisam.querydsl.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 대량 insert 할 회원 한 건, 팀은 엔티티 대신 id 로만 받는다
+ */
+@Getter
+@AllArgsConstructor
+public class MemberBulkRow {
+    private final String username;
+    private final int age;
+    private final Long teamId;
+}
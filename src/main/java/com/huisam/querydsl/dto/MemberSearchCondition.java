@@ -2,6 +2,8 @@ package com.huisam.querydsl.dto;
 
 import lombok.Data;
 
+import static org.springframework.util.StringUtils.hasText;
+
 @Data
 public class MemberSearchCondition {
     private String userName;
@@ -9,4 +11,15 @@ public class MemberSearchCondition {
     private Integer ageGoe;
     private Integer ageLoe;
 
+    /**
+     * 검색 결과가 같은 조건끼리 같은 키가 되도록, 조건으로 쓰이지 않는 빈 문자열을 null 로 바꾼 복사본을 만든다
+     */
+    public MemberSearchCondition normalize() {
+        final MemberSearchCondition normalized = new MemberSearchCondition();
+        normalized.setUserName(hasText(userName) ? userName : null);
+        normalized.setTeamName(hasText(teamName) ? teamName : null);
+        normalized.setAgeGoe(ageGoe);
+        normalized.setAgeLoe(ageLoe);
+        return normalized;
+    }
 }
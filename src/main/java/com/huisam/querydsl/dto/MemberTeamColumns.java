@@ -0,0 +1,99 @@
+package com.huisam.querydsl.dto;
+
+/**
+ * MemberTeamDto 여러 건을 컬럼마다 배열 하나로 담는 batch
+ * 한 번 만든 배열을 {@link #clear()} 하고 다시 채워 쓰므로 행마다 dto 나 boxing 된 id, age 를 만들지 않는다
+ * 넘겨받은 쪽은 다음 batch 를 채우기 전까지만 값을 읽을 수 있다
+ */
+public final class MemberTeamColumns {
+
+    private final long[] memberIds;
+    private final String[] usernames;
+    private final int[] ages;
+    private final long[] teamIds;
+    private final boolean[] hasTeam;
+    private final String[] teamNames;
+    private int size;
+
+    public MemberTeamColumns(int capacity) {
+        this.memberIds = new long[capacity];
+        this.usernames = new String[capacity];
+        this.ages = new int[capacity];
+        this.teamIds = new long[capacity];
+        this.hasTeam = new boolean[capacity];
+        this.teamNames = new String[capacity];
+    }
+
+    /**
+     * @param teamId 팀이 없으면 무시된다
+     */
+    public void add(long memberId, String username, int age, boolean hasTeam, long teamId, String teamName) {
+        memberIds[size] = memberId;
+        usernames[size] = username;
+        ages[size] = age;
+        this.hasTeam[size] = hasTeam;
+        teamIds[size] = hasTeam ? teamId : 0;
+        teamNames[size] = teamName;
+        size++;
+    }
+
+    public void clear() {
+        // 다음 batch 가 덜 차더라도 이전 문자열을 붙잡고 있지 않도록 지운다
+        for (int i = 0; i < size; i++) {
+            usernames[i] = null;
+            teamNames[i] = null;
+        }
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return memberIds.length;
+    }
+
+    public boolean isFull() {
+        return size == memberIds.length;
+    }
+
+    public long memberId(int row) {
+        return memberIds[checkRow(row)];
+    }
+
+    public String username(int row) {
+        return usernames[checkRow(row)];
+    }
+
+    public int age(int row) {
+        return ages[checkRow(row)];
+    }
+
+    public boolean hasTeam(int row) {
+        return hasTeam[checkRow(row)];
+    }
+
+    /**
+     * 팀이 없으면 0
+     */
+    public long teamId(int row) {
+        return teamIds[checkRow(row)];
+    }
+
+    public String teamName(int row) {
+        return teamNames[checkRow(row)];
+    }
+
+    public MemberTeamDto toDto(int row) {
+        checkRow(row);
+        return new MemberTeamDto(memberIds[row], usernames[row], ages[row], hasTeam[row] ? teamIds[row] : null, teamNames[row]);
+    }
+
+    private int checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row " + row + ", size " + size);
+        }
+        return row;
+    }
+}
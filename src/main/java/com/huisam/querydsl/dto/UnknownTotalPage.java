@@ -0,0 +1,31 @@
+package com.huisam.querydsl.dto;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * count 가 제한 시간 안에 끝나지 않아 전체 건수를 모르는 페이지
+ * totalElements 는 지금까지 확인된 건수(하한)이고, 다음 페이지는 이번 페이지가 꽉 찼으면 있을 수 있다고 본다
+ */
+public class UnknownTotalPage<T> extends PageImpl<T> {
+
+    public UnknownTotalPage(List<T> content, Pageable pageable) {
+        super(content, pageable, pageable.getOffset() + content.size());
+    }
+
+    public boolean isTotalKnown() {
+        return false;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return getNumberOfElements() == getSize();
+    }
+
+    @Override
+    public boolean isLast() {
+        return !hasNext();
+    }
+}
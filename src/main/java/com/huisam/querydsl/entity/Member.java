@@ -4,15 +4,28 @@ import lombok.*;
 
 import javax.persistence.*;
 
+/**
+ * 인덱스는 MemberSearchCondition 의 조건 모양에 맞춘다
+ * teamName 조건은 team.name 의 unique 인덱스로 팀을 찾은 뒤 (team_id, age) 로 회원을 찾고, age 조건이 같이 있으면 같은 인덱스에서 범위로 읽는다
+ * Member.team 그래프는 team 을 left join fetch 해서 같이 읽는 조회에 쓴다
+ */
 @Entity
+@NamedEntityGraph(name = "Member.team", attributeNodes = @NamedAttributeNode("team"))
+@Table(indexes = {
+        @Index(name = "idx_member_team_age", columnList = "team_id, age"),
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_age", columnList = "age")
+})
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
 public class Member {
 
+    // allocationSize 만큼 id 를 미리 받아두어 insert 마다 시퀀스를 조회하지 않는다
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 50)
     @Column(name = "member_id")
     private Long id;
 
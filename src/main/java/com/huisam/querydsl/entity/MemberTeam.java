@@ -0,0 +1,43 @@
+package com.huisam.querydsl.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/**
+ * 검색용 읽기 모델, 회원 한 명에 한 행으로 팀 id 와 팀 이름을 같이 들고 있어서 검색할 때 team 을 join 하지 않는다
+ * {@link com.huisam.querydsl.repository.support.MemberTeamReadModel} 가 Member / Team 과 같은 트랜잭션에서 고친다
+ * 인덱스는 {@link Member} 와 같은 모양으로 두되 팀 조건은 (team_name, age) 로 바로 찾는다
+ */
+@Entity
+@Table(name = "member_team", indexes = {
+        @Index(name = "idx_member_team_team_name_age", columnList = "team_name, age"),
+        @Index(name = "idx_member_team_username", columnList = "username"),
+        @Index(name = "idx_member_team_age", columnList = "age")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class MemberTeam {
+
+    @Id
+    @Column(name = "member_id")
+    private Long memberId;
+
+    private String username;
+
+    private int age;
+
+    @Column(name = "team_id")
+    private Long teamId;
+
+    @Column(name = "team_name")
+    private String teamName;
+}
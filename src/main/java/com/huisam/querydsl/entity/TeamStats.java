@@ -0,0 +1,33 @@
+package com.huisam.querydsl.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * 팀별 회원 나이 통계 요약 테이블, 회원이 쓰일 때마다 {@link com.huisam.querydsl.repository.support.TeamStatsMaintainer} 가 바뀐 만큼만 고친다
+ * 평균은 ageSum / memberCount 로 구하고, 회원이 없으면 ageMin, ageMax 는 null 이다
+ */
+@Entity
+@Table(name = "team_stats")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class TeamStats {
+
+    @Id
+    private Long teamId;
+
+    private long memberCount;
+
+    private long ageSum;
+
+    private Integer ageMin;
+
+    private Integer ageMax;
+}
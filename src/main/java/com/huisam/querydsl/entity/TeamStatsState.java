@@ -0,0 +1,45 @@
+package com.huisam.querydsl.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * {@link TeamStats} 요약 테이블을 믿을 수 있는지 여러 노드가 같이 보는 한 행짜리 테이블
+ * 엔티티 이벤트를 거치지 않는 회원 쓰기는 그 트랜잭션 안에서 writeVersion 을 올리고,
+ * 요약 테이블을 다시 만들면 이 행을 잠근 채로 그때의 writeVersion 을 builtVersion 에 적어서 같이 커밋한다
+ * 행이 없거나 두 값이 다르면 다시 만들어야 한다
+ */
+@Entity
+@Table(name = "team_stats_state")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class TeamStatsState {
+
+    public static final Long ID = 1L;
+
+    @Id
+    private Long id;
+
+    private long writeVersion;
+
+    private long builtVersion;
+
+    public TeamStatsState(Long id) {
+        this.id = id;
+    }
+
+    public boolean isBuilt() {
+        return builtVersion == writeVersion;
+    }
+
+    public void built() {
+        builtVersion = writeVersion;
+    }
+}
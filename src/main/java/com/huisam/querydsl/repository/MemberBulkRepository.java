@@ -0,0 +1,161 @@
+package com.huisam.querydsl.repository;
+
+import com.huisam.querydsl.dto.BulkOperationResult;
+import com.huisam.querydsl.dto.MemberBulkRow;
+import com.huisam.querydsl.entity.Member;
+import com.huisam.querydsl.entity.Team;
+import com.huisam.querydsl.repository.support.MemberWriteHandler;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+/**
+ * 회원, 팀 대량 insert
+ * batch-size 건씩 끊어서 JDBC batch 로 insert 하고, 끊을 때마다 영속성 컨텍스트를 비워서 메모리를 일정하게 유지한다
+ */
+@Repository
+public class MemberBulkRepository {
+
+    private final EntityManager em;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectProvider<MemberWriteHandler> handlers;
+    private final int batchSize;
+
+    public MemberBulkRepository(EntityManager em, EntityManagerFactory entityManagerFactory,
+                                PlatformTransactionManager transactionManager, ObjectProvider<MemberWriteHandler> handlers,
+                                @Value("${member.bulk.batch-size:500}") int batchSize) {
+        this.em = em;
+        this.entityManagerFactory = entityManagerFactory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.handlers = handlers;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 팀을 순서대로 insert 하고 id 를 돌려준다
+     */
+    public List<Long> insertTeams(List<String> names) {
+        final List<Long> ids = new ArrayList<>(names.size());
+        final Iterator<String> rows = names.iterator();
+        while (rows.hasNext()) {
+            transactionTemplate.executeWithoutResult(status -> inBatch(() -> {
+                final List<Team> teams = new ArrayList<>(batchSize);
+                while (teams.size() < batchSize && rows.hasNext()) {
+                    final Team team = new Team(rows.next());
+                    em.persist(team);
+                    teams.add(team);
+                }
+                em.flush();
+                teams.forEach(team -> ids.add(team.getId()));
+                em.clear();
+                return teams.size();
+            }));
+        }
+        return ids;
+    }
+
+    /**
+     * batch-size 건마다 flush, clear 하면서 insert 한다
+     * 호출한 쪽에 트랜잭션이 있으면 거기에 참여하고 (그 트랜잭션의 영속성 컨텍스트도 비워진다), 없으면 batch 마다 커밋한다
+     */
+    public BulkOperationResult insertMembers(Iterator<MemberBulkRow> rows) {
+        final long start = System.nanoTime();
+        long inserted = 0;
+        while (rows.hasNext()) {
+            inserted += transactionTemplate.execute(status -> inBatch(() -> {
+                int count = 0;
+                while (count < batchSize && rows.hasNext()) {
+                    em.persist(toMember(rows.next()));
+                    count++;
+                }
+                em.flush();
+                em.clear();
+                return count;
+            }));
+        }
+        return new BulkOperationResult(inserted, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * StatelessSession 으로 insert 한다
+     * 영속성 컨텍스트와 엔티티 이벤트를 거치지 않아 가장 빠르지만, 호출한 쪽의 트랜잭션에 참여하지 않고 batch 마다 따로 커밋한다
+     * 엔티티 이벤트가 없으므로 끝난 뒤 {@link MemberWriteHandler#onBulkWrite(String)} 로 한번에 알린다
+     */
+    public BulkOperationResult insertMembersStateless(Iterator<MemberBulkRow> rows) {
+        final long start = System.nanoTime();
+        long inserted = 0;
+        try (StatelessSession session = entityManagerFactory.unwrap(SessionFactory.class).openStatelessSession()) {
+            session.setJdbcBatchSize(batchSize);
+            final Map<Long, Team> teams = new HashMap<>();
+            while (rows.hasNext()) {
+                final Transaction transaction = session.beginTransaction();
+                try {
+                    int count = 0;
+                    while (count < batchSize && rows.hasNext()) {
+                        final MemberBulkRow row = rows.next();
+                        final Member member = new Member(row.getUsername(), row.getAge());
+                        if (row.getTeamId() != null) {
+                            member.setTeam(teams.computeIfAbsent(row.getTeamId(), id -> (Team) session.get(Team.class, id)));
+                        }
+                        session.insert(member);
+                        count++;
+                    }
+                    transaction.commit();
+                    inserted += count;
+                } catch (RuntimeException e) {
+                    transaction.rollback();
+                    throw e;
+                }
+            }
+        } finally {
+            if (inserted > 0) {
+                // 엔티티 이벤트가 없으므로 Team.members 2차 캐시도 직접 비운다
+                entityManagerFactory.unwrap(SessionFactory.class).getCache().evictCollectionData(Team.class.getName() + ".members");
+                handlers.orderedStream().forEach(handler -> handler.onBulkWrite("member"));
+            }
+        }
+        return new BulkOperationResult(inserted, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * 팀은 프록시로만 연결하고 changeTeam 을 쓰지 않는다, 팀의 members 컬렉션을 읽어오지 않기 위함
+     */
+    private Member toMember(MemberBulkRow row) {
+        final Member member = new Member(row.getUsername(), row.getAge());
+        if (row.getTeamId() != null) {
+            member.setTeam(em.getReference(Team.class, row.getTeamId()));
+        }
+        return member;
+    }
+
+    /**
+     * 이번 batch 동안만 세션의 JDBC batch 크기를 batch-size 로 바꾼다
+     */
+    private int inBatch(IntSupplier work) {
+        final Session session = em.unwrap(Session.class);
+        final Integer previous = session.getJdbcBatchSize();
+        session.setJdbcBatchSize(batchSize);
+        try {
+            return work.getAsInt();
+        } finally {
+            session.setJdbcBatchSize(previous);
+        }
+    }
+}
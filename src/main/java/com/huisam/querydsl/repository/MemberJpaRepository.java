@@ -1,17 +1,27 @@
 package com.huisam.querydsl.repository;
 
 import com.huisam.querydsl.dto.MemberSearchCondition;
+import com.huisam.querydsl.dto.MemberTeamColumns;
 import com.huisam.querydsl.dto.MemberTeamDto;
 import com.huisam.querydsl.dto.QMemberTeamDto;
 import com.huisam.querydsl.entity.Member;
+import com.huisam.querydsl.repository.support.MemberSearchCache;
+import com.huisam.querydsl.repository.support.MemberSearchCoalescer;
+import com.huisam.querydsl.repository.support.MemberSearchQueryCompiler;
 import com.querydsl.core.BooleanBuilder;
-import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static com.huisam.querydsl.entity.QMember.member;
 import static com.huisam.querydsl.entity.QTeam.team;
@@ -21,10 +31,20 @@ import static org.springframework.util.StringUtils.hasText;
 public class MemberJpaRepository {
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
-
-    public MemberJpaRepository(EntityManager em) {
+    private final int streamFetchSize;
+    private final MemberSearchCache searchCache;
+    private final MemberSearchQueryCompiler queryCompiler;
+    private final MemberSearchCoalescer coalescer;
+
+    public MemberJpaRepository(EntityManager em, @Value("${member.search.stream.fetch-size:1000}") int streamFetchSize,
+                               MemberSearchCache searchCache, MemberSearchQueryCompiler queryCompiler,
+                               MemberSearchCoalescer coalescer) {
         this.em = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.streamFetchSize = streamFetchSize;
+        this.searchCache = searchCache;
+        this.queryCompiler = queryCompiler;
+        this.coalescer = coalescer;
     }
 
     public void save(Member member) {
@@ -86,35 +106,57 @@ public class MemberJpaRepository {
                 .fetch();
     }
 
+    /**
+     * 같은 조건의 동시 호출은 한번만 실행하고, 실행하는 호출이 읽기 전용 트랜잭션을 연다
+     */
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        userNameEq(condition.getUserName()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .fetch();
+        return coalescer.execute("search", condition, Pageable.unpaged(),
+                () -> searchCache.get("search", condition, Pageable.unpaged(), () -> queryCompiler.search(condition)));
     }
 
-    private BooleanExpression userNameEq(String userName) {
-        return hasText(userName) ? member.username.eq(userName) : null;
+    /**
+     * search 와 같은 결과를 JDBC 로 직접 읽는다, 행마다 Object[] 나 boxing 된 age 를 만들지 않는다
+     * 검색 캐시를 거치지 않는다
+     */
+    @Transactional(readOnly = true)
+    public List<MemberTeamDto> searchJdbc(MemberSearchCondition condition) {
+        return queryCompiler.searchJdbc(condition, Pageable.unpaged());
     }
 
-    private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) : null;
+    /**
+     * search 결과를 batchSize 건씩 컬럼 배열로 넘긴다, 같은 {@link MemberTeamColumns} 를 다시 채워 쓰므로 consumer 밖으로 꺼내 두면 안 된다
+     *
+     * @return consumer 에 넘긴 행 수
+     */
+    @Transactional(readOnly = true)
+    public long searchColumns(MemberSearchCondition condition, int batchSize, Consumer<MemberTeamColumns> consumer) {
+        return queryCompiler.searchColumns(condition, Pageable.unpaged(), streamFetchSize, new MemberTeamColumns(batchSize), consumer);
     }
 
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe != null ? member.age.goe(ageGoe) : null;
-    }
-
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    /**
+     * search 와 같은 결과를 List 로 모으지 않고 forward-only 커서로 읽으면서 한 행씩 consumer 에 넘긴다
+     * fetch size 만큼 읽을 때마다 영속성 컨텍스트를 비워서 결과 건수와 상관없이 메모리 사용량이 일정하다
+     *
+     * @return consumer 에 넘긴 행 수
+     */
+    @Transactional(readOnly = true)
+    public long searchStream(MemberSearchCondition condition, Consumer<MemberTeamDto> consumer) {
+        // stream 으로 읽으면 projection 이 적용되지 않은 Object[] 행이 넘어오므로 직접 dto 로 바꾼다
+        final Stream<Object[]> rows = queryCompiler.createSearchQuery(condition)
+                .setHint(QueryHints.HINT_FETCH_SIZE, streamFetchSize)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultStream();
+
+        long count = 0;
+        try (rows) {
+            final Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                consumer.accept(queryCompiler.toDto(iterator.next()));
+                if (++count % streamFetchSize == 0) {
+                    em.clear();
+                }
+            }
+        }
+        return count;
     }
 }
@@ -1,11 +1,70 @@
 package com.huisam.querydsl.repository;
 
 import com.huisam.querydsl.entity.Member;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface MemberRepository extends JpaRepository<Member, Long>, MemberRepositoryCustom, QuerydslPredicateExecutor<Member> {
     List<Member> findByUsername(String username);
+
+    /*
+     * 회원마다 팀을 쓸 때는 아래 finder 로 team 을 left join fetch 해서 한번에 읽는다
+     * 그렇지 않은 finder 도 hibernate.default_batch_fetch_size 만큼 팀을 in 절 하나로 모아 읽으므로 팀마다 조회하지는 않는다
+     */
+
+    @EntityGraph("Member.team")
+    @Query("select m from Member m")
+    @Transactional(readOnly = true)
+    List<Member> findAllWithTeam();
+
+    @EntityGraph("Member.team")
+    @Transactional(readOnly = true)
+    List<Member> findWithTeamByUsername(String username);
+
+    /*
+     * QuerydslPredicateExecutor 의 구현체에는 트랜잭션 설정이 없어서 트랜잭션 밖(primary)에서 실행되므로 읽기 전용 트랜잭션으로 다시 선언한다
+     */
+
+    @Override
+    @Transactional(readOnly = true)
+    Optional<Member> findOne(Predicate predicate);
+
+    @Override
+    @Transactional(readOnly = true)
+    Iterable<Member> findAll(Predicate predicate);
+
+    @Override
+    @Transactional(readOnly = true)
+    Iterable<Member> findAll(Predicate predicate, Sort sort);
+
+    @Override
+    @Transactional(readOnly = true)
+    Iterable<Member> findAll(Predicate predicate, OrderSpecifier<?>... orders);
+
+    @Override
+    @Transactional(readOnly = true)
+    Iterable<Member> findAll(OrderSpecifier<?>... orders);
+
+    @Override
+    @Transactional(readOnly = true)
+    Page<Member> findAll(Predicate predicate, Pageable pageable);
+
+    @Override
+    @Transactional(readOnly = true)
+    long count(Predicate predicate);
+
+    @Override
+    @Transactional(readOnly = true)
+    boolean exists(Predicate predicate);
 }
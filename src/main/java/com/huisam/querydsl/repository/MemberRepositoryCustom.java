@@ -1,16 +1,79 @@
 package com.huisam.querydsl.repository;
 
+import com.huisam.querydsl.dto.BulkOperationResult;
+import com.huisam.querydsl.dto.CursorPage;
 import com.huisam.querydsl.dto.MemberSearchCondition;
+import com.huisam.querydsl.dto.MemberTeamColumns;
 import com.huisam.querydsl.dto.MemberTeamDto;
+import com.huisam.querydsl.entity.Member;
+import com.querydsl.core.types.Predicate;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.function.Consumer;
 
+/**
+ * 조회 메서드는 모두 읽기 전용 트랜잭션으로 실행되므로 replica 가 설정되어 있으면 replica 에서 읽는다
+ * search, searchPage*, searchSlice 는 같은 조건의 동시 호출을 {@link com.huisam.querydsl.repository.support.MemberSearchCoalescer} 가 한번으로 모으고,
+ * 실행하는 호출만 트랜잭션을 열도록 트랜잭션도 거기서 연다
+ */
 public interface MemberRepositoryCustom {
     List<MemberTeamDto> search(MemberSearchCondition condition);
 
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
 
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+
+    /**
+     * searchPageComplex 와 같은 content 를 count 쿼리 없이 읽는다, 페이지 크기보다 한 건 더 읽어서 다음 페이지가 있는지만 알려준다
+     */
+    Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable);
+
+    @Transactional(readOnly = true)
+    CursorPage<MemberTeamDto> searchByCursor(MemberSearchCondition condition, String cursor, Pageable pageable);
+
+    /**
+     * searchPageSimple 과 같은 페이지를 dto 없이 batchSize 건씩 컬럼 배열로 넘긴다
+     *
+     * @return 전체 건수, 페이징하지 않았으면 넘긴 행 수
+     */
+    @Transactional(readOnly = true)
+    long searchPageColumns(MemberSearchCondition condition, Pageable pageable, int batchSize, Consumer<MemberTeamColumns> consumer);
+
+    /**
+     * findAll(Predicate) 에 Member.team 그래프를 적용해서 team 을 같이 읽는다
+     */
+    @Transactional(readOnly = true)
+    List<Member> findAllWithTeam(Predicate predicate);
+
+    /*
+     * QuerydslPredicateExecutor 의 아래 조회는 member.replica.in-memory.enabled 면 메모리 복제본으로 먼저 계산하고,
+     * 복제본이 아직 없거나 계산할 수 없는 Predicate / 정렬이면 JPA 로 읽는다
+     * 엔티티를 돌려주는 조회는 맞는 id 만 복제본에서 고르고 엔티티는 id 로 읽는다
+     */
+
+    Iterable<Member> findAll(Predicate predicate);
+
+    Page<Member> findAll(Predicate predicate, Pageable pageable);
+
+    long count(Predicate predicate);
+
+    boolean exists(Predicate predicate);
+
+    /*
+     * 아래 bulk 작업은 조건에 맞는 회원을 id 순서로 member.bulk.chunk-size 건씩 끊어서 처리한다
+     * 호출한 쪽에 트랜잭션이 없으면 chunk 마다 커밋하고, 바뀐 회원은 영속성 컨텍스트에서 떼어낸다
+     */
+
+    BulkOperationResult bulkAddAge(MemberSearchCondition condition, int amount);
+
+    /**
+     * @param teamId null 이면 팀에서 뺀다
+     */
+    BulkOperationResult bulkChangeTeam(MemberSearchCondition condition, Long teamId);
+
+    BulkOperationResult bulkDelete(MemberSearchCondition condition);
 }
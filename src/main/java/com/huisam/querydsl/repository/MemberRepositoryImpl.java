@@ -1,168 +1,301 @@
 package com.huisam.querydsl.repository;
 
+import com.huisam.querydsl.dto.BulkOperationResult;
+import com.huisam.querydsl.dto.CursorPage;
 import com.huisam.querydsl.dto.MemberSearchCondition;
+import com.huisam.querydsl.dto.MemberTeamColumns;
 import com.huisam.querydsl.dto.MemberTeamDto;
 import com.huisam.querydsl.dto.QMemberTeamDto;
+import com.huisam.querydsl.dto.UnknownTotalPage;
 import com.huisam.querydsl.entity.Member;
-import com.querydsl.core.QueryResults;
-import com.querydsl.core.types.dsl.BooleanExpression;
+import com.huisam.querydsl.entity.Team;
+import com.huisam.querydsl.repository.support.CountCache;
+import com.huisam.querydsl.repository.support.MemberBulkUpdater;
+import com.huisam.querydsl.repository.support.MemberColumnReplica;
+import com.huisam.querydsl.repository.support.MemberQueryGuard;
+import com.huisam.querydsl.repository.support.MemberSearchCache;
+import com.huisam.querydsl.repository.support.MemberSearchCoalescer;
+import com.huisam.querydsl.repository.support.MemberSearchQueryCompiler;
+import com.huisam.querydsl.repository.support.ParallelCountExecutor;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.PathBuilder;
 import com.querydsl.jpa.JPQLQuery;
-import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.support.Querydsl;
 import org.springframework.data.jpa.repository.support.QuerydslRepositorySupport;
 import org.springframework.data.repository.support.PageableExecutionUtils;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static com.huisam.querydsl.entity.QMember.member;
 import static com.huisam.querydsl.entity.QTeam.team;
-import static org.springframework.util.StringUtils.hasText;
 
 public class MemberRepositoryImpl extends QuerydslRepositorySupport implements MemberRepositoryCustom {
 
+    private static final int IN_LIST_SIZE = 1000;
+    // JPA 표준 힌트 이름, Hibernate 상수에 기대지 않는다
+    private static final String FETCH_GRAPH = "javax.persistence.fetchgraph";
+
     private final JPAQueryFactory queryFactory;
+    private final MemberSearchQueryCompiler queryCompiler;
+    private final CountCache countCache;
+    private final MemberSearchCache searchCache;
+    private final int approximateCountThreshold;
+    private final ParallelCountExecutor parallelCountExecutor;
+    private final boolean parallelCount;
+    private final MemberBulkUpdater bulkUpdater;
+    private final MemberSearchCoalescer coalescer;
+    private final MemberColumnReplica replica;
+    private final MemberQueryGuard guard;
+    // getQuerydsl() 은 별칭이 member 라서 QMember.member(member1) 로 만든 쿼리에 정렬을 붙일 때는 이걸 쓴다
+    private final Querydsl memberQuerydsl;
+    private final EntityManager em;
 
 
-    public MemberRepositoryImpl(EntityManager em) {
+    public MemberRepositoryImpl(EntityManager em, MemberSearchQueryCompiler queryCompiler,
+                                CountCache countCache, MemberSearchCache searchCache,
+                                @Value("${member.search.count.approximate-threshold:0}") int approximateCountThreshold,
+                                ParallelCountExecutor parallelCountExecutor,
+                                @Value("${member.search.count.parallel:false}") boolean parallelCount,
+                                MemberBulkUpdater bulkUpdater, MemberSearchCoalescer coalescer,
+                                ObjectProvider<MemberColumnReplica> replica, MemberQueryGuard guard) {
         super(Member.class);
+        this.em = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.queryCompiler = queryCompiler;
+        this.countCache = countCache;
+        this.searchCache = searchCache;
+        this.approximateCountThreshold = approximateCountThreshold;
+        this.parallelCountExecutor = parallelCountExecutor;
+        this.parallelCount = parallelCount;
+        this.bulkUpdater = bulkUpdater;
+        this.coalescer = coalescer;
+        this.replica = replica.getIfAvailable();
+        this.guard = guard;
+        this.memberQuerydsl = new Querydsl(em, new PathBuilder<>(Member.class, member.getMetadata()));
     }
 
     @Override
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return coalescer.execute("search", condition, Pageable.unpaged(),
+                () -> searchCache.get("search", condition, Pageable.unpaged(), () -> queryCompiler.search(condition)));
+    }
 
-        final List<MemberTeamDto> result = from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        userNameEq(condition.getUserName()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName")
-                ))
-                .fetch();
+    @Override
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        guard.checkPageSize(pageable);
+        return coalescer.execute("searchPageSimple", condition, pageable, () -> {
+            // fetchResults() 는 매번 content 와 같은 join 으로 count 를 다시 하므로 content 만 가져오고 count 는 따로 구한다
+            final List<MemberTeamDto> content = queryCompiler.search(condition, pageable);
 
-        return queryFactory
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        userNameEq(condition.getUserName()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .fetch();
+            return PageableExecutionUtils.getPage(content, pageable, () -> count(condition));
+        });
     }
 
+    /**
+     * member.search.count.parallel 이 켜져 있으면 count 를 content 와 동시에 timeout 을 걸고 다른 커넥션에서 실행한다
+     */
     @Override
-    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        guard.checkPageSize(pageable);
+        return coalescer.execute("searchPageComplex", condition, pageable, () -> searchPageComplexCached(condition, pageable));
+    }
+
+    private Page<MemberTeamDto> searchPageComplexCached(MemberSearchCondition condition, Pageable pageable) {
+        // 전체 건수를 모르는 페이지는 다음 요청에서 다시 count 하도록 캐시에 넣지 않는다
+        return searchCache.get("searchPageComplex", condition, pageable, () -> {
+            if (parallelCount) {
+                return parallelCountExecutor.getPage(() -> queryCompiler.search(condition, pageable), pageable, () -> count(condition));
+            }
+            final List<MemberTeamDto> contents = queryCompiler.search(condition, pageable);
+
+            return PageableExecutionUtils.getPage(contents, pageable, () -> count(condition));
+        }, page -> !(page instanceof UnknownTotalPage));
+    }
+
+    @Override
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable) {
+        guard.checkPageSize(pageable);
+        return coalescer.execute("searchSlice", condition, pageable,
+                () -> searchCache.get("searchSlice", condition, pageable, () -> queryCompiler.searchSlice(condition, pageable)));
+    }
 
+    /**
+     * offset 대신 마지막으로 읽은 행의 (정렬 키, member_id) 이후부터 읽는 keyset 페이징
+     * 앞 페이지의 행들을 읽고 버리지 않기 때문에 페이지가 깊어져도 비용이 일정하다
+     */
+    @Override
+    public CursorPage<MemberTeamDto> searchByCursor(MemberSearchCondition condition, String cursor, Pageable pageable) {
+        guard.checkPageSize(pageable);
+        final MemberSearchCursor current = MemberSearchCursor.resolve(cursor, pageable.getSort());
+        final int size = pageable.getPageSize();
 
-        final QueryResults<MemberTeamDto> results = queryFactory
+        final JPQLQuery<MemberTeamDto> query = guard.withTimeout(queryFactory
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName")
                 ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        userNameEq(condition.getUserName()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetchResults();
+                .from(member));
+        final List<MemberTeamDto> rows = MemberSearchQueryCompiler.joinTeam(query, condition)
+                .where(MemberSearchQueryCompiler.where(condition))
+                .where(current.seek())
+                .orderBy(current.orderBy())
+                .limit(size + 1)
+                .fetch();
 
-        final List<MemberTeamDto> content = results.getResults();
-        final long total = results.getTotal();
+        // 한 건을 더 읽어서 다음 페이지가 있는지 판단한다
+        final boolean hasNext = rows.size() > size;
+        final List<MemberTeamDto> content = hasNext ? rows.subList(0, size) : rows;
+        final String nextCursor = hasNext ? current.next(content.get(content.size() - 1)).encode() : null;
 
-        return new PageImpl<>(content, pageable, total);
+        return new CursorPage<>(content, size, nextCursor);
     }
 
+    /**
+     * 전체 건수는 PageableExecutionUtils 와 같은 규칙으로, 읽은 행 수만으로 알 수 있으면 count 를 생략한다
+     */
     @Override
-    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-        final List<MemberTeamDto> contents = getMemberTeamDtos(condition, pageable);
-        final JPAQuery<Member> countQuery = getCount(condition);
-
-        return PageableExecutionUtils.getPage(contents, pageable, countQuery::fetchCount);
+    public long searchPageColumns(MemberSearchCondition condition, Pageable pageable, int batchSize, Consumer<MemberTeamColumns> consumer) {
+        guard.checkPageSize(pageable);
+        final long rows = queryCompiler.searchColumns(condition, pageable, 0, new MemberTeamColumns(batchSize), consumer);
+        if (pageable.isUnpaged() || (pageable.getOffset() == 0 && rows < pageable.getPageSize())) {
+            return rows;
+        }
+        if (rows > 0 && rows < pageable.getPageSize()) {
+            return pageable.getOffset() + rows;
+        }
+        return count(condition);
     }
 
-    public Page<MemberTeamDto> searchPageSimple2(MemberSearchCondition condition, Pageable pageable) {
-        final JPQLQuery<MemberTeamDto> jpaQuery = from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        userNameEq(condition.getUserName()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .select(new QMemberTeamDto(
-                        member.id.as("memberId"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName")
-                ));
+    @Override
+    public List<Member> findAllWithTeam(Predicate predicate) {
+        return guard.withTimeout(queryFactory.selectFrom(member))
+                .where(predicate)
+                .setHint(FETCH_GRAPH, em.getEntityGraph("Member.team"))
+                .fetch();
+    }
 
-        final JPQLQuery<MemberTeamDto> query = getQuerydsl().applyPagination(pageable, jpaQuery);
-        final QueryResults<MemberTeamDto> results = query.fetchResults();
+    @Override
+    public Iterable<Member> findAll(Predicate predicate) {
+        final Optional<List<Long>> ids = replica == null ? Optional.empty() : replica.findIds(predicate, Sort.unsorted());
+        if (ids.isPresent()) {
+            return findAllById(ids.get());
+        }
+        return guard.withTimeout(queryFactory.selectFrom(member)).where(predicate).fetch();
+    }
 
-        final List<MemberTeamDto> content = results.getResults();
-        final long total = results.getTotal();
+    /**
+     * 복제본으로 계산하면 전체 건수도 복제본에서 바로 알고, 페이지에 들어갈 id 만 DB 에서 엔티티로 읽는다
+     */
+    @Override
+    public Page<Member> findAll(Predicate predicate, Pageable pageable) {
+        guard.checkPageSize(pageable);
+        final Optional<List<Long>> ids = replica == null ? Optional.empty() : replica.findIds(predicate, pageable.getSort());
+        if (ids.isPresent()) {
+            final List<Long> all = ids.get();
+            final List<Long> page = pageable.isUnpaged()
+                    ? all
+                    : all.subList((int) Math.min(pageable.getOffset(), all.size()),
+                    (int) Math.min(pageable.getOffset() + pageable.getPageSize(), all.size()));
+            return new PageImpl<>(findAllById(page), pageable, all.size());
+        }
+        final List<Member> content = memberQuerydsl
+                .applyPagination(pageable, guard.withTimeout(queryFactory.selectFrom(member)).where(predicate))
+                .fetch();
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> guard.withTimeout(queryFactory.selectFrom(member)).where(predicate).fetchCount());
+    }
 
-        return new PageImpl<>(content, pageable, total);
+    @Override
+    public long count(Predicate predicate) {
+        final OptionalLong count = replica == null ? OptionalLong.empty() : replica.count(predicate);
+        if (count.isPresent()) {
+            return count.getAsLong();
+        }
+        return guard.withTimeout(queryFactory.selectFrom(member)).where(predicate).fetchCount();
     }
 
-    private JPAQuery<Member> getCount(MemberSearchCondition condition) {
-        return queryFactory
-                .select(member)
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        userNameEq(condition.getUserName()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                );
+    @Override
+    public boolean exists(Predicate predicate) {
+        final OptionalLong count = replica == null ? OptionalLong.empty() : replica.count(predicate);
+        if (count.isPresent()) {
+            return count.getAsLong() > 0;
+        }
+        return guard.withTimeout(queryFactory.selectOne()).from(member).where(predicate).fetchFirst() != null;
     }
 
-    private List<MemberTeamDto> getMemberTeamDtos(MemberSearchCondition condition, Pageable pageable) {
-        return queryFactory
+    public Page<MemberTeamDto> searchPageSimple2(MemberSearchCondition condition, Pageable pageable) {
+        final JPQLQuery<MemberTeamDto> jpaQuery = MemberSearchQueryCompiler.joinTeam(from(member), condition)
+                .where(MemberSearchQueryCompiler.where(condition))
                 .select(new QMemberTeamDto(
                         member.id.as("memberId"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName")
-                ))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(
-                        userNameEq(condition.getUserName()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
-                .offset(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .fetch();
+                ));
+
+        final List<MemberTeamDto> content = getQuerydsl().applyPagination(pageable, jpaQuery).fetch();
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(condition));
+    }
+
+    @Override
+    public BulkOperationResult bulkAddAge(MemberSearchCondition condition, int amount) {
+        return bulkUpdater.update(condition, false, update -> update.set(member.age, member.age.add(amount)));
     }
 
-    private BooleanExpression userNameEq(String userName) {
-        return hasText(userName) ? member.username.eq(userName) : null;
+    @Override
+    public BulkOperationResult bulkChangeTeam(MemberSearchCondition condition, Long teamId) {
+        // 팀은 프록시로만 연결해서 팀을 읽지 않는다
+        final Team target = teamId == null ? null : em.getReference(Team.class, teamId);
+        return bulkUpdater.update(condition, true, update -> update.set(member.team, target));
     }
 
-    private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) : null;
+    @Override
+    public BulkOperationResult bulkDelete(MemberSearchCondition condition) {
+        return bulkUpdater.delete(condition);
     }
 
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    /**
+     * id 를 in 절 하나에 최대 IN_LIST_SIZE 개씩 넣어서 읽고 넘겨받은 id 순서로 돌려준다, 그 사이에 지워진 회원은 빠진다
+     */
+    private List<Member> findAllById(List<Long> ids) {
+        final List<Member> members = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += IN_LIST_SIZE) {
+            members.addAll(guard.withTimeout(queryFactory.selectFrom(member))
+                    .where(member.id.in(ids.subList(from, Math.min(from + IN_LIST_SIZE, ids.size()))))
+                    .fetch());
+        }
+        final Map<Long, Member> byId = members.stream().collect(Collectors.toMap(Member::getId, Function.identity()));
+        final List<Member> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            final Member found = byId.get(id);
+            if (found != null) {
+                ordered.add(found);
+            }
+        }
+        return ordered;
     }
 
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    /**
+     * 같은 조건의 count 는 {@link CountCache} 에 잠시 캐시해서 다음 페이지 요청부터는 count 쿼리를 생략한다
+     * approximate-threshold 가 있으면 결과가 아주 많을 때 전체를 세지 않고 그 건수까지만 센다
+     */
+    private long count(MemberSearchCondition condition) {
+        final MemberSearchCondition key = condition.normalize();
+        return countCache.get(key, () -> approximateCountThreshold > 0
+                ? queryCompiler.countUpTo(key, approximateCountThreshold)
+                : queryCompiler.count(key));
     }
 }
@@ -0,0 +1,192 @@
+package com.huisam.querydsl.repository;
+
+import com.huisam.querydsl.dto.MemberTeamDto;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Iterator;
+
+import static com.huisam.querydsl.entity.QMember.member;
+
+/**
+ * keyset(seek) 페이징용 커서
+ * 마지막으로 읽은 행의 (정렬 키, member_id) 를 담고 있고, 클라이언트에게는 Base64 로 인코딩된 불투명한 문자열로만 노출한다
+ * member_id 를 항상 두번째 정렬 키로 붙여서 정렬 키 값이 같은 행들 사이에서도 순서가 유일하게 결정되도록 한다
+ */
+public final class MemberSearchCursor {
+
+    private static final String DELIMITER = "|";
+    private static final String NULL_VALUE = "N";
+    private static final String VALUE_PREFIX = "V";
+
+    private final SortKey sortKey;
+    private final Sort.Direction direction;
+    private final Long memberId;
+    private final String value;
+
+    private MemberSearchCursor(SortKey sortKey, Sort.Direction direction, Long memberId, String value) {
+        this.sortKey = sortKey;
+        this.direction = direction;
+        this.memberId = memberId;
+        this.value = value;
+    }
+
+    /**
+     * 커서가 없으면 요청된 정렬의 첫 페이지를, 있으면 커서 다음 위치를 가리킨다
+     */
+    public static MemberSearchCursor resolve(String token, Sort sort) {
+        if (token == null || token.isEmpty()) {
+            final Sort.Order order = singleOrder(sort);
+            return order == null
+                    ? new MemberSearchCursor(SortKey.MEMBER_ID, Sort.Direction.ASC, null, null)
+                    : new MemberSearchCursor(SortKey.of(order.getProperty()), order.getDirection(), null, null);
+        }
+
+        final MemberSearchCursor cursor = decode(token);
+        final Sort.Order order = singleOrder(sort);
+        if (order != null && (SortKey.of(order.getProperty()) != cursor.sortKey || order.getDirection() != cursor.direction)) {
+            throw new IllegalArgumentException("커서의 정렬 기준과 요청한 정렬 기준이 다릅니다: " + sort);
+        }
+        return cursor;
+    }
+
+    public MemberSearchCursor next(MemberTeamDto last) {
+        return new MemberSearchCursor(sortKey, direction, last.getMemberId(), sortKey.valueOf(last));
+    }
+
+    public BooleanExpression seek() {
+        return memberId == null ? null : sortKey.after(value, memberId, direction.isAscending());
+    }
+
+    public OrderSpecifier<?>[] orderBy() {
+        return sortKey.orderBy(direction.isAscending());
+    }
+
+    public String encode() {
+        final String raw = sortKey.name() + DELIMITER + direction.name() + DELIMITER + memberId + DELIMITER
+                + (value == null ? NULL_VALUE : VALUE_PREFIX + value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MemberSearchCursor decode(String token) {
+        try {
+            final String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            final String[] parts = raw.split("\\|", 4);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("잘못된 커서입니다: " + token);
+            }
+            final String value = parts[3].startsWith(VALUE_PREFIX) ? parts[3].substring(1) : null;
+            return new MemberSearchCursor(SortKey.valueOf(parts[0]), Sort.Direction.valueOf(parts[1]), Long.valueOf(parts[2]), value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("잘못된 커서입니다: " + token, e);
+        }
+    }
+
+    private static Sort.Order singleOrder(Sort sort) {
+        final Iterator<Sort.Order> orders = sort.iterator();
+        if (!orders.hasNext()) {
+            return null;
+        }
+        final Sort.Order order = orders.next();
+        if (orders.hasNext()) {
+            throw new IllegalArgumentException("keyset 페이징은 정렬 키를 하나만 지원합니다: " + sort);
+        }
+        return order;
+    }
+
+    /**
+     * keyset 페이징이 가능한 정렬 키
+     * username 은 null 이 될 수 있으므로 null 을 가장 작은 값으로 보고 (asc 면 nulls first, desc 면 nulls last) seek 조건을 만든다
+     */
+    enum SortKey {
+        MEMBER_ID {
+            @Override
+            String valueOf(MemberTeamDto row) {
+                return null;
+            }
+
+            @Override
+            BooleanExpression after(String value, Long memberId, boolean asc) {
+                return asc ? member.id.gt(memberId) : member.id.lt(memberId);
+            }
+
+            @Override
+            OrderSpecifier<?>[] orderBy(boolean asc) {
+                return new OrderSpecifier[]{asc ? member.id.asc() : member.id.desc()};
+            }
+        },
+        USERNAME {
+            @Override
+            String valueOf(MemberTeamDto row) {
+                return row.getUsername();
+            }
+
+            @Override
+            BooleanExpression after(String value, Long memberId, boolean asc) {
+                if (value == null) {
+                    final BooleanExpression sameNull = member.username.isNull().and(idAfter(memberId, asc));
+                    return asc ? sameNull.or(member.username.isNotNull()) : sameNull;
+                }
+                final BooleanExpression afterValue = (asc ? member.username.gt(value) : member.username.lt(value))
+                        .or(member.username.eq(value).and(idAfter(memberId, asc)));
+                return asc ? afterValue : afterValue.or(member.username.isNull());
+            }
+
+            @Override
+            OrderSpecifier<?>[] orderBy(boolean asc) {
+                return new OrderSpecifier[]{
+                        asc ? member.username.asc().nullsFirst() : member.username.desc().nullsLast(),
+                        asc ? member.id.asc() : member.id.desc()
+                };
+            }
+        },
+        AGE {
+            @Override
+            String valueOf(MemberTeamDto row) {
+                return String.valueOf(row.getAge());
+            }
+
+            @Override
+            BooleanExpression after(String value, Long memberId, boolean asc) {
+                final int age = Integer.parseInt(value);
+                return (asc ? member.age.gt(age) : member.age.lt(age))
+                        .or(member.age.eq(age).and(idAfter(memberId, asc)));
+            }
+
+            @Override
+            OrderSpecifier<?>[] orderBy(boolean asc) {
+                return new OrderSpecifier[]{
+                        asc ? member.age.asc() : member.age.desc(),
+                        asc ? member.id.asc() : member.id.desc()
+                };
+            }
+        };
+
+        abstract String valueOf(MemberTeamDto row);
+
+        abstract BooleanExpression after(String value, Long memberId, boolean asc);
+
+        abstract OrderSpecifier<?>[] orderBy(boolean asc);
+
+        static SortKey of(String property) {
+            switch (property) {
+                case "id":
+                case "memberId":
+                    return MEMBER_ID;
+                case "username":
+                    return USERNAME;
+                case "age":
+                    return AGE;
+                default:
+                    throw new IllegalArgumentException("keyset 페이징을 지원하지 않는 정렬 키입니다: " + property);
+            }
+        }
+
+        private static BooleanExpression idAfter(Long memberId, boolean asc) {
+            return asc ? member.id.gt(memberId) : member.id.lt(memberId);
+        }
+    }
+}
@@ -2,16 +2,16 @@ package com.huisam.querydsl.repository;
 
 import com.huisam.querydsl.dto.MemberSearchCondition;
 import com.huisam.querydsl.entity.Member;
+import com.huisam.querydsl.repository.support.MemberSearchQueryCompiler;
 import com.huisam.querydsl.repository.support.QueryDsl4RepositorySupport;
-import com.querydsl.core.types.dsl.BooleanExpression;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 
 import static com.huisam.querydsl.entity.QMember.member;
 import static com.huisam.querydsl.entity.QTeam.team;
-import static org.springframework.util.StringUtils.hasText;
 
 public class MemberTestRepository extends QueryDsl4RepositorySupport {
 
@@ -34,12 +34,7 @@ public class MemberTestRepository extends QueryDsl4RepositorySupport {
         return applyPagination(pageable, query ->
                 query.selectFrom(member)
                         .leftJoin(member.team, team)
-                        .where(
-                                userNameEq(condition.getUserName()),
-                                teamNameEq(condition.getTeamName()),
-                                ageGoe(condition.getAgeGoe()),
-                                ageLoe(condition.getAgeLoe())
-                        )
+                        .where(MemberSearchQueryCompiler.where(condition))
         );
     }
 
@@ -47,38 +42,20 @@ public class MemberTestRepository extends QueryDsl4RepositorySupport {
         return applyPagination(pageable, contentQuery ->
                 contentQuery.selectFrom(member)
                         .leftJoin(member.team, team)
-                        .where(
-                                userNameEq(condition.getUserName()),
-                                teamNameEq(condition.getTeamName()),
-                                ageGoe(condition.getAgeGoe()),
-                                ageLoe(condition.getAgeLoe())
-                        ), countQuery -> countQuery
+                        .where(MemberSearchQueryCompiler.where(condition)), countQuery -> countQuery
                 .select(member.id)
                 .from(member)
                 .leftJoin(member.team, team)
-                .where(
-                        userNameEq(condition.getUserName()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
+                .where(MemberSearchQueryCompiler.where(condition))
         );
     }
 
-    private BooleanExpression userNameEq(String userName) {
-        return hasText(userName) ? member.username.eq(userName) : null;
-    }
-
-    private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) : null;
-    }
-
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe != null ? member.age.goe(ageGoe) : null;
-    }
-
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    public Slice<Member> applySlicePagination(MemberSearchCondition condition, Pageable pageable) {
+        return applySlicePagination(pageable, query ->
+                query.selectFrom(member)
+                        .leftJoin(member.team, team)
+                        .where(MemberSearchQueryCompiler.where(condition))
+        );
     }
 
 }
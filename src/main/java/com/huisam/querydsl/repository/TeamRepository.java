@@ -0,0 +1,24 @@
+package com.huisam.querydsl.repository;
+
+import com.huisam.querydsl.entity.Team;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import javax.persistence.QueryHint;
+import java.util.List;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+
+public interface TeamRepository extends JpaRepository<Team, Long> {
+
+    /**
+     * 결과(팀 id)는 team-by-name 쿼리 캐시에, 팀은 team 캐시에 남으므로 같은 이름을 다시 찾을 때는 DB 에 가지 않는다
+     * team 테이블이 바뀌면 쿼리 캐시 결과는 자동으로 무효가 된다
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = "team-by-name")
+    })
+    List<Team> findByName(String name);
+}
@@ -0,0 +1,83 @@
+package com.huisam.querydsl.repository;
+
+import com.huisam.querydsl.dto.QTeamStatsDto;
+import com.huisam.querydsl.dto.TeamStatsDto;
+import com.huisam.querydsl.entity.TeamStatsState;
+import com.huisam.querydsl.repository.support.TeamStatsMaintainer;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static com.huisam.querydsl.entity.QTeam.team;
+import static com.huisam.querydsl.entity.QTeamStats.teamStats;
+import static com.huisam.querydsl.entity.QTeamStatsState.teamStatsState;
+
+/**
+ * 팀별 회원 나이 통계, 회원 테이블을 group by 하지 않고 {@link TeamStatsMaintainer} 가 관리하는 요약 테이블을 팀 수만큼 읽는다
+ */
+@Repository
+public class TeamStatsRepository {
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TeamStatsMaintainer maintainer;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public TeamStatsRepository(EntityManager em, TeamStatsMaintainer maintainer, PlatformTransactionManager transactionManager) {
+        this.em = em;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.maintainer = maintainer;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * 회원이 있는 팀만 팀 이름 순으로 돌려준다
+     * 요약 테이블을 믿을 수 있을 때만 행을 읽으므로 보통은 쿼리 한번이고, 비어 있으면 같은 트랜잭션에서 상태 행을 읽어
+     * 정말 회원이 없는 건지 bulk 쓰기 뒤라서인지 확인한다
+     * 다시 만들어야 하면 읽기 트랜잭션을 끝낸 뒤 따로 다시 만들고 읽는다, 커넥션을 두 개 잡지 않는다
+     */
+    public List<TeamStatsDto> findAll() {
+        final List<TeamStatsDto> stats = readOnlyTransaction.execute(status -> {
+            final List<TeamStatsDto> rows = fetchIfBuilt();
+            if (!rows.isEmpty()) {
+                return rows;
+            }
+            final TeamStatsState state = em.find(TeamStatsState.class, TeamStatsState.ID);
+            return state != null && state.isBuilt() ? rows : null;
+        });
+        if (stats != null) {
+            return stats;
+        }
+        maintainer.rebuildIfStale();
+        return readOnlyTransaction.execute(status -> fetchIfBuilt());
+    }
+
+    public void rebuild() {
+        maintainer.rebuild();
+    }
+
+    private List<TeamStatsDto> fetchIfBuilt() {
+        return queryFactory
+                .select(new QTeamStatsDto(
+                        team.name,
+                        teamStats.memberCount,
+                        teamStats.ageSum,
+                        teamStats.ageMin,
+                        teamStats.ageMax))
+                .from(teamStats)
+                .join(team).on(team.id.eq(teamStats.teamId))
+                .where(teamStats.memberCount.gt(0L),
+                        JPAExpressions.selectOne()
+                                .from(teamStatsState)
+                                .where(teamStatsState.builtVersion.eq(teamStatsState.writeVersion))
+                                .exists())
+                .orderBy(team.name.asc())
+                .fetch();
+    }
+}
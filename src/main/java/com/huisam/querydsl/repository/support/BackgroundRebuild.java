@@ -0,0 +1,85 @@
+package com.huisam.querydsl.repository.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * 통째로 다시 만들어야 하는 사본(메모리 복제본, member_team 읽기 모델)을 지금 써도 되는지 관리한다
+ * 처음과 bulk 쓰기 뒤에는 낡았다고 표시하고, 쓰려고 할 때 백그라운드 스레드에서 한번만 다시 만든다
+ * 다시 만드는 동안에는 표시를 지웠어도 아직 끝나지 않았으므로 쓰지 않는다
+ */
+@Slf4j
+final class BackgroundRebuild {
+
+    private final String name;
+    private final Runnable rebuild;
+    private final ExecutorService executor;
+
+    /**
+     * 처음에는 사본에 이미 있던 행이 들어 있는지 모르므로 다시 만들거나 다시 만들 필요가 없다고 확인할 때까지 쓰지 않는다
+     */
+    private final AtomicBoolean stale = new AtomicBoolean(true);
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile boolean running;
+
+    /**
+     * @param rebuild {@link #run(Supplier)} 로 감싼 다시 만들기
+     */
+    BackgroundRebuild(String name, Runnable rebuild) {
+        this.name = name;
+        this.rebuild = rebuild;
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(name + "-rebuild-");
+        threadFactory.setDaemon(true);
+        this.executor = Executors.newSingleThreadExecutor(threadFactory);
+    }
+
+    void markStale() {
+        stale.set(true);
+    }
+
+    /**
+     * 사본을 써도 되는지, 다시 만들어야 하면 백그라운드에서 한번만 다시 만들도록 예약하고 false 를 돌려준다
+     */
+    boolean isReady() {
+        if (!stale.get()) {
+            return !running;
+        }
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                try {
+                    rebuild.run();
+                } catch (RuntimeException e) {
+                    log.warn("Could not rebuild {}, reads keep using the tables", name, e);
+                } finally {
+                    scheduled.set(false);
+                }
+            });
+        }
+        return false;
+    }
+
+    /**
+     * 다시 만드는 중에 표시된 bulk 쓰기는 다시 만들게 하도록 먼저 표시를 지우고, 실패하면 다시 표시한다
+     */
+    <T> T run(Supplier<T> body) {
+        running = true;
+        stale.set(false);
+        try {
+            return body.get();
+        } catch (RuntimeException e) {
+            stale.set(true);
+            throw e;
+        } finally {
+            running = false;
+        }
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
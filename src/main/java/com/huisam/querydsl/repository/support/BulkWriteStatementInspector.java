@@ -0,0 +1,62 @@
+package com.huisam.querydsl.repository.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Querydsl / JPQL bulk insert, update, delete 와 native 쓰기는 엔티티 이벤트가 발생하지 않으므로 실행되는 SQL 을 보고 감지한다
+ * SQL 모양으로는 id 조건 bulk update / delete 와 엔티티 flush 를 구분할 수 없으므로,
+ * {@link MemberWriteListener} 가 엔티티 쓰기 직전에 표시해 둔 것이 없는 member / team 쓰기는 모두 bulk 로 본다
+ */
+@Component
+public class BulkWriteStatementInspector implements StatementInspector {
+
+    private static final Pattern COMMENT = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
+    private static final Pattern WRITE = Pattern.compile("^(?:insert into|update|delete from)\\s+(member|team)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    /**
+     * 현재 스레드에서 엔티티 insert, update, delete 의 SQL 을 실행하려는 중인지
+     */
+    private static final ThreadLocal<Boolean> ENTITY_WRITE = new ThreadLocal<>();
+
+    private final ObjectProvider<MemberWriteHandler> handlers;
+
+    public BulkWriteStatementInspector(ObjectProvider<MemberWriteHandler> handlers) {
+        this.handlers = handlers;
+    }
+
+    /**
+     * Hibernate 의 pre insert / update / delete 이벤트에서 부른다, 바로 다음 member / team 쓰기는 그 엔티티의 SQL 이다
+     */
+    static void entityWriteStarted() {
+        ENTITY_WRITE.set(Boolean.TRUE);
+    }
+
+    /**
+     * post 이벤트에서 부른다, batch 로 같은 statement 를 다시 쓰면 SQL 을 보지 못하므로 여기서도 표시를 지운다
+     */
+    static void entityWriteFinished() {
+        ENTITY_WRITE.remove();
+    }
+
+    @Override
+    public String inspect(String sql) {
+        final Matcher matcher = WRITE.matcher(COMMENT.matcher(sql).replaceAll("").trim());
+        if (!matcher.lookingAt()) {
+            return sql;
+        }
+        if (ENTITY_WRITE.get() != null) {
+            // 엔티티 SQL 이 실패해서 post 이벤트가 오지 않더라도 다음 bulk 쿼리를 놓치지 않게 한번 보면 지운다
+            ENTITY_WRITE.remove();
+            return sql;
+        }
+        final String table = matcher.group(1).toLowerCase();
+        handlers.orderedStream().forEach(handler -> handler.onBulkWrite(table));
+        return sql;
+    }
+}
@@ -0,0 +1,65 @@
+package com.huisam.querydsl.repository.support;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 검색 결과 캐시와 count 캐시를 쓰기로 비울 때마다 올라가는 버전
+ * 읽기 시작할 때의 버전을 {@link Stamp} 로 받아 두었다가 다 읽은 뒤 캐시에 넣어도 되는지 묻는다
+ * 그 사이에 캐시가 비워졌으면 쓰기 전 결과일 수 있으므로 넣지 않는다
+ * replica 가 있으면 읽기 전용 트랜잭션은 primary 보다 최대 max-lag 늦은 데이터를 읽으므로,
+ * 마지막으로 비운 뒤 max-lag 이 지나기 전에 시작한 읽기도 캐시에 넣지 않는다, 결과는 그 요청에만 쓴다
+ */
+@Component
+public class CacheWriteVersion {
+
+    private final long settleNanos;
+    private final AtomicLong version = new AtomicLong();
+    private volatile long advancedAt;
+
+    /**
+     * @param replicaUrl    member.datasource.replicas 가 없으면 비어 있고, 그때는 읽기가 모두 primary 로 가므로 기다리지 않는다
+     * @param replicaMaxLag replica 가 primary 보다 늦을 수 있는 시간
+     */
+    public CacheWriteVersion(@Value("${member.datasource.replicas[0].url:}") String replicaUrl,
+                             @Value("${member.datasource.max-lag:1s}") Duration replicaMaxLag) {
+        this.settleNanos = StringUtils.hasText(replicaUrl) ? replicaMaxLag.toNanos() : 0;
+        this.advancedAt = System.nanoTime() - settleNanos;
+    }
+
+    public Stamp stamp() {
+        return new Stamp(version.get(), System.nanoTime());
+    }
+
+    /**
+     * 캐시를 비우기 전에 부른다
+     */
+    public void advance() {
+        advancedAt = System.nanoTime();
+        version.incrementAndGet();
+    }
+
+    /**
+     * stamp 를 받은 뒤 캐시가 비워지지 않았고, 마지막으로 비운 뒤 replica 가 따라잡을 시간이 지나서 읽기 시작했는지
+     */
+    public boolean isCacheable(Stamp stamp) {
+        return version.get() == stamp.version && stamp.startedAt - advancedAt >= settleNanos;
+    }
+
+    /**
+     * 읽기를 시작할 때의 버전과 시각
+     */
+    public static final class Stamp {
+        private final long version;
+        private final long startedAt;
+
+        private Stamp(long version, long startedAt) {
+            this.version = version;
+            this.startedAt = startedAt;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.huisam.querydsl.repository.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * 페이징 count 쿼리 결과를 짧은 시간 동안 캐시한다
+ * 같은 검색 조건으로 2..N 페이지를 넘길 때마다 전체 count 를 다시 하지 않기 위함
+ * 검색 결과 캐시처럼 {@link CacheWriteVersion} 으로 쓰기 전일 수 있는 count 는 넣지 않는다
+ */
+@Component
+public class CountCache {
+
+    private final boolean enabled;
+    private final Cache<Object, Long> cache;
+    private final CacheWriteVersion writeVersion;
+
+    public CountCache(@Value("${member.search.count.cache-ttl:10s}") Duration ttl,
+                      @Value("${member.search.count.cache-maximum-size:10000}") long maximumSize,
+                      CacheWriteVersion writeVersion) {
+        this.writeVersion = writeVersion;
+        // maximum-size 가 0 이면 캐시를 쓰지 않는다 (Caffeine 은 비동기로 비우므로 크기 0 으로는 적중을 막을 수 없다)
+        this.enabled = maximumSize > 0;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    public long get(Object key, LongSupplier counter) {
+        // 캐시가 꺼져 있거나 쓰기 트랜잭션 안이면 캐시를 거치지 않는다 (아직 커밋되지 않은 변경이 count 에 섞일 수 있다)
+        if (!enabled || TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return counter.getAsLong();
+        }
+        final Long cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        final CacheWriteVersion.Stamp stamp = writeVersion.stamp();
+        final long counted = counter.getAsLong();
+        if (writeVersion.isCacheable(stamp)) {
+            cache.put(key, counted);
+            if (!writeVersion.isCacheable(stamp)) {
+                cache.invalidate(key);
+            }
+        }
+        return counted;
+    }
+
+    public void invalidateIf(Predicate<Object> key) {
+        writeVersion.advance();
+        cache.asMap().keySet().removeIf(key);
+    }
+
+    public void invalidateAll() {
+        writeVersion.advance();
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,120 @@
+package com.huisam.querydsl.repository.support;
+
+import org.hibernate.Version;
+import org.hibernate.dialect.pagination.LimitHandler;
+import org.hibernate.dialect.pagination.LimitHelper;
+import org.hibernate.engine.spi.RowSelection;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.hql.spi.ParameterTranslations;
+import org.hibernate.hql.spi.PositionalParameterInformation;
+import org.hibernate.hql.spi.QueryTranslator;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.function.IntFunction;
+
+/**
+ * {@link JdbcProjection} 이 쓰는 Hibernate 내부 API 를 한 곳에 모은 어댑터
+ * JPQL 을 query plan cache 의 QueryTranslator 로 SQL 로 바꾸고 dialect 의 LimitHandler 로 페이징을 붙인다
+ * 이 API 들은 Hibernate 5 에만 있고 6 에서 바뀌므로 검증한 버전이 아니면 시작할 때 실패한다, 버전을 올리면 이 클래스부터 고쳐야 한다
+ */
+final class HibernateSqlTranslator {
+
+    static final String SUPPORTED_VERSION = "5.4.";
+
+    private final SessionFactoryImplementor sessionFactory;
+
+    HibernateSqlTranslator(SessionFactoryImplementor sessionFactory) {
+        this(sessionFactory, Version.getVersionString());
+    }
+
+    HibernateSqlTranslator(SessionFactoryImplementor sessionFactory, String version) {
+        if (version == null || !version.startsWith(SUPPORTED_VERSION)) {
+            throw new IllegalStateException("JdbcProjection 은 Hibernate " + SUPPORTED_VERSION + "x 에서만 검증되었습니다: " + version);
+        }
+        this.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * @param offset null 이거나 0 이면 건너뛰지 않는다
+     * @param limit  null 이면 페이징하지 않는다
+     */
+    @SuppressWarnings("deprecation")
+    Translation translate(String jpql, Long offset, Long limit) {
+        final QueryTranslator translator = sessionFactory.getQueryPlanCache()
+                .getHQLQueryPlan(jpql, false, Collections.emptyMap())
+                .getTranslators()[0];
+        final LimitHandler limitHandler = sessionFactory.getJdbcServices().getDialect().getLimitHandler();
+        final RowSelection selection = rowSelection(offset, limit);
+        return new Translation(translator, limitHandler, selection, LimitHelper.useLimit(limitHandler, selection));
+    }
+
+    private static RowSelection rowSelection(Long offset, Long limit) {
+        if (limit == null && offset != null && offset > 0) {
+            throw new IllegalArgumentException("limit 없이 offset 만 줄 수 없습니다: " + offset);
+        }
+        final RowSelection selection = new RowSelection();
+        if (offset != null && offset > 0) {
+            selection.setFirstRow(Math.toIntExact(offset));
+        }
+        if (limit != null) {
+            selection.setMaxRows(Math.toIntExact(limit));
+        }
+        return selection;
+    }
+
+    /**
+     * 번역된 SQL 과, 그 SQL 에 페이징과 JPQL 위치 파라미터를 바인딩하는 방법
+     */
+    static final class Translation {
+        private final QueryTranslator translator;
+        private final LimitHandler limitHandler;
+        private final RowSelection selection;
+        private final boolean useLimit;
+
+        private Translation(QueryTranslator translator, LimitHandler limitHandler, RowSelection selection, boolean useLimit) {
+            this.translator = translator;
+            this.limitHandler = limitHandler;
+            this.selection = selection;
+            this.useLimit = useLimit;
+        }
+
+        String getSql() {
+            return useLimit ? limitHandler.processSql(translator.getSQLString(), selection) : translator.getSQLString();
+        }
+
+        /**
+         * @param parameters JPQL 의 위치 파라미터 번호(?1 이면 1)로 바인드 값을 돌려준다
+         */
+        void bind(PreparedStatement statement, IntFunction<Object> parameters) throws SQLException {
+            int index = 1;
+            if (useLimit) {
+                index += limitHandler.bindLimitParametersAtStartOfQuery(selection, statement, index);
+            }
+            index += bind(translator.getParameterTranslations(), parameters, statement, index);
+            if (useLimit) {
+                limitHandler.bindLimitParametersAtEndOfQuery(selection, statement, index);
+                limitHandler.setMaxRows(selection, statement);
+            }
+        }
+
+        /**
+         * JPQL 의 위치 파라미터 하나가 SQL 에서는 여러 번 나올 수 있으므로 번역 결과의 위치마다 바인딩한다
+         *
+         * @return 바인딩한 SQL 파라미터 수
+         */
+        private static int bind(ParameterTranslations translations, IntFunction<Object> parameters,
+                                PreparedStatement statement, int start) throws SQLException {
+            int bound = 0;
+            for (PositionalParameterInformation parameter : translations.getPositionalParameterInformationMap().values()) {
+                final Object value = parameters.apply(parameter.getLabel());
+                for (int location : parameter.getSourceLocations()) {
+                    statement.setObject(start + location, value);
+                    bound++;
+                }
+            }
+            return bound;
+        }
+    }
+}
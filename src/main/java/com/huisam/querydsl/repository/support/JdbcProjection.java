@@ -0,0 +1,124 @@
+package com.huisam.querydsl.repository.support;
+
+import com.querydsl.core.QueryModifiers;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.jpa.JPQLQuery;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.JPQLTemplates;
+import com.querydsl.jpa.impl.JPAProvider;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * JPQL 을 Hibernate 가 번역한 SQL 로 JDBC 에서 직접 실행하고, ResultSet 의 컬럼을 바로 dto 나 컬럼 배열로 옮긴다
+ * Hibernate 의 projection 은 행마다 Object[] 를 만들고 primitive 를 boxing 하며, Querydsl 의 bean/fields/constructor 는 거기에 리플렉션까지 더한다
+ * 여기서는 {@link RowMapper} 가 getInt, getLong 같은 getter 로 읽으므로 그 비용이 없다
+ * SQL 은 {@link HibernateSqlTranslator} 가 Hibernate 의 query plan cache 와 dialect 의 LimitHandler 로 만드므로 JPA 로 실행한 것과 같은 SQL 이 나간다
+ * 엔티티를 만들지 않으므로 영속성 컨텍스트와 2차 캐시는 거치지 않는다, 트랜잭션 안에서 호출해야 한다
+ */
+@Component
+public class JdbcProjection {
+
+    private final EntityManager em;
+    private final JPQLTemplates templates;
+    private final MemberQueryGuard guard;
+    private final HibernateSqlTranslator translator;
+    private final StatementInspector inspector;
+
+    public JdbcProjection(EntityManager em, MemberQueryGuard guard) {
+        this.em = em;
+        this.templates = JPAProvider.getTemplates(em);
+        this.guard = guard;
+        final SessionFactoryImplementor sessionFactory = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+        this.translator = new HibernateSqlTranslator(sessionFactory);
+        this.inspector = sessionFactory.getSessionFactoryOptions().getStatementInspector();
+    }
+
+    /**
+     * Querydsl 쿼리를 실행한다, 상수는 바인드 파라미터로 넘기고 limit, offset 도 적용한다
+     * select 절의 순서대로 ResultSet 의 1 번 컬럼부터 읽으면 된다
+     */
+    public <T> List<T> fetch(JPQLQuery<?> query, RowMapper<T> rowMapper) {
+        final JPQLSerializer serializer = new JPQLSerializer(templates, em);
+        serializer.serialize(query.getMetadata(), false, null);
+        final Object[] parameters = new Object[serializer.getConstantToAllLabels().size() + 1];
+        for (Map.Entry<Object, String> label : serializer.getConstantToAllLabels().entrySet()) {
+            if (label.getKey() instanceof ParamExpression) {
+                throw new IllegalArgumentException("값이 없는 파라미터는 바인딩할 수 없습니다: " + label.getKey());
+            }
+            parameters[Integer.parseInt(label.getValue())] = label.getKey();
+        }
+        final QueryModifiers modifiers = query.getMetadata().getModifiers();
+        return list(serializer.toString(), i -> parameters[i], modifiers.getOffset(), modifiers.getLimit(), rowMapper);
+    }
+
+    /**
+     * @param parameters JPQL 의 위치 파라미터 번호(?1 이면 1)로 바인드 값을 돌려준다
+     */
+    public <T> List<T> list(String jpql, IntFunction<Object> parameters, Long offset, Long limit, RowMapper<T> rowMapper) {
+        return query(jpql, parameters, offset, limit, 0, resultSet -> {
+            final List<T> rows = new ArrayList<>();
+            while (resultSet.next()) {
+                rows.add(rowMapper.mapRow(resultSet, rows.size()));
+            }
+            return rows;
+        });
+    }
+
+    /**
+     * @param fetchSize 0 이면 드라이버 기본값
+     */
+    public <T> T query(String jpql, IntFunction<Object> parameters, Long offset, Long limit, int fetchSize,
+                       ResultSetExtractor<T> extractor) {
+        return execute(jpql, parameters, offset, limit, fetchSize, sql -> sql, extractor);
+    }
+
+    /**
+     * 결과 행을 최대 limit 건까지만 DB 안에서 센다, 행은 JVM 으로 가져오지 않는다
+     * select count(*) from (limit 을 붙인 SQL) 로 실행하므로 limit 건을 찾으면 더 읽지 않는다
+     */
+    public long countUpTo(String jpql, IntFunction<Object> parameters, long limit) {
+        return execute(jpql, parameters, null, limit, 0, sql -> "select count(*) from (" + sql + ") limited",
+                resultSet -> resultSet.next() ? resultSet.getLong(1) : 0L);
+    }
+
+    private <T> T execute(String jpql, IntFunction<Object> parameters, Long offset, Long limit, int fetchSize,
+                          UnaryOperator<String> wrapper, ResultSetExtractor<T> extractor) {
+        final Session session = em.unwrap(Session.class);
+        // JPA 쿼리처럼 아직 반영되지 않은 변경을 먼저 flush 한다, readOnly 트랜잭션(MANUAL)이면 건너뛴다
+        if (session.getHibernateFlushMode() != FlushMode.MANUAL && session.isDirty()) {
+            session.flush();
+        }
+        final HibernateSqlTranslator.Translation translation = translator.translate(jpql, offset, limit);
+        final String sql = wrapper.apply(translation.getSql());
+        // StatementCounter, 벌크 쿼리 감지 같은 inspector 가 JPA 쿼리와 똑같이 보도록 한다
+        final String inspected = inspector == null ? sql : inspector.inspect(sql);
+
+        return session.doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(inspected)) {
+                translation.bind(statement, parameters);
+                if (fetchSize > 0) {
+                    statement.setFetchSize(fetchSize);
+                }
+                guard.withTimeout(statement);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return extractor.extractData(resultSet);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,160 @@
+package com.huisam.querydsl.repository.support;
+
+import com.huisam.querydsl.dto.BulkOperationResult;
+import com.huisam.querydsl.dto.MemberSearchCondition;
+import com.huisam.querydsl.entity.Member;
+import com.huisam.querydsl.entity.Team;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static com.huisam.querydsl.entity.QMember.member;
+import static com.huisam.querydsl.entity.QTeam.team;
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * MemberSearchCondition 에 맞는 회원을 id 순서로 chunk-size 건씩 끊어서 bulk update / delete 한다
+ * 한 chunk 는 조건에 맞는 다음 id 들을 읽고, 같은 조건에 그 id 범위를 더한 update 한번으로 처리하므로 한 문장이 잡는 잠금이 chunk 범위로 제한된다
+ * 호출한 쪽에 트랜잭션이 있으면 거기에 참여하고, 없으면 chunk 마다 커밋한다
+ * bulk 쿼리는 영속성 컨텍스트를 거치지 않으므로 chunk 마다 바뀐 회원(과 회원 목록을 읽어둔 팀)을 영속성 컨텍스트에서 떼어내서 다음 조회 때 DB 에서 다시 읽게 한다
+ */
+@Component
+public class MemberBulkUpdater {
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public MemberBulkUpdater(EntityManager em, PlatformTransactionManager transactionManager,
+                             @Value("${member.bulk.chunk-size:1000}") int chunkSize) {
+        this.em = em;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param teamChanged 회원의 팀이 바뀌거나 회원이 지워져서 팀의 회원 목록도 달라지는지
+     */
+    public BulkOperationResult update(MemberSearchCondition condition, boolean teamChanged, Consumer<JPAUpdateClause> set) {
+        return inChunks(condition, teamChanged, (first, last) -> {
+            final JPAUpdateClause update = queryFactory.update(member);
+            set.accept(update);
+            return update.where(where(condition)).where(member.id.between(first, last)).execute();
+        });
+    }
+
+    public BulkOperationResult delete(MemberSearchCondition condition) {
+        return inChunks(condition, true, (first, last) -> queryFactory
+                .delete(member)
+                .where(where(condition))
+                .where(member.id.between(first, last))
+                .execute());
+    }
+
+    private BulkOperationResult inChunks(MemberSearchCondition condition, boolean teamChanged, ChunkStatement statement) {
+        final long start = System.nanoTime();
+        long rows = 0;
+        Long after = null;
+        while (true) {
+            final Long lowerBound = after;
+            final Chunk chunk = transactionTemplate.execute(status -> {
+                final List<Long> ids = queryFactory
+                        .select(member.id)
+                        .from(member)
+                        .where(where(condition))
+                        .where(lowerBound == null ? null : member.id.gt(lowerBound))
+                        .orderBy(member.id.asc())
+                        .limit(chunkSize)
+                        .fetch();
+                if (ids.isEmpty()) {
+                    return null;
+                }
+                // Hibernate 가 bulk 쿼리 전에 남은 변경을 flush 하므로 떼어낼 엔티티에 반영되지 않은 변경은 없다
+                final long affected = statement.execute(ids.get(0), ids.get(ids.size() - 1));
+                detach(ids, teamChanged);
+                return new Chunk(ids.get(ids.size() - 1), affected);
+            });
+            if (chunk == null) {
+                break;
+            }
+            rows += chunk.rows;
+            after = chunk.lastId;
+        }
+        return new BulkOperationResult(rows, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * 영속성 컨텍스트에 남은 변경 전 회원을 떼어낸다, 호출한 쪽이 들고 있는 엔티티는 준영속 상태가 된다
+     */
+    private void detach(List<Long> ids, boolean teamChanged) {
+        final SessionImplementor session = em.unwrap(SessionImplementor.class);
+        final PersistenceContext persistenceContext = session.getPersistenceContextInternal();
+        if (persistenceContext.getNumberOfManagedEntities() == 0) {
+            return;
+        }
+        final EntityPersister persister = session.getFactory().getMetamodel().entityPersister(Member.class);
+        for (Long id : ids) {
+            final Object entity = persistenceContext.getEntity(session.generateEntityKey(id, persister));
+            if (entity != null) {
+                em.detach(entity);
+            }
+        }
+        if (teamChanged) {
+            final List<Object> teams = new ArrayList<>();
+            for (Map.Entry<Object, EntityEntry> entry : persistenceContext.reentrantSafeEntityEntries()) {
+                if (entry.getKey() instanceof Team && Hibernate.isInitialized(((Team) entry.getKey()).getMembers())) {
+                    teams.add(entry.getKey());
+                }
+            }
+            teams.forEach(em::detach);
+        }
+    }
+
+    /**
+     * bulk update / delete 는 join 을 쓸 수 없으므로 팀 이름 조건은 서브쿼리로 바꾼다
+     */
+    private static Predicate[] where(MemberSearchCondition condition) {
+        return new Predicate[]{
+                hasText(condition.getUserName()) ? member.username.eq(condition.getUserName()) : null,
+                hasText(condition.getTeamName())
+                        ? member.team.id.in(JPAExpressions.select(team.id).from(team).where(team.name.eq(condition.getTeamName())))
+                        : null,
+                condition.getAgeGoe() != null ? member.age.goe(condition.getAgeGoe()) : null,
+                condition.getAgeLoe() != null ? member.age.loe(condition.getAgeLoe()) : null
+        };
+    }
+
+    @FunctionalInterface
+    private interface ChunkStatement {
+        long execute(long firstId, long lastId);
+    }
+
+    private static final class Chunk {
+        private final long lastId;
+        private final long rows;
+
+        private Chunk(long lastId, long rows) {
+            this.lastId = lastId;
+            this.rows = rows;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.huisam.querydsl.repository.support;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Member / Team 쓰기를 세션별로 모아서 트랜잭션 단위로 {@link MemberChangeSubscriber} 들에게 전달한다
+ * 검색 값(username, age, team)이 그대로인 update 는 모으지 않는다, 롤백되면 모은 것을 버린다
+ */
+@Component
+public class MemberChangeFeed implements MemberWriteHandler {
+
+    private final ObjectProvider<MemberChangeSubscriber> subscribers;
+    private final Map<SessionImplementor, MemberChanges> pending = new ConcurrentHashMap<>();
+
+    public MemberChangeFeed(ObjectProvider<MemberChangeSubscriber> subscribers) {
+        this.subscribers = subscribers;
+    }
+
+    @Override
+    public void onMemberWrite(MemberSnapshot before, MemberSnapshot after, EventSource session) {
+        if ((before != null && before.sameSearchValues(after)) || !subscribers.iterator().hasNext()) {
+            return;
+        }
+        pending.computeIfAbsent(session, this::register).putMember(before != null ? before.getId() : after.getId(), after);
+    }
+
+    @Override
+    public void onTeamWrite(Long teamId, EventSource session) {
+        if (!subscribers.iterator().hasNext()) {
+            return;
+        }
+        pending.computeIfAbsent(session, this::register).addTeam(teamId);
+    }
+
+    @Override
+    public void onBulkWrite(String table) {
+        subscribers.orderedStream().forEach(subscriber -> subscriber.onBulkWrite(table));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    subscribers.orderedStream().forEach(subscriber -> subscriber.onBulkWrite(table));
+                }
+            });
+        }
+    }
+
+    private MemberChanges register(SessionImplementor session) {
+        session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) this::beforeCommit);
+        session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, completed) -> {
+            final MemberChanges changes = pending.remove(completed);
+            if (success && changes != null) {
+                subscribers.orderedStream().forEach(subscriber -> subscriber.afterCommit(changes));
+            }
+        });
+        return new MemberChanges();
+    }
+
+    private void beforeCommit(SessionImplementor session) {
+        final MemberChanges changes = pending.get(session);
+        if (changes != null) {
+            subscribers.orderedStream().forEach(subscriber -> subscriber.beforeCommit(changes, session));
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.huisam.querydsl.repository.support;
+
+import org.hibernate.engine.spi.SessionImplementor;
+
+/**
+ * {@link MemberChangeFeed} 에서 트랜잭션 단위로 Member / Team 변경을 받는 빈
+ * 롤백된 트랜잭션의 변경은 커밋 직전까지만 전달되고 afterCommit 은 불리지 않는다
+ */
+public interface MemberChangeSubscriber {
+
+    /**
+     * 커밋 직전, flush 가 끝난 뒤에 같은 세션으로 부른다, 여기서 실행한 쿼리는 그 트랜잭션과 같이 커밋되거나 롤백된다
+     */
+    default void beforeCommit(MemberChanges changes, SessionImplementor session) {
+    }
+
+    /**
+     * 커밋된 뒤에 부른다
+     */
+    default void afterCommit(MemberChanges changes) {
+    }
+
+    /**
+     * 어떤 행이 바뀌었는지 모르는 bulk 쓰기, 실행되기 직전과 그 트랜잭션이 끝난 뒤에 한번 더 부른다
+     * 두번째 호출로 그 사이에 끝난 다시 만들기가 바뀌기 전 값을 읽었더라도 다시 만들게 할 수 있다
+     *
+     * @param table 변경되는 테이블 이름
+     */
+    default void onBulkWrite(String table) {
+    }
+}
@@ -0,0 +1,73 @@
+package com.huisam.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.engine.spi.SessionImplementor;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static com.huisam.querydsl.entity.QTeam.team;
+
+/**
+ * 한 트랜잭션에서 바뀐 회원의 마지막 상태와 팀, {@link MemberChangeFeed} 가 세션별로 모은다
+ * 세션은 한 스레드에서만 쓰므로 동기화하지 않는다
+ */
+public final class MemberChanges {
+
+    private final Map<Long, MemberSnapshot> members = new LinkedHashMap<>();
+    private final Set<Long> teamIds = new LinkedHashSet<>();
+    private Map<Long, String> teamNames;
+
+    void putMember(Long id, MemberSnapshot after) {
+        members.put(id, after);
+    }
+
+    void addTeam(Long teamId) {
+        teamIds.add(teamId);
+    }
+
+    /**
+     * 회원 id 별 마지막 상태, 지워졌으면 null
+     */
+    public Map<Long, MemberSnapshot> getMembers() {
+        return Collections.unmodifiableMap(members);
+    }
+
+    public Set<Long> getTeamIds() {
+        return Collections.unmodifiableSet(teamIds);
+    }
+
+    /**
+     * 팀 이벤트는 id 만 넘어오므로 커밋 전 flush 가 끝난 뒤에 바뀐 팀의 이름을 한번만 읽어둔다, 없는 팀은 지워진 팀이다
+     * {@link MemberChangeSubscriber#beforeCommit} 에서 부르면 커밋된 뒤에는 {@link #getTeamNames()} 로 읽을 수 있다
+     */
+    public void resolveTeamNames(SessionImplementor session) {
+        if (teamNames != null) {
+            return;
+        }
+        teamNames = new HashMap<>();
+        if (teamIds.isEmpty()) {
+            return;
+        }
+        new JPAQueryFactory(session)
+                .select(team.id, team.name)
+                .from(team)
+                .where(team.id.in(teamIds))
+                .fetch()
+                .forEach(row -> teamNames.put(row.get(team.id), row.get(team.name)));
+    }
+
+    /**
+     * {@link #resolveTeamNames(SessionImplementor)} 로 읽어둔 팀 이름, 지워진 팀은 들어 있지 않다
+     */
+    public Map<Long, String> getTeamNames() {
+        if (teamNames == null) {
+            throw new IllegalStateException("Team names are not resolved, call resolveTeamNames before commit");
+        }
+        return Collections.unmodifiableMap(teamNames);
+    }
+}
@@ -0,0 +1,204 @@
+package com.huisam.querydsl.repository.support;
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+import static com.huisam.querydsl.entity.QMember.member;
+import static com.huisam.querydsl.entity.QTeam.team;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+/**
+ * QuerydslPredicateExecutor 조회를 DB 대신 계산하는 Member / Team 메모리 복제본 ({@link MemberColumnStore})
+ * {@link MemberChangeFeed} 가 모은 변경을 커밋 직전에 바뀐 팀의 이름까지 읽어두고 커밋된 뒤에만 복제본에 반영하므로 롤백된 쓰기는 들어가지 않는다
+ * 처음과 bulk update / delete 뒤에는 어떤 행이 바뀌었는지 모르므로 백그라운드에서 다시 읽을 때까지 조회는 JPA 로 간다
+ * 다시 읽는 동안 커밋된 변경은 모아두었다가 새 복제본에 다시 반영한다
+ * 다른 노드의 쓰기와 Hibernate 를 거치지 않는 SQL 은 알 수 없으므로 refresh-interval 마다 낡았다고 보고 다시 읽는다,
+ * 그런 쓰기는 그 간격만큼 늦게 보일 수 있다. 쓰는 노드가 하나이고 모든 쓰기가 JPA 를 거치면 0 으로 끌 수 있다
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "member.replica.in-memory.enabled", havingValue = "true")
+public class MemberColumnReplica implements MemberChangeSubscriber, DisposableBean {
+
+    private final EntityManager em;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int fetchSize;
+    private final long refreshIntervalNanos;
+    private final BackgroundRebuild backgroundReload = new BackgroundRebuild("member-replica", this::reload);
+    private volatile long refreshAt = System.nanoTime();
+
+    private final Object monitor = new Object();
+    private volatile MemberColumnStore store = new MemberColumnStore();
+    // 다시 읽는 중에 커밋된 변경, 다시 읽는 중이 아니면 null
+    private List<MemberChanges> replay;
+
+    public MemberColumnReplica(EntityManager em, PlatformTransactionManager transactionManager,
+                               @Value("${member.search.stream.fetch-size:1000}") int fetchSize,
+                               @Value("${member.replica.in-memory.refresh-interval:1m}") Duration refreshInterval) {
+        this.em = em;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.fetchSize = fetchSize;
+        this.refreshIntervalNanos = refreshInterval.toNanos();
+    }
+
+    @Override
+    public void beforeCommit(MemberChanges changes, SessionImplementor session) {
+        changes.resolveTeamNames(session);
+    }
+
+    @Override
+    public void afterCommit(MemberChanges changes) {
+        synchronized (monitor) {
+            apply(changes, store);
+            if (replay != null) {
+                replay.add(changes);
+            }
+        }
+    }
+
+    @Override
+    public void onBulkWrite(String table) {
+        backgroundReload.markStale();
+    }
+
+    /**
+     * @return 메모리에서 계산할 수 없으면 empty, 호출한 쪽이 JPA 로 센다
+     */
+    public OptionalLong count(Predicate predicate) {
+        if (!isAvailable()) {
+            return OptionalLong.empty();
+        }
+        try {
+            return OptionalLong.of(store.count(predicate));
+        } catch (MemberPredicateEvaluator.UnsupportedPredicateException e) {
+            log.debug("Falling back to JPA: {}", e.getMessage());
+            return OptionalLong.empty();
+        }
+    }
+
+    /**
+     * @param sort id, age, username 만 정렬할 수 있다
+     * @return 조건에 맞는 회원 id 를 정렬 순서대로, 메모리에서 계산할 수 없으면 empty
+     */
+    public Optional<List<Long>> findIds(Predicate predicate, Sort sort) {
+        if (!isAvailable()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(store.findIds(predicate, sort));
+        } catch (MemberPredicateEvaluator.UnsupportedPredicateException e) {
+            log.debug("Falling back to JPA: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 복제본을 써도 되는지, 다시 읽어야 하면 백그라운드에서 다시 읽도록 예약하고 false 를 돌려준다
+     * 쓰기 트랜잭션 안에서는 아직 커밋되지 않은 변경을 봐야 하므로 쓰지 않는다
+     * 마지막으로 다시 읽은 지 refresh-interval 이 지났으면 이 노드가 모르는 쓰기가 있을 수 있으므로 낡았다고 표시한다
+     */
+    public boolean isAvailable() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return false;
+        }
+        if (refreshIntervalNanos > 0 && System.nanoTime() - refreshAt >= 0) {
+            backgroundReload.markStale();
+        }
+        return backgroundReload.isReady();
+    }
+
+    /**
+     * 팀과 회원을 읽기 전용 트랜잭션 하나에서 fetch-size 건씩 흘려 읽어서 새 복제본을 만들고 바꿔 끼운다
+     */
+    public synchronized void reload() {
+        // 읽기 시작한 뒤에 다른 노드가 커밋한 쓰기는 새 복제본에 없을 수 있으므로 시작한 때부터 센다
+        refreshAt = System.nanoTime() + refreshIntervalNanos;
+        synchronized (monitor) {
+            replay = new ArrayList<>();
+        }
+        try {
+            backgroundReload.run(() -> {
+                final MemberColumnStore loaded = readOnlyTransaction.execute(status -> load());
+                synchronized (monitor) {
+                    replay.forEach(changes -> apply(changes, loaded));
+                    store = loaded;
+                }
+                return loaded;
+            });
+        } finally {
+            synchronized (monitor) {
+                replay = null;
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        backgroundReload.shutdown();
+    }
+
+    private MemberColumnStore load() {
+        final MemberColumnStore loaded = new MemberColumnStore();
+        final JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+        queryFactory
+                .select(team.id, team.name)
+                .from(team)
+                .fetch()
+                .forEach(row -> loaded.putTeam(row.get(team.id), row.get(team.name)));
+        // team 을 join 하지 않고 member.team_id 컬럼만 읽는다
+        try (CloseableIterator<Tuple> rows = queryFactory
+                .select(member.id, member.username, member.age, member.team.id)
+                .from(member)
+                .setHint(HINT_FETCH_SIZE, fetchSize)
+                .setHint(HINT_READONLY, true)
+                .iterate()) {
+            while (rows.hasNext()) {
+                final Tuple row = rows.next();
+                final Integer age = row.get(member.age);
+                loaded.putMember(row.get(member.id), row.get(member.username), age == null ? 0 : age, row.get(member.team.id));
+            }
+        }
+        return loaded;
+    }
+
+    private static void apply(MemberChanges changes, MemberColumnStore target) {
+        final Map<Long, String> teamNames = changes.getTeamNames();
+        for (Long teamId : changes.getTeamIds()) {
+            if (teamNames.containsKey(teamId)) {
+                target.putTeam(teamId, teamNames.get(teamId));
+            } else {
+                target.removeTeam(teamId);
+            }
+        }
+        changes.getMembers().forEach((id, after) -> {
+            if (after == null) {
+                target.removeMember(id);
+            } else {
+                target.putMember(id, after.getUsername(), after.getAge(), after.getTeamId());
+            }
+        });
+    }
+}
@@ -0,0 +1,394 @@
+package com.huisam.querydsl.repository.support;
+
+import com.querydsl.core.types.Predicate;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntToLongFunction;
+import java.util.function.Supplier;
+
+/**
+ * 회원 / 팀을 행 객체 대신 컬럼 배열로 들고 있는 메모리 복제본
+ * id, team id 는 long[], age 는 int[] 에 두고, username 과 팀 이름은 사전으로 번호를 매겨 int 로만 들고 있는다
+ * id, age, username, team id 마다 값 순서로 정렬한 행 번호 배열을 인덱스로 두고 범위는 이진 탐색으로 찾는다
+ * 쓰기는 배열 끝에 붙이거나 그 자리를 고치고 지운 행은 표시만 해두었다가, 쓰기 뒤 처음 읽을 때 지운 행을 비우고 인덱스를 다시 정렬한다
+ * 읽기는 read lock, 쓰기와 다시 정렬하기는 write lock 으로 막는다
+ */
+final class MemberColumnStore {
+
+    static final long NO_TEAM = Long.MIN_VALUE;
+    private static final int NULL_CODE = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    enum Column {
+        ID, AGE, USERNAME, TEAM_ID, TEAM_NAME
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final MemberPredicateEvaluator evaluator = new MemberPredicateEvaluator(this);
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int[] ages = new int[INITIAL_CAPACITY];
+    private int[] usernames = new int[INITIAL_CAPACITY];
+    private long[] teamIds = new long[INITIAL_CAPACITY];
+    private int size;
+    private final BitSet deleted = new BitSet();
+    private final Map<Long, Integer> rowsById = new HashMap<>();
+    private final Dictionary usernameDictionary = new Dictionary();
+
+    // 팀은 수가 적으므로 team id -> 팀 이름 번호만 둔다
+    private final Map<Long, Integer> teamNames = new HashMap<>();
+    private final Dictionary teamNameDictionary = new Dictionary();
+
+    private int[] byId = new int[0];
+    private int[] byAge = new int[0];
+    private int[] byUsername = new int[0];
+    private int[] byTeamId = new int[0];
+    private boolean dirty;
+
+    /*
+     * 쓰기, 호출한 쪽이 커밋된 변경만 넘긴다
+     */
+
+    void putMember(long id, String username, int age, Long teamId) {
+        lock.writeLock().lock();
+        try {
+            Integer row = rowsById.get(id);
+            if (row == null) {
+                row = append(id);
+            }
+            ages[row] = age;
+            usernames[row] = usernameDictionary.encode(username);
+            teamIds[row] = teamId == null ? NO_TEAM : teamId;
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void removeMember(long id) {
+        lock.writeLock().lock();
+        try {
+            final Integer row = rowsById.remove(id);
+            if (row != null) {
+                deleted.set(row);
+                dirty = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void putTeam(long teamId, String name) {
+        lock.writeLock().lock();
+        try {
+            teamNames.put(teamId, teamNameDictionary.encode(name));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void removeTeam(long teamId) {
+        lock.writeLock().lock();
+        try {
+            teamNames.remove(teamId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * 읽기, 계산할 수 없는 Predicate 면 MemberPredicateEvaluator.UnsupportedPredicateException 을 던진다
+     */
+
+    long count(Predicate predicate) {
+        return read(() -> evaluator.evaluate(predicate).cardinality());
+    }
+
+    /**
+     * @param sort id, age, username 만 정렬할 수 있다, 같은 값끼리는 id 순서
+     */
+    List<Long> findIds(Predicate predicate, Sort sort) {
+        return read(() -> {
+            final BitSet matched = evaluator.evaluate(predicate);
+            final int[] rows = new int[matched.cardinality()];
+            for (int row = matched.nextSetBit(0), i = 0; row >= 0; row = matched.nextSetBit(row + 1)) {
+                rows[i++] = row;
+            }
+            mergeSort(rows, new int[rows.length], 0, rows.length, comparator(sort));
+            final List<Long> result = new ArrayList<>(rows.length);
+            for (int row : rows) {
+                result.add(ids[row]);
+            }
+            return result;
+        });
+    }
+
+    int size() {
+        return read(() -> size);
+    }
+
+    /*
+     * MemberPredicateEvaluator 가 read lock 안에서 쓰는 컬럼 연산, 지운 행이 비워진 뒤라 0 ~ size 가 모두 살아 있는 행이다
+     */
+
+    BitSet all() {
+        final BitSet rows = new BitSet(size);
+        rows.set(0, size);
+        return rows;
+    }
+
+    /**
+     * from 이상 to 이하인 행
+     */
+    BitSet between(Column column, long from, long to) {
+        switch (column) {
+            case ID:
+                return range(byId, row -> ids[row], from, to);
+            case AGE:
+                return range(byAge, row -> ages[row], from, to);
+            case TEAM_ID:
+                return range(byTeamId, row -> teamIds[row], Math.max(from, NO_TEAM + 1), to);
+            default:
+                throw new IllegalArgumentException(column + " is not a number column");
+        }
+    }
+
+    BitSet equalTo(Column column, String value) {
+        switch (column) {
+            case USERNAME: {
+                final int code = usernameDictionary.codeOf(value);
+                return code == NULL_CODE ? new BitSet() : range(byUsername, row -> usernames[row], code, code);
+            }
+            case TEAM_NAME:
+                return matching(column, value::equals);
+            default:
+                throw new IllegalArgumentException(column + " is not a string column");
+        }
+    }
+
+    /**
+     * 값이 null 인 행은 SQL 처럼 어떤 조건에도 맞지 않는다
+     */
+    BitSet matching(Column column, java.util.function.Predicate<String> condition) {
+        switch (column) {
+            case USERNAME: {
+                // 사전에서 맞는 번호를 먼저 고르고 컬럼은 번호로만 비교한다
+                final BitSet codes = usernameDictionary.matching(condition);
+                final BitSet rows = new BitSet(size);
+                for (int row = 0; row < size; row++) {
+                    if (usernames[row] != NULL_CODE && codes.get(usernames[row])) {
+                        rows.set(row);
+                    }
+                }
+                return rows;
+            }
+            case TEAM_NAME: {
+                final BitSet codes = teamNameDictionary.matching(condition);
+                final BitSet rows = new BitSet(size);
+                teamNames.forEach((teamId, code) -> {
+                    if (code != NULL_CODE && codes.get(code)) {
+                        rows.or(range(byTeamId, row -> teamIds[row], teamId, teamId));
+                    }
+                });
+                return rows;
+            }
+            default:
+                throw new IllegalArgumentException(column + " is not a string column");
+        }
+    }
+
+    private <T> T read(Supplier<T> reader) {
+        lock.readLock().lock();
+        if (dirty) {
+            lock.readLock().unlock();
+            lock.writeLock().lock();
+            try {
+                if (dirty) {
+                    reindex();
+                }
+                // write lock 을 놓기 전에 read lock 을 잡아서 그 사이에 다른 쓰기가 끼어들지 않게 한다
+                lock.readLock().lock();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        try {
+            return reader.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int append(long id) {
+        if (size == ids.length) {
+            final int capacity = size + (size >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            ages = Arrays.copyOf(ages, capacity);
+            usernames = Arrays.copyOf(usernames, capacity);
+            teamIds = Arrays.copyOf(teamIds, capacity);
+        }
+        ids[size] = id;
+        rowsById.put(id, size);
+        return size++;
+    }
+
+    private void reindex() {
+        if (!deleted.isEmpty()) {
+            int live = 0;
+            for (int row = 0; row < size; row++) {
+                if (deleted.get(row)) {
+                    continue;
+                }
+                ids[live] = ids[row];
+                ages[live] = ages[row];
+                usernames[live] = usernames[row];
+                teamIds[live] = teamIds[row];
+                rowsById.put(ids[live], live);
+                live++;
+            }
+            size = live;
+            deleted.clear();
+        }
+        byId = sortedRows(row -> ids[row]);
+        byAge = sortedRows(row -> ages[row]);
+        byUsername = sortedRows(row -> usernames[row]);
+        byTeamId = sortedRows(row -> teamIds[row]);
+        dirty = false;
+    }
+
+    private int[] sortedRows(IntToLongFunction key) {
+        final int[] rows = new int[size];
+        for (int row = 0; row < size; row++) {
+            rows[row] = row;
+        }
+        mergeSort(rows, new int[size], 0, size, (left, right) -> Long.compare(key.applyAsLong(left), key.applyAsLong(right)));
+        return rows;
+    }
+
+    private static BitSet range(int[] index, IntToLongFunction key, long from, long to) {
+        final BitSet rows = new BitSet();
+        for (int i = lowerBound(index, key, from); i < index.length && key.applyAsLong(index[i]) <= to; i++) {
+            rows.set(index[i]);
+        }
+        return rows;
+    }
+
+    private static int lowerBound(int[] index, IntToLongFunction key, long value) {
+        int low = 0;
+        int high = index.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (key.applyAsLong(index[mid]) < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private IntBinaryOperator comparator(Sort sort) {
+        IntBinaryOperator comparator = (left, right) -> 0;
+        for (Sort.Order order : sort) {
+            final IntBinaryOperator property = property(order.getProperty());
+            final IntBinaryOperator previous = comparator;
+            final int direction = order.isAscending() ? 1 : -1;
+            comparator = (left, right) -> {
+                final int compared = previous.applyAsInt(left, right);
+                return compared != 0 ? compared : direction * property.applyAsInt(left, right);
+            };
+        }
+        final IntBinaryOperator sorted = comparator;
+        return (left, right) -> {
+            final int compared = sorted.applyAsInt(left, right);
+            return compared != 0 ? compared : Long.compare(ids[left], ids[right]);
+        };
+    }
+
+    private IntBinaryOperator property(String property) {
+        switch (property) {
+            case "id":
+                return (left, right) -> Long.compare(ids[left], ids[right]);
+            case "age":
+                return (left, right) -> Integer.compare(ages[left], ages[right]);
+            case "username":
+                // null 은 H2 처럼 가장 작은 값으로 본다
+                return (left, right) -> usernameDictionary.compare(usernames[left], usernames[right]);
+            default:
+                throw new MemberPredicateEvaluator.UnsupportedPredicateException("sort by " + property);
+        }
+    }
+
+    /**
+     * 박싱 없이 행 번호를 정렬하는 안정 정렬, 같은 값이면 원래 행 순서를 지킨다
+     */
+    private static void mergeSort(int[] rows, int[] buffer, int from, int to, IntBinaryOperator comparator) {
+        if (to - from < 2) {
+            return;
+        }
+        final int mid = (from + to) >>> 1;
+        mergeSort(rows, buffer, from, mid, comparator);
+        mergeSort(rows, buffer, mid, to, comparator);
+        if (comparator.applyAsInt(rows[mid - 1], rows[mid]) <= 0) {
+            return;
+        }
+        System.arraycopy(rows, from, buffer, from, to - from);
+        for (int i = from, left = from, right = mid; i < to; i++) {
+            if (right >= to || (left < mid && comparator.applyAsInt(buffer[left], buffer[right]) <= 0)) {
+                rows[i] = buffer[left++];
+            } else {
+                rows[i] = buffer[right++];
+            }
+        }
+    }
+
+    /**
+     * 문자열 -> 번호 사전, 번호는 처음 나온 순서로 매기고 지워진 회원의 문자열도 다시 만들 때까지 남겨둔다
+     */
+    private static final class Dictionary {
+        private final List<String> values = new ArrayList<>();
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        private int encode(String value) {
+            if (value == null) {
+                return NULL_CODE;
+            }
+            return codes.computeIfAbsent(value, key -> {
+                values.add(key);
+                return values.size() - 1;
+            });
+        }
+
+        private int codeOf(String value) {
+            return codes.getOrDefault(value, NULL_CODE);
+        }
+
+        private BitSet matching(java.util.function.Predicate<String> condition) {
+            final BitSet matched = new BitSet(values.size());
+            for (int code = 0; code < values.size(); code++) {
+                if (condition.test(values.get(code))) {
+                    matched.set(code);
+                }
+            }
+            return matched;
+        }
+
+        private int compare(int left, int right) {
+            if (left == right) {
+                return 0;
+            }
+            if (left == NULL_CODE || right == NULL_CODE) {
+                return left == NULL_CODE ? -1 : 1;
+            }
+            return values.get(left).compareTo(values.get(right));
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.huisam.querydsl.repository.support;
+
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Operator;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Path;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static com.huisam.querydsl.entity.QMember.member;
+
+/**
+ * QMember 에 대한 Querydsl Predicate 트리를 {@link MemberColumnStore} 의 컬럼 위에서 계산해서 맞는 행을 BitSet 으로 돌려준다
+ * and / or 와 id, age, team.id 의 eq / goe / loe / gt / lt / between / in, username, team.name 의 eq / in / like / startsWith / endsWith / contains 만 계산하고,
+ * 그 밖의 연산자나 경로, 별칭이 다른 QMember, Param 처럼 값을 모르는 인자가 있으면 UnsupportedPredicateException 을 던져서 JPA 로 읽게 한다
+ */
+final class MemberPredicateEvaluator {
+
+    private static final Map<Path<?>, MemberColumnStore.Column> COLUMNS = Map.of(
+            member.id, MemberColumnStore.Column.ID,
+            member.age, MemberColumnStore.Column.AGE,
+            member.username, MemberColumnStore.Column.USERNAME,
+            member.team.id, MemberColumnStore.Column.TEAM_ID,
+            member.team.name, MemberColumnStore.Column.TEAM_NAME
+    );
+
+    private final MemberColumnStore store;
+
+    MemberPredicateEvaluator(MemberColumnStore store) {
+        this.store = store;
+    }
+
+    /**
+     * @param predicate null 이면 모든 행
+     */
+    BitSet evaluate(Expression<?> predicate) {
+        if (predicate == null) {
+            return store.all();
+        }
+        if (predicate instanceof BooleanBuilder) {
+            return evaluate(((BooleanBuilder) predicate).getValue());
+        }
+        if (!(predicate instanceof Operation)) {
+            throw new UnsupportedPredicateException(predicate.toString());
+        }
+        final Operation<?> operation = (Operation<?>) predicate;
+        final Operator operator = operation.getOperator();
+        if (operator == Ops.AND || operator == Ops.OR) {
+            final BitSet rows = evaluate(operation.getArg(0));
+            final BitSet other = evaluate(operation.getArg(1));
+            if (operator == Ops.AND) {
+                rows.and(other);
+            } else {
+                rows.or(other);
+            }
+            return rows;
+        }
+
+        final MemberColumnStore.Column column = column(operation);
+        final boolean number = column != MemberColumnStore.Column.USERNAME && column != MemberColumnStore.Column.TEAM_NAME;
+        if (operator == Ops.IN) {
+            final BitSet rows = new BitSet();
+            for (Object value : (Collection<?>) constant(operation, 1, Collection.class)) {
+                rows.or(number ? store.between(column, number(value), number(value)) : store.equalTo(column, string(value)));
+            }
+            return rows;
+        }
+        if (number) {
+            return compare(operation, column);
+        }
+        return matchString(operation, column);
+    }
+
+    private BitSet compare(Operation<?> operation, MemberColumnStore.Column column) {
+        final Operator operator = operation.getOperator();
+        if (operator == Ops.BETWEEN) {
+            return store.between(column, number(constant(operation, 1, Number.class)), number(constant(operation, 2, Number.class)));
+        }
+        final long value = number(constant(operation, 1, Number.class));
+        if (operator == Ops.EQ) {
+            return store.between(column, value, value);
+        }
+        if (operator == Ops.GOE) {
+            return store.between(column, value, Long.MAX_VALUE);
+        }
+        if (operator == Ops.GT) {
+            return value == Long.MAX_VALUE ? new BitSet() : store.between(column, value + 1, Long.MAX_VALUE);
+        }
+        if (operator == Ops.LOE) {
+            return store.between(column, Long.MIN_VALUE, value);
+        }
+        if (operator == Ops.LT) {
+            return value == Long.MIN_VALUE ? new BitSet() : store.between(column, Long.MIN_VALUE, value - 1);
+        }
+        throw new UnsupportedPredicateException(operation.toString());
+    }
+
+    private BitSet matchString(Operation<?> operation, MemberColumnStore.Column column) {
+        final Operator operator = operation.getOperator();
+        final String value = constant(operation, 1, String.class);
+        if (operator == Ops.EQ) {
+            return store.equalTo(column, value);
+        }
+        if (operator == Ops.LIKE) {
+            // H2 는 역슬래시를 기본 escape 문자로 쓰므로 그런 패턴은 DB 에 맡긴다
+            if (value.indexOf('\\') >= 0) {
+                throw new UnsupportedPredicateException(operation.toString());
+            }
+            final Pattern pattern = likePattern(value);
+            return store.matching(column, candidate -> pattern.matcher(candidate).matches());
+        }
+        if (operator == Ops.STARTS_WITH) {
+            return store.matching(column, candidate -> candidate.startsWith(value));
+        }
+        if (operator == Ops.ENDS_WITH) {
+            return store.matching(column, candidate -> candidate.endsWith(value));
+        }
+        if (operator == Ops.STRING_CONTAINS) {
+            return store.matching(column, candidate -> candidate.contains(value));
+        }
+        throw new UnsupportedPredicateException(operation.toString());
+    }
+
+    private static MemberColumnStore.Column column(Operation<?> operation) {
+        final MemberColumnStore.Column column = COLUMNS.get(operation.getArg(0));
+        if (column == null) {
+            throw new UnsupportedPredicateException(operation.toString());
+        }
+        return column;
+    }
+
+    private static <T> T constant(Operation<?> operation, int index, Class<T> type) {
+        if (operation.getArgs().size() <= index || !(operation.getArg(index) instanceof Constant)) {
+            throw new UnsupportedPredicateException(operation.toString());
+        }
+        final Object value = ((Constant<?>) operation.getArg(index)).getConstant();
+        if (!type.isInstance(value)) {
+            throw new UnsupportedPredicateException(operation.toString());
+        }
+        return type.cast(value);
+    }
+
+    private static long number(Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        throw new UnsupportedPredicateException(String.valueOf(value));
+    }
+
+    private static String string(Object value) {
+        if (value instanceof String) {
+            return (String) value;
+        }
+        throw new UnsupportedPredicateException(String.valueOf(value));
+    }
+
+    /**
+     * SQL like 패턴의 % 와 _ 만 정규식으로 바꾸고 나머지는 글자 그대로 비교한다
+     */
+    private static Pattern likePattern(String like) {
+        final StringBuilder regex = new StringBuilder();
+        final StringBuilder literal = new StringBuilder();
+        for (char c : like.toCharArray()) {
+            if (c == '%' || c == '_') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '%' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    /**
+     * 메모리 복제본으로 계산할 수 없는 조건이나 정렬, 호출한 쪽은 JPA 로 다시 읽는다
+     */
+    static final class UnsupportedPredicateException extends RuntimeException {
+        UnsupportedPredicateException(String expression) {
+            super("Cannot evaluate in memory: " + expression);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.huisam.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.AbstractJPAQuery;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.Query;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 검색 한번이 커넥션을 오래 잡거나 테이블 전체를 메모리에 올리지 않도록 막는다
+ * 페이지 크기가 max-page-size 를 넘으면 실행하기 전에 거절하고, 페이징 없는 검색은 max-rows + 1 건까지만 읽어서 넘으면 거절한다
+ * 쿼리마다 JDBC query timeout 을 걸어서 시간을 넘기면 드라이버가 statement 를 취소하므로 DB 에서도 실행이 멈춘다
+ * JDBC timeout 은 초 단위라서 query-timeout 은 초로 올림한다, 0 이면 timeout 을 걸지 않는다
+ * JPA 쿼리에는 밀리초 단위인 표준 힌트 javax.persistence.query.timeout 으로 올림한 초를 넘긴다
+ */
+@Component
+public class MemberQueryGuard {
+
+    private static final String QUERY_TIMEOUT = "javax.persistence.query.timeout";
+
+    private final int maxPageSize;
+    private final int maxRows;
+    private final int queryTimeoutSeconds;
+
+    /**
+     * @param maxPageSize 0 이면 페이지 크기를 검사하지 않는다
+     * @param maxRows     0 이면 페이징 없는 검색의 행 수를 제한하지 않는다
+     */
+    public MemberQueryGuard(@Value("${member.search.guard.max-page-size:1000}") int maxPageSize,
+                            @Value("${member.search.guard.max-rows:10000}") int maxRows,
+                            @Value("${member.search.guard.query-timeout:5s}") Duration queryTimeout) {
+        this.maxPageSize = maxPageSize;
+        this.maxRows = maxRows;
+        this.queryTimeoutSeconds = (int) Math.min(Integer.MAX_VALUE, (queryTimeout.toMillis() + 999) / 1000);
+    }
+
+    public void checkPageSize(Pageable pageable) {
+        if (maxPageSize > 0 && pageable.isPaged() && pageable.getPageSize() > maxPageSize) {
+            throw new SearchLimitExceededException("페이지 크기가 최대값을 넘었습니다: " + pageable.getPageSize() + " > " + maxPageSize);
+        }
+    }
+
+    public <Q extends Query> Q withTimeout(Q query) {
+        if (queryTimeoutSeconds > 0) {
+            query.setHint(QUERY_TIMEOUT, queryTimeoutMillis());
+        }
+        return query;
+    }
+
+    public <Q extends AbstractJPAQuery<?, Q>> Q withTimeout(Q query) {
+        return queryTimeoutSeconds > 0 ? query.setHint(QUERY_TIMEOUT, queryTimeoutMillis()) : query;
+    }
+
+    public void withTimeout(Statement statement) throws SQLException {
+        if (queryTimeoutSeconds > 0) {
+            statement.setQueryTimeout(queryTimeoutSeconds);
+        }
+    }
+
+    private int queryTimeoutMillis() {
+        return (int) Math.min(Integer.MAX_VALUE, queryTimeoutSeconds * 1000L);
+    }
+
+    /**
+     * 페이징 없는 검색에 행 수 상한을 건다, 넘었는지는 읽은 결과를 {@link #checkRows(List)} 로 확인한다
+     */
+    public <Q extends Query> Q withRowLimit(Q query) {
+        if (maxRows > 0) {
+            query.setMaxResults(maxRows + 1);
+        }
+        return query;
+    }
+
+    /**
+     * 페이징 없는 검색의 limit, 제한하지 않으면 null
+     */
+    public Long rowLimit() {
+        return maxRows > 0 ? (long) maxRows + 1 : null;
+    }
+
+    public <T> List<T> checkRows(List<T> rows) {
+        if (maxRows > 0 && rows.size() > maxRows) {
+            throw new SearchLimitExceededException("검색 결과가 " + maxRows + " 건을 넘습니다, 조건을 더 주거나 페이징해서 조회하세요");
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,48 @@
+package com.huisam.querydsl.repository.support;
+
+import com.huisam.querydsl.dto.MemberDto;
+import com.huisam.querydsl.dto.MemberTeamColumns;
+import com.huisam.querydsl.dto.MemberTeamDto;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * {@link JdbcProjection} 으로 읽은 행을 dto 로 옮기는 RowMapper
+ * 컬럼은 이름이 아니라 select 절의 순서로 읽는다
+ */
+public final class MemberRowMappers {
+
+    /**
+     * select member.username, member.age
+     */
+    public static final RowMapper<MemberDto> MEMBER_DTO = (resultSet, rowNum) -> new MemberDto(resultSet.getString(1), resultSet.getInt(2));
+
+    /**
+     * select member.id, member.username, member.age, team.id, team.name
+     */
+    public static final RowMapper<MemberTeamDto> MEMBER_TEAM_DTO = (resultSet, rowNum) -> {
+        final long memberId = resultSet.getLong(1);
+        final String username = resultSet.getString(2);
+        final int age = resultSet.getInt(3);
+        final long teamId = resultSet.getLong(4);
+        final Long team = resultSet.wasNull() ? null : teamId;
+        return new MemberTeamDto(memberId, username, age, team, resultSet.getString(5));
+    };
+
+    private MemberRowMappers() {
+    }
+
+    /**
+     * MEMBER_TEAM_DTO 와 같은 컬럼을 dto 를 만들지 않고 columns 에 붙인다
+     */
+    public static void addTo(MemberTeamColumns columns, ResultSet resultSet) throws SQLException {
+        final long memberId = resultSet.getLong(1);
+        final String username = resultSet.getString(2);
+        final int age = resultSet.getInt(3);
+        final long teamId = resultSet.getLong(4);
+        final boolean hasTeam = !resultSet.wasNull();
+        columns.add(memberId, username, age, hasTeam, teamId, resultSet.getString(5));
+    }
+}
@@ -0,0 +1,104 @@
+package com.huisam.querydsl.repository.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.huisam.querydsl.dto.MemberSearchCondition;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 검색 결과 캐시
+ * (검색 종류, 정규화된 검색 조건, pageable) 을 키로 크기와 TTL 로 제한된 만큼만 보관하고,
+ * 쓰기가 일어나면 {@link SearchCacheInvalidator} 가 영향을 받는 조건의 결과만 골라서 비운다
+ * 읽는 동안 비워졌거나 replica 가 아직 쓰기를 따라잡지 못했을 수 있는 결과는 {@link CacheWriteVersion} 으로 걸러서 넣지 않는다
+ */
+@Component
+public class MemberSearchCache {
+
+    private final boolean enabled;
+    private final Cache<Key, Object> cache;
+    private final CacheWriteVersion writeVersion;
+
+    public MemberSearchCache(@Value("${member.search.cache.ttl:30s}") Duration ttl,
+                             @Value("${member.search.cache.maximum-size:1000}") long maximumSize,
+                             ObjectProvider<MeterRegistry> meterRegistry, CacheWriteVersion writeVersion) {
+        this.writeVersion = writeVersion;
+        // maximum-size 가 0 이면 캐시를 쓰지 않는다 (Caffeine 은 비동기로 비우므로 크기 0 으로는 적중을 막을 수 없다)
+        this.enabled = maximumSize > 0;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        // cache.gets{result=hit|miss}, cache.evictions 등으로 노출된다
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, cache, "memberSearch"));
+    }
+
+    public <T> T get(String kind, MemberSearchCondition condition, Pageable pageable, Supplier<T> loader) {
+        return get(kind, condition, pageable, loader, loaded -> true);
+    }
+
+    /**
+     * @param cacheable 읽은 결과를 캐시에 넣을지, 넣지 않은 결과는 다른 요청에도 보이지 않는다
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String kind, MemberSearchCondition condition, Pageable pageable, Supplier<T> loader,
+                     Predicate<? super T> cacheable) {
+        // 캐시가 꺼져 있거나 쓰기 트랜잭션 안이면 캐시를 거치지 않는다 (아직 커밋되지 않은 변경이 결과에 섞일 수 있다)
+        if (!enabled || TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return loader.get();
+        }
+        final Key key = new Key(kind, condition.normalize(), pageable);
+        final Object cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+        final CacheWriteVersion.Stamp stamp = writeVersion.stamp();
+        final T loaded = loader.get();
+        if (loaded != null && cacheable.test(loaded) && writeVersion.isCacheable(stamp)) {
+            cache.put(key, loaded);
+            // 넣는 사이에 비워졌으면 그 무효화가 이 결과를 보지 못했을 수 있으므로 직접 지운다
+            if (!writeVersion.isCacheable(stamp)) {
+                cache.invalidate(key);
+            }
+        }
+        return loaded;
+    }
+
+    public void invalidateIf(Predicate<MemberSearchCondition> condition) {
+        writeVersion.advance();
+        cache.asMap().keySet().removeIf(key -> condition.test(key.getCondition()));
+    }
+
+    public void invalidateAll() {
+        writeVersion.advance();
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    @Getter
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class Key {
+        private final String kind;
+        private final MemberSearchCondition condition;
+        private final Pageable pageable;
+    }
+}
@@ -0,0 +1,109 @@
+package com.huisam.querydsl.repository.support;
+
+import com.huisam.querydsl.dto.MemberSearchCondition;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 같은 (검색 종류, 정규화된 검색 조건, pageable) 의 검색이 동시에 들어오면 먼저 온 호출만 실행하고 나머지는 그 결과를 같이 받는다
+ * 실행 중인 검색은 ConcurrentHashMap 에 future 로만 등록하므로 키끼리는 서로 기다리지 않고, 실행이 끝나면 바로 지워서 결과를 보관하지 않는다
+ * 결과를 잠시 보관하는 건 {@link MemberSearchCache} 의 몫이고, 이건 그 바깥에서 캐시가 꺼져 있거나 비어 있을 때 몰린 호출을 한번으로 줄인다
+ * 읽기 전용 트랜잭션은 실행하는 호출만 연다, 기다리는 호출은 커넥션을 잡지 않으므로 몰린 호출이 커넥션 풀을 채우지 않는다
+ * 호출 수는 member.search.coalesce{kind, result=executed|coalesced} 로, 실행 중인 키 수는 member.search.coalesce.in-flight 로 노출된다
+ */
+@Component
+public class MemberSearchCoalescer {
+
+    private final boolean enabled;
+    private final TransactionTemplate readOnlyTransaction;
+    private final MeterRegistry meterRegistry;
+    private final Map<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    public MemberSearchCoalescer(@Value("${member.search.coalesce.enabled:true}") boolean enabled,
+                                 PlatformTransactionManager transactionManager, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.enabled = enabled;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.meterRegistry = meterRegistry.getIfAvailable();
+        if (this.meterRegistry != null) {
+            Gauge.builder("member.search.coalesce.in-flight", inFlight, Map::size).register(this.meterRegistry);
+        }
+    }
+
+    /**
+     * 여러 호출이 같은 결과 객체를 받으므로 결과를 고쳐 쓰면 안 된다, 실행한 호출이 던진 예외는 기다린 호출들도 같이 받는다
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String kind, MemberSearchCondition condition, Pageable pageable, Supplier<T> loader) {
+        // 쓰기 트랜잭션 안의 검색은 아직 커밋되지 않은 변경을 보므로 다른 호출과 결과를 나누지 않는다
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return loader.get();
+        }
+        if (!enabled) {
+            return readOnlyTransaction.execute(status -> loader.get());
+        }
+        final Key key = new Key(kind, condition.normalize(), pageable);
+        final CompletableFuture<Object> mine = new CompletableFuture<>();
+        final CompletableFuture<Object> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            record(kind, "coalesced");
+            return (T) await(running);
+        }
+
+        record(kind, "executed");
+        try {
+            final T result = readOnlyTransaction.execute(status -> loader.get());
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void record(String kind, String result) {
+        if (meterRegistry != null) {
+            meterRegistry.counter("member.search.coalesce", "kind", kind, "result", result).increment();
+        }
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class Key {
+        private final String kind;
+        private final MemberSearchCondition condition;
+        private final Pageable pageable;
+    }
+}
@@ -0,0 +1,363 @@
+package com.huisam.querydsl.repository.support;
+
+import com.huisam.querydsl.dto.MemberSearchCondition;
+import com.huisam.querydsl.dto.MemberTeamColumns;
+import com.huisam.querydsl.dto.MemberTeamDto;
+import com.huisam.querydsl.dto.QMemberTeamDto;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.jpa.JPQLQuery;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.JPQLTemplates;
+import com.querydsl.jpa.impl.JPAProvider;
+import com.querydsl.jpa.impl.JPAQuery;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import static com.huisam.querydsl.entity.QMember.member;
+import static com.huisam.querydsl.entity.QMemberTeam.memberTeam;
+import static com.huisam.querydsl.entity.QTeam.team;
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * MemberSearchCondition 검색 쿼리 컴파일러
+ * 네 가지 선택 조건의 조합은 16 가지 모양뿐이므로 모양마다 Querydsl 식을 한번만 만들어 JPQL 로 직렬화해 두고,
+ * 요청마다 파라미터만 바인딩한다. 같은 JPQL 문자열을 재사용하므로 Hibernate 의 query plan cache 도 매번 적중한다
+ * {@link MemberTeamReadModel} 이 켜져 있고 쓸 수 있으면 team 을 join 하지 않고 member_team 에서 읽는다, 읽기 모델 여부도 모양의 일부로 컴파일해 둔다
+ * 모든 쿼리에 {@link MemberQueryGuard} 의 timeout 을 걸고, 페이징 없이 List 로 모으는 검색은 행 수 상한까지만 읽는다
+ */
+@Component
+public class MemberSearchQueryCompiler {
+
+    private static final Param<String> USER_NAME = new Param<>(String.class, "userName");
+    private static final Param<String> TEAM_NAME = new Param<>(String.class, "teamName");
+    private static final Param<Integer> AGE_GOE = new Param<>(Integer.class, "ageGoe");
+    private static final Param<Integer> AGE_LOE = new Param<>(Integer.class, "ageLoe");
+
+    private static final int HAS_USER_NAME = 1;
+    private static final int HAS_TEAM_NAME = 1 << 1;
+    private static final int HAS_AGE_GOE = 1 << 2;
+    private static final int HAS_AGE_LOE = 1 << 3;
+    private static final int FROM_READ_MODEL = 1 << 4;
+    private static final int SHAPES = 1 << 5;
+
+    private static final QMemberTeamDto PROJECTION = new QMemberTeamDto(
+            member.id.as("memberId"), member.username, member.age, team.id.as("teamId"), team.name.as("teamName")
+    );
+    private static final QMemberTeamDto READ_MODEL_PROJECTION = new QMemberTeamDto(
+            memberTeam.memberId, memberTeam.username, memberTeam.age, memberTeam.teamId, memberTeam.teamName
+    );
+
+    private final EntityManager em;
+    private final JPQLTemplates templates;
+    private final JdbcProjection jdbcProjection;
+    private final MemberTeamReadModel readModel;
+    private final MemberQueryGuard guard;
+    private final AtomicReferenceArray<CompiledQuery> contentQueries = new AtomicReferenceArray<>(SHAPES);
+    private final AtomicReferenceArray<CompiledQuery> countQueries = new AtomicReferenceArray<>(SHAPES);
+    private final AtomicReferenceArray<CompiledQuery> idQueries = new AtomicReferenceArray<>(SHAPES);
+
+    /**
+     * @param readModel member.search.read-model.enabled 일 때만 있다
+     */
+    public MemberSearchQueryCompiler(EntityManager em, JdbcProjection jdbcProjection,
+                                     ObjectProvider<MemberTeamReadModel> readModel, MemberQueryGuard guard) {
+        this.em = em;
+        this.templates = JPAProvider.getTemplates(em);
+        this.jdbcProjection = jdbcProjection;
+        this.readModel = readModel.getIfAvailable();
+        this.guard = guard;
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return toDtos(guard.checkRows(guard.withRowLimit(createSearchQuery(condition)).getResultList()));
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition, Pageable pageable) {
+        final TypedQuery<Object[]> query = createSearchQuery(condition);
+        if (pageable.isUnpaged()) {
+            return toDtos(guard.checkRows(guard.withRowLimit(query).getResultList()));
+        }
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize());
+        return toDtos(query.getResultList());
+    }
+
+    /**
+     * count 없이 페이지 크기보다 한 건 더 읽어서 다음 페이지가 있는지 판단한다
+     */
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable) {
+        final TypedQuery<Object[]> query = createSearchQuery(condition);
+        if (pageable.isUnpaged()) {
+            return Slices.of(toDtos(guard.checkRows(guard.withRowLimit(query).getResultList())), pageable);
+        }
+        query.setFirstResult((int) pageable.getOffset());
+        query.setMaxResults(Slices.limitOf(pageable));
+        return Slices.of(toDtos(query.getResultList()), pageable);
+    }
+
+    /**
+     * search 와 같은 SQL 을 {@link JdbcProjection} 으로 실행해서 ResultSet 에서 바로 dto 를 만든다
+     */
+    public List<MemberTeamDto> searchJdbc(MemberSearchCondition condition, Pageable pageable) {
+        final CompiledQuery compiled = compiled(contentQueries, shapeOf(condition), this::compileContent);
+        if (pageable.isUnpaged()) {
+            return guard.checkRows(jdbcProjection.list(compiled.jpql, compiled.parameters(condition), null, guard.rowLimit(),
+                    MemberRowMappers.MEMBER_TEAM_DTO));
+        }
+        return jdbcProjection.list(compiled.jpql, compiled.parameters(condition), offsetOf(pageable), limitOf(pageable),
+                MemberRowMappers.MEMBER_TEAM_DTO);
+    }
+
+    /**
+     * search 결과를 dto 없이 columns 에 채우고, 가득 찰 때마다 (마지막은 덜 차도) consumer 에 넘긴 뒤 비운다
+     * 모아두지 않고 흘려보내므로 페이징하지 않아도 행 수 상한을 걸지 않는다
+     *
+     * @return 읽은 행 수
+     */
+    public long searchColumns(MemberSearchCondition condition, Pageable pageable, int fetchSize,
+                              MemberTeamColumns columns, Consumer<MemberTeamColumns> consumer) {
+        final CompiledQuery compiled = compiled(contentQueries, shapeOf(condition), this::compileContent);
+        return jdbcProjection.query(compiled.jpql, compiled.parameters(condition), offsetOf(pageable), limitOf(pageable), fetchSize,
+                resultSet -> {
+                    long rows = 0;
+                    columns.clear();
+                    while (resultSet.next()) {
+                        MemberRowMappers.addTo(columns, resultSet);
+                        rows++;
+                        if (columns.isFull()) {
+                            consumer.accept(columns);
+                            columns.clear();
+                        }
+                    }
+                    if (columns.size() > 0) {
+                        consumer.accept(columns);
+                        columns.clear();
+                    }
+                    return rows;
+                });
+    }
+
+    public long count(MemberSearchCondition condition) {
+        final int shape = shapeOf(condition);
+        return bind(compiled(countQueries, shape, this::compileCount), condition, Long.class).getSingleResult();
+    }
+
+    /**
+     * 최대 limit 건까지만 세는 count, id 를 가져오지 않고 DB 에서 limit 을 건 서브쿼리를 센다
+     */
+    public long countUpTo(MemberSearchCondition condition, int limit) {
+        final CompiledQuery compiled = compiled(idQueries, shapeOf(condition), this::compileIds);
+        return jdbcProjection.countUpTo(compiled.jpql, compiled.parameters(condition), limit);
+    }
+
+    /**
+     * 파라미터까지 바인딩된 검색 쿼리, 결과 행은 {@link #toDto(Object[])} 로 dto 로 바꾼다
+     * fetch size 같은 힌트를 더 주거나 stream 으로 읽을 때 쓴다
+     */
+    public TypedQuery<Object[]> createSearchQuery(MemberSearchCondition condition) {
+        final int shape = shapeOf(condition);
+        return bind(compiled(contentQueries, shape, this::compileContent), condition, Object[].class);
+    }
+
+    public MemberTeamDto toDto(Object[] row) {
+        return PROJECTION.newInstance(row);
+    }
+
+    /**
+     * 정렬이나 seek 조건처럼 모양을 미리 정할 수 없는 쿼리에서 쓰는 where 조건
+     */
+    public static Predicate[] where(MemberSearchCondition condition) {
+        return new Predicate[]{
+                hasText(condition.getUserName()) ? member.username.eq(condition.getUserName()) : null,
+                hasText(condition.getTeamName()) ? team.name.eq(condition.getTeamName()) : null,
+                condition.getAgeGoe() != null ? member.age.goe(condition.getAgeGoe()) : null,
+                condition.getAgeLoe() != null ? member.age.loe(condition.getAgeLoe()) : null
+        };
+    }
+
+    /**
+     * teamName 조건이 있으면 team 이 없는 회원은 어차피 걸러지므로 inner join 으로 바꾼다
+     * left join 은 member 부터 읽어야 하지만 inner join 이면 DB 가 team.name 인덱스로 팀을 먼저 찾고 team_id 인덱스로 회원을 찾을 수 있다
+     */
+    public static <T> JPQLQuery<T> joinTeam(JPQLQuery<T> query, MemberSearchCondition condition) {
+        return hasText(condition.getTeamName()) ? query.join(member.team, team) : query.leftJoin(member.team, team);
+    }
+
+    private static Long offsetOf(Pageable pageable) {
+        return pageable.isPaged() ? pageable.getOffset() : null;
+    }
+
+    private static Long limitOf(Pageable pageable) {
+        return pageable.isPaged() ? (long) pageable.getPageSize() : null;
+    }
+
+    private List<MemberTeamDto> toDtos(List<Object[]> rows) {
+        final List<MemberTeamDto> result = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            result.add(PROJECTION.newInstance(row));
+        }
+        return result;
+    }
+
+    private CompiledQuery compiled(AtomicReferenceArray<CompiledQuery> queries, int shape, Function<Integer, CompiledQuery> compiler) {
+        CompiledQuery compiled = queries.get(shape);
+        if (compiled == null) {
+            // 같은 모양을 동시에 컴파일해도 결과가 같으므로 먼저 들어간 것을 그대로 쓴다
+            queries.compareAndSet(shape, null, compiler.apply(shape));
+            compiled = queries.get(shape);
+        }
+        return compiled;
+    }
+
+    private CompiledQuery compileContent(int shape) {
+        if ((shape & FROM_READ_MODEL) != 0) {
+            return compile(new JPAQuery<Void>().select(READ_MODEL_PROJECTION).from(memberTeam).where(parameterized(shape)));
+        }
+        final JPAQuery<MemberTeamDto> query = new JPAQuery<Void>().select(PROJECTION).from(member);
+        return compile(((shape & HAS_TEAM_NAME) != 0 ? query.join(member.team, team) : query.leftJoin(member.team, team))
+                .where(parameterized(shape)));
+    }
+
+    /**
+     * count 에는 team 컬럼이 필요 없으므로 teamName 조건이 있을 때만 team 을 join 한다
+     */
+    private CompiledQuery compileCount(int shape) {
+        if ((shape & FROM_READ_MODEL) != 0) {
+            return compile(new JPAQuery<Void>().select(memberTeam.count()).from(memberTeam).where(parameterized(shape)));
+        }
+        return compile(joinTeamIfFiltered(new JPAQuery<Void>().select(member.count()).from(member), shape)
+                .where(parameterized(shape)));
+    }
+
+    private CompiledQuery compileIds(int shape) {
+        if ((shape & FROM_READ_MODEL) != 0) {
+            return compile(new JPAQuery<Void>().select(memberTeam.memberId).from(memberTeam).where(parameterized(shape)));
+        }
+        return compile(joinTeamIfFiltered(new JPAQuery<Void>().select(member.id).from(member), shape)
+                .where(parameterized(shape)));
+    }
+
+    private <T> JPAQuery<T> joinTeamIfFiltered(JPAQuery<T> query, int shape) {
+        return (shape & HAS_TEAM_NAME) != 0 ? query.join(member.team, team) : query;
+    }
+
+    private CompiledQuery compile(JPAQuery<?> query) {
+        final JPQLSerializer serializer = new JPQLSerializer(templates, em);
+        serializer.serialize(query.getMetadata(), false, null);
+        return new CompiledQuery(serializer.toString(), serializer.getConstantToAllLabels());
+    }
+
+    private <R> TypedQuery<R> bind(CompiledQuery compiled, MemberSearchCondition condition, Class<R> resultType) {
+        final TypedQuery<R> query = guard.withTimeout(em.createQuery(compiled.jpql, resultType));
+        for (int i = 0; i < compiled.positions.length; i++) {
+            query.setParameter(compiled.positions[i], compiled.values.get(i).apply(condition));
+        }
+        return query;
+    }
+
+    private static Predicate[] parameterized(int shape) {
+        if ((shape & FROM_READ_MODEL) != 0) {
+            return new Predicate[]{
+                    (shape & HAS_USER_NAME) != 0 ? memberTeam.username.eq(USER_NAME) : null,
+                    (shape & HAS_TEAM_NAME) != 0 ? memberTeam.teamName.eq(TEAM_NAME) : null,
+                    (shape & HAS_AGE_GOE) != 0 ? memberTeam.age.goe(AGE_GOE) : null,
+                    (shape & HAS_AGE_LOE) != 0 ? memberTeam.age.loe(AGE_LOE) : null
+            };
+        }
+        return new Predicate[]{
+                (shape & HAS_USER_NAME) != 0 ? member.username.eq(USER_NAME) : null,
+                (shape & HAS_TEAM_NAME) != 0 ? team.name.eq(TEAM_NAME) : null,
+                (shape & HAS_AGE_GOE) != 0 ? member.age.goe(AGE_GOE) : null,
+                (shape & HAS_AGE_LOE) != 0 ? member.age.loe(AGE_LOE) : null
+        };
+    }
+
+    private int shapeOf(MemberSearchCondition condition) {
+        int shape = useReadModel() ? FROM_READ_MODEL : 0;
+        if (hasText(condition.getUserName())) {
+            shape |= HAS_USER_NAME;
+        }
+        if (hasText(condition.getTeamName())) {
+            shape |= HAS_TEAM_NAME;
+        }
+        if (condition.getAgeGoe() != null) {
+            shape |= HAS_AGE_GOE;
+        }
+        if (condition.getAgeLoe() != null) {
+            shape |= HAS_AGE_LOE;
+        }
+        return shape;
+    }
+
+    /**
+     * 쓰기 트랜잭션 안에서는 아직 커밋 전이라 읽기 모델에 반영되지 않은 변경이 있을 수 있으므로 join 으로 읽는다
+     */
+    private boolean useReadModel() {
+        if (readModel == null) {
+            return false;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return false;
+        }
+        return readModel.isAvailable();
+    }
+
+    private static Function<MemberSearchCondition, Object> valueOf(Expression<?> param) {
+        if (param == USER_NAME) {
+            return MemberSearchCondition::getUserName;
+        } else if (param == TEAM_NAME) {
+            return MemberSearchCondition::getTeamName;
+        } else if (param == AGE_GOE) {
+            return MemberSearchCondition::getAgeGoe;
+        } else if (param == AGE_LOE) {
+            return MemberSearchCondition::getAgeLoe;
+        }
+        throw new IllegalStateException("알 수 없는 검색 파라미터입니다: " + param);
+    }
+
+    /**
+     * 한 모양의 JPQL 과, 각 위치 파라미터에 검색 조건의 어떤 값을 넣을지
+     */
+    private static final class CompiledQuery {
+        private final String jpql;
+        private final int[] positions;
+        private final List<Function<MemberSearchCondition, Object>> values = new ArrayList<>();
+
+        private CompiledQuery(String jpql, Map<Object, String> labels) {
+            this.jpql = jpql;
+            this.positions = new int[labels.size()];
+            int i = 0;
+            for (Map.Entry<Object, String> label : labels.entrySet()) {
+                positions[i++] = Integer.parseInt(label.getValue());
+                values.add(valueOf((Expression<?>) label.getKey()));
+            }
+        }
+
+        /**
+         * 위치 파라미터 번호로 바인드 값을 찾는 함수, {@link JdbcProjection} 에 넘긴다
+         */
+        private IntFunction<Object> parameters(MemberSearchCondition condition) {
+            final Object[] byPosition = new Object[positions.length + 1];
+            for (int i = 0; i < positions.length; i++) {
+                byPosition[positions[i]] = values.get(i).apply(condition);
+            }
+            return position -> byPosition[position];
+        }
+    }
+}
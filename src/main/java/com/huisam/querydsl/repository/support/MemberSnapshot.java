@@ -0,0 +1,75 @@
+package com.huisam.querydsl.repository.support;
+
+import com.huisam.querydsl.dto.MemberSearchCondition;
+import com.huisam.querydsl.entity.Team;
+import lombok.Getter;
+import lombok.ToString;
+import org.hibernate.Hibernate;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * 쓰기 이벤트가 일어난 시점의 Member 상태
+ * 영속성 컨텍스트 밖에서도 안전하게 쓸 수 있도록 엔티티 대신 값만 복사해 둔다
+ */
+@Getter
+@ToString
+public final class MemberSnapshot {
+
+    private final Long id;
+    private final String username;
+    private final int age;
+    private final Long teamId;
+    private final String teamName;
+    // team 이 초기화되지 않은 프록시라서 이름을 모르는 경우
+    private final boolean teamNameUnknown;
+
+    private MemberSnapshot(Long id, String username, int age, Long teamId, String teamName, boolean teamNameUnknown) {
+        this.id = id;
+        this.username = username;
+        this.age = age;
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.teamNameUnknown = teamNameUnknown;
+    }
+
+    static MemberSnapshot of(Serializable id, Object[] state, EntityPersister persister) {
+        final String username = (String) state[persister.getEntityMetamodel().getPropertyIndex("username")];
+        final Integer age = (Integer) state[persister.getEntityMetamodel().getPropertyIndex("age")];
+        final Team team = (Team) state[persister.getEntityMetamodel().getPropertyIndex("team")];
+
+        if (team == null) {
+            return new MemberSnapshot((Long) id, username, age == null ? 0 : age, null, null, false);
+        }
+        // 이벤트 처리 중에 프록시를 초기화하면 flush 도중 select 가 나가므로 이름은 이미 로딩된 경우에만 읽는다
+        final boolean initialized = Hibernate.isInitialized(team);
+        return new MemberSnapshot((Long) id, username, age == null ? 0 : age, team.getId(),
+                initialized ? team.getName() : null, !initialized);
+    }
+
+    /**
+     * 이 상태의 Member 가 검색 조건의 결과에 포함되는지 여부
+     * team 이름을 모르면 teamName 조건은 포함되는 것으로 본다 (캐시를 더 많이 비우는 쪽이 안전하다)
+     */
+    public boolean matches(MemberSearchCondition condition) {
+        if (condition.getUserName() != null && !condition.getUserName().equals(username)) {
+            return false;
+        }
+        if (condition.getTeamName() != null && !teamNameUnknown && !condition.getTeamName().equals(teamName)) {
+            return false;
+        }
+        if (condition.getAgeGoe() != null && age < condition.getAgeGoe()) {
+            return false;
+        }
+        return condition.getAgeLoe() == null || age <= condition.getAgeLoe();
+    }
+
+    public boolean sameSearchValues(MemberSnapshot other) {
+        return other != null
+                && Objects.equals(username, other.username)
+                && age == other.age
+                && Objects.equals(teamId, other.teamId);
+    }
+}
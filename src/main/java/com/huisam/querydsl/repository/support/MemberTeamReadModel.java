@@ -0,0 +1,218 @@
+package com.huisam.querydsl.repository.support;
+
+import com.huisam.querydsl.entity.MemberTeamState;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.SimpleExpression;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.huisam.querydsl.entity.QMember.member;
+import static com.huisam.querydsl.entity.QMemberTeam.memberTeam;
+import static com.huisam.querydsl.entity.QMemberTeamState.memberTeamState;
+import static com.huisam.querydsl.entity.QTeam.team;
+
+/**
+ * member_team 읽기 모델을 Member / Team 쓰기와 같은 트랜잭션에서 고친다
+ * {@link MemberChangeFeed} 가 모은 변경으로 커밋 직전에 회원 행은 지우고 member left join team 으로 다시 넣고,
+ * 팀 이름이 바뀌었으면 그 팀의 행들만 고친다. 롤백되면 같이 롤백된다
+ * bulk update / delete, StatelessSession insert 뒤에는 어떤 행이 바뀌었는지 모르므로 다시 만들 때까지 검색이 join 으로 돌아간다
+ * 그 트랜잭션 안에서 {@link MemberTeamState} 의 writeVersion 을 올려 두므로 다른 노드도 version-check-interval 안에 알고,
+ * 재시작해도 두 버전이 같으면 다시 만들지 않는다
+ */
+@Component
+@ConditionalOnProperty(name = "member.search.read-model.enabled", havingValue = "true")
+public class MemberTeamReadModel implements MemberChangeSubscriber, DisposableBean {
+
+    private static final int IN_LIST_SIZE = 1000;
+    private static final String INSERT_FROM_MEMBERS = "insert into MemberTeam (memberId, username, age, teamId, teamName) "
+            + "select m.id, m.username, m.age, t.id, t.name from Member m left join m.team t";
+
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final long versionCheckIntervalNanos;
+    private final BackgroundRebuild backgroundRebuild = new BackgroundRebuild("member-team", this::rebuildIfStale);
+    private final AtomicLong nextVersionCheck = new AtomicLong(System.nanoTime());
+
+    public MemberTeamReadModel(EntityManager em, PlatformTransactionManager transactionManager,
+                               @Value("${member.search.read-model.version-check-interval:1s}") Duration versionCheckInterval) {
+        this.em = em;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.versionCheckIntervalNanos = versionCheckInterval.toNanos();
+    }
+
+    /**
+     * 커밋 전 flush 가 끝난 뒤에 불리므로 insert ... select 는 이 트랜잭션의 변경까지 읽는다
+     */
+    @Override
+    public void beforeCommit(MemberChanges changes, SessionImplementor session) {
+        final JPAQueryFactory queryFactory = new JPAQueryFactory(session);
+        final List<Long> memberIds = new ArrayList<>(changes.getMembers().keySet());
+        for (int from = 0; from < memberIds.size(); from += IN_LIST_SIZE) {
+            final List<Long> ids = memberIds.subList(from, Math.min(from + IN_LIST_SIZE, memberIds.size()));
+            queryFactory.delete(memberTeam).where(memberTeam.memberId.in(ids)).execute();
+            session.createQuery(INSERT_FROM_MEMBERS + " where m.id in :ids")
+                    .setParameter("ids", ids)
+                    .executeUpdate();
+        }
+        if (!changes.getTeamIds().isEmpty()) {
+            queryFactory
+                    .update(memberTeam)
+                    .set(memberTeam.teamName, JPAExpressions.select(team.name).from(team).where(team.id.eq(memberTeam.teamId)))
+                    .where(memberTeam.teamId.in(changes.getTeamIds()))
+                    .execute();
+        }
+    }
+
+    @Override
+    public void onBulkWrite(String table) {
+        backgroundRebuild.markStale();
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            transactionTemplate.executeWithoutResult(status -> markStale());
+            return;
+        }
+        // 트랜잭션마다 한번, 커밋 직전에 같은 트랜잭션에서 올린다. 롤백되면 표시도 같이 롤백된다
+        // 트랜잭션이 끝나는 중에 다시 불리면 동기화가 꺼져 있고, 커밋 직전에 이미 올렸다
+        if (!TransactionSynchronizationManager.isSynchronizationActive() || TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                markStale();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(MemberTeamReadModel.this);
+            }
+        });
+    }
+
+    /**
+     * 읽기 모델로 검색해도 되는지, 다시 만들어야 하면 백그라운드에서 다시 만들도록 예약하고 false 를 돌려준다
+     * 다른 노드의 bulk 쓰기는 version-check-interval 마다 한번 {@link MemberTeamState} 행을 읽어서 안다
+     */
+    public boolean isAvailable() {
+        final long now = System.nanoTime();
+        final long next = nextVersionCheck.get();
+        if (now - next >= 0 && nextVersionCheck.compareAndSet(next, now + versionCheckIntervalNanos) && !isBuilt()) {
+            backgroundRebuild.markStale();
+        }
+        return backgroundRebuild.isReady();
+    }
+
+    /**
+     * 읽기 모델이 마지막 bulk 쓰기 전에 만들어졌으면 다시 만든다, 다른 노드가 이미 다시 만들었으면 그대로 쓴다
+     */
+    public synchronized void rebuildIfStale() {
+        backgroundRebuild.run(() -> rebuild(false));
+    }
+
+    /**
+     * 읽기 모델을 지우고 member left join team 으로 한 트랜잭션에서 다시 채운다, 커밋될 때까지는 검색에 쓰지 않는다
+     */
+    public synchronized void rebuild() {
+        backgroundRebuild.run(() -> rebuild(true));
+    }
+
+    /**
+     * 읽기 모델 행이 없거나 값이 다른 회원, 회원이 없는데 남아 있는 읽기 모델 행의 id 를 최대 limit 개 돌려준다
+     * 비어 있으면 Member / Team 과 일치한다
+     */
+    public List<Long> findInconsistentMemberIds(int limit) {
+        final JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+        final Set<Long> ids = new TreeSet<>(queryFactory
+                .select(member.id)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(JPAExpressions
+                        .selectOne()
+                        .from(memberTeam)
+                        .where(memberTeam.memberId.eq(member.id),
+                                memberTeam.age.eq(member.age),
+                                same(memberTeam.username, member.username),
+                                same(memberTeam.teamId, team.id),
+                                same(memberTeam.teamName, team.name))
+                        .notExists())
+                .orderBy(member.id.asc())
+                .limit(limit)
+                .fetch());
+        ids.addAll(queryFactory
+                .select(memberTeam.memberId)
+                .from(memberTeam)
+                .where(JPAExpressions.selectOne().from(member).where(member.id.eq(memberTeam.memberId)).notExists())
+                .orderBy(memberTeam.memberId.asc())
+                .limit(limit)
+                .fetch());
+        return new ArrayList<>(ids).subList(0, Math.min(limit, ids.size()));
+    }
+
+    @Override
+    public void destroy() {
+        backgroundRebuild.shutdown();
+    }
+
+    /**
+     * {@link MemberTeamState} 행을 잠그고 다시 만드므로 그동안 커밋하려는 bulk 쓰기는 표시를 올리기 전에 기다린다
+     * 그래서 다 만든 뒤 적는 builtVersion 은 만들 때 본 회원 / 팀 테이블과 맞고, 여러 노드가 동시에 다시 만들지 않는다
+     */
+    private boolean rebuild(boolean force) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            MemberTeamState state = em.find(MemberTeamState.class, MemberTeamState.ID, LockModeType.PESSIMISTIC_WRITE);
+            if (state == null) {
+                state = new MemberTeamState(MemberTeamState.ID);
+                em.persist(state);
+            } else if (!force && state.isBuilt()) {
+                return false;
+            }
+            new JPAQueryFactory(em).delete(memberTeam).execute();
+            em.createQuery(INSERT_FROM_MEMBERS).executeUpdate();
+            state.built();
+            return true;
+        }));
+    }
+
+    /**
+     * 호출한 쪽의 영속성 컨텍스트에 있는 행이 아니라 DB 에 커밋된 값을 보도록 엔티티 대신 조건으로 읽는다
+     */
+    private boolean isBuilt() {
+        return new JPAQueryFactory(em)
+                .selectOne()
+                .from(memberTeamState)
+                .where(memberTeamState.builtVersion.eq(memberTeamState.writeVersion))
+                .fetchFirst() != null;
+    }
+
+    private void markStale() {
+        new JPAQueryFactory(em)
+                .update(memberTeamState)
+                .set(memberTeamState.writeVersion, memberTeamState.writeVersion.add(1L))
+                .where(memberTeamState.id.eq(MemberTeamState.ID))
+                .execute();
+    }
+
+    private static <T> BooleanExpression same(SimpleExpression<T> left, SimpleExpression<T> right) {
+        return left.eq(right).or(left.isNull().and(right.isNull()));
+    }
+}
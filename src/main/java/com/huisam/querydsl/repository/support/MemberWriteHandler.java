@@ -0,0 +1,28 @@
+package com.huisam.querydsl.repository.support;
+
+import org.hibernate.event.spi.EventSource;
+
+/**
+ * Member / Team 쓰기를 전달받는 빈
+ * {@link MemberWriteListener} 가 Hibernate 이벤트를, {@link BulkWriteStatementInspector} 가 bulk 쿼리를 전달한다
+ */
+public interface MemberWriteHandler {
+
+    /**
+     * @param before 변경 전 상태, insert 면 null
+     * @param after  변경 후 상태, delete 면 null
+     */
+    default void onMemberWrite(MemberSnapshot before, MemberSnapshot after, EventSource session) {
+    }
+
+    default void onTeamWrite(Long teamId, EventSource session) {
+    }
+
+    /**
+     * 엔티티 이벤트를 거치지 않는 bulk insert / update / delete 가 실행되기 직전에
+     *
+     * @param table 변경되는 테이블 이름
+     */
+    default void onBulkWrite(String table) {
+    }
+}
@@ -0,0 +1,136 @@
+package com.huisam.querydsl.repository.support;
+
+import com.huisam.querydsl.entity.Member;
+import com.huisam.querydsl.entity.Team;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.event.spi.PreDeleteEvent;
+import org.hibernate.event.spi.PreDeleteEventListener;
+import org.hibernate.event.spi.PreInsertEvent;
+import org.hibernate.event.spi.PreInsertEventListener;
+import org.hibernate.event.spi.PreUpdateEvent;
+import org.hibernate.event.spi.PreUpdateEventListener;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Member / Team 엔티티의 insert, update, delete 를 Hibernate 이벤트로 받아서 {@link MemberWriteHandler} 들에게 전달한다
+ * JpaRepository.save, EntityManager.persist, 변경 감지 어느 경로로 쓰든 같은 이벤트가 발생한다
+ * pre 이벤트에서는 이어서 나가는 SQL 이 엔티티 쓰기라고 {@link BulkWriteStatementInspector} 에 알린다
+ */
+@Component
+public class MemberWriteListener implements PreInsertEventListener, PreUpdateEventListener, PreDeleteEventListener,
+        PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final ObjectProvider<MemberWriteHandler> handlers;
+
+    public MemberWriteListener(EntityManagerFactory entityManagerFactory, ObjectProvider<MemberWriteHandler> handlers) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.handlers = handlers;
+    }
+
+    @PostConstruct
+    public void register() {
+        final EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImpl.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.PRE_INSERT, this);
+        registry.appendListeners(EventType.PRE_UPDATE, this);
+        registry.appendListeners(EventType.PRE_DELETE, this);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public boolean onPreInsert(PreInsertEvent event) {
+        return started(event.getEntity());
+    }
+
+    @Override
+    public boolean onPreUpdate(PreUpdateEvent event) {
+        return started(event.getEntity());
+    }
+
+    @Override
+    public boolean onPreDelete(PreDeleteEvent event) {
+        return started(event.getEntity());
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        BulkWriteStatementInspector.entityWriteFinished();
+        if (event.getEntity() instanceof Member) {
+            final MemberSnapshot after = MemberSnapshot.of(event.getId(), event.getState(), event.getPersister());
+            handlers.orderedStream().forEach(handler -> handler.onMemberWrite(null, after, event.getSession()));
+        } else if (event.getEntity() instanceof Team) {
+            handlers.orderedStream().forEach(handler -> handler.onTeamWrite((Long) event.getId(), event.getSession()));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        BulkWriteStatementInspector.entityWriteFinished();
+        if (event.getEntity() instanceof Member) {
+            // detached 엔티티를 merge 없이 update 한 경우처럼 이전 상태가 없으면 알 수 없는 값으로 본다
+            final MemberSnapshot before = event.getOldState() == null
+                    ? null
+                    : MemberSnapshot.of(event.getId(), event.getOldState(), event.getPersister());
+            final MemberSnapshot after = MemberSnapshot.of(event.getId(), event.getState(), event.getPersister());
+            if (before == null) {
+                handlers.orderedStream().forEach(handler -> handler.onBulkWrite("member"));
+            } else {
+                handlers.orderedStream().forEach(handler -> handler.onMemberWrite(before, after, event.getSession()));
+            }
+        } else if (event.getEntity() instanceof Team) {
+            handlers.orderedStream().forEach(handler -> handler.onTeamWrite((Long) event.getId(), event.getSession()));
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        BulkWriteStatementInspector.entityWriteFinished();
+        if (event.getEntity() instanceof Member) {
+            final MemberSnapshot before = MemberSnapshot.of(event.getId(), event.getDeletedState(), event.getPersister());
+            handlers.orderedStream().forEach(handler -> handler.onMemberWrite(before, null, event.getSession()));
+        } else if (event.getEntity() instanceof Team) {
+            handlers.orderedStream().forEach(handler -> handler.onTeamWrite((Long) event.getId(), event.getSession()));
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    /**
+     * Hibernate 5.4 에서는 아직 구현해야 하는 메서드라 {@link #requiresPostCommitHandling} 으로 넘긴다
+     */
+    @Override
+    @Deprecated
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return requiresPostCommitHandling(persister);
+    }
+
+    /**
+     * @return 쓰기를 막지 않으므로 항상 false
+     */
+    private static boolean started(Object entity) {
+        if (entity instanceof Member || entity instanceof Team) {
+            BulkWriteStatementInspector.entityWriteStarted();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,187 @@
+package com.huisam.querydsl.repository.support;
+
+import com.huisam.querydsl.dto.UnknownTotalPage;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 페이징의 count 쿼리를 content 쿼리와 동시에 timeout 을 걸고 실행한다
+ * count 는 크기가 제한된 별도 스레드 풀에서 자기 읽기 전용 트랜잭션(커넥션)으로 먼저 시작하고, content 는 호출한 스레드에서 읽는다
+ * content 만으로 전체 건수를 알 수 있으면(첫 페이지나 마지막 페이지가 덜 차면) 시작한 count 를 취소한다
+ * count 가 timeout 안에 끝나지 않거나 풀이 밀려서 시작하지 못했으면 {@link UnknownTotalPage} 를 돌려준다
+ */
+@Slf4j
+@Component
+public class ParallelCountExecutor implements DisposableBean {
+
+    private final EntityManager em;
+    private final ThreadPoolExecutor executor;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Duration timeout;
+
+    public ParallelCountExecutor(EntityManager em, PlatformTransactionManager transactionManager,
+                                 @Value("${member.search.count.parallel-pool-size:4}") int poolSize,
+                                 @Value("${member.search.count.parallel-queue-capacity:100}") int queueCapacity,
+                                 @Value("${member.search.count.timeout:2s}") Duration timeout) {
+        this.em = em;
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("member-count-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // 트랜잭션 timeout 은 쿼리 timeout 으로도 걸리므로 취소가 늦더라도 포기한 count 가 DB 에서 계속 돌지 않는다
+        // Hibernate 는 남은 시간을 초 단위로 버림해서 0 이 되면 바로 실패시키므로 1 초 여유를 둔다, 제때 끊는 것은 취소가 한다
+        this.readOnlyTransaction.setTimeout((int) ((timeout.toMillis() + 999) / 1000) + 1);
+        this.timeout = timeout;
+    }
+    public <T> Page<T> getPage(Supplier<List<T>> content, Pageable pageable, LongSupplier count) {
+        // 쓰기 트랜잭션 안이면 다른 커넥션의 count 는 아직 커밋되지 않은 변경을 보지 못하므로 같은 트랜잭션에서 차례로 실행한다
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PageableExecutionUtils.getPage(content.get(), pageable, count);
+        }
+
+        final RunningCount total = submit(count);
+        try {
+            final List<T> rows = readOnlyTransaction.execute(status -> content.get());
+            try {
+                // content 만으로 전체 건수를 알 수 있으면 PageableExecutionUtils 가 count 를 묻지 않는다
+                return PageableExecutionUtils.getPage(rows, pageable, total::await);
+            } catch (CountTimeoutException e) {
+                return new UnknownTotalPage<>(rows, pageable);
+            }
+        } finally {
+            // 끝난 count 는 그대로 두고, 쓰지 않거나 포기한 count 는 statement 를 취소해서 커넥션을 바로 돌려받는다
+            total.cancel();
+        }
+    }
+
+    private RunningCount submit(LongSupplier count) {
+        final RunningCount total = new RunningCount(System.nanoTime() + timeout.toNanos());
+        try {
+            total.future = executor.submit(() -> readOnlyTransaction.execute(status -> {
+                total.session.set(em.unwrap(SessionImplementor.class));
+                if (total.cancelled) {
+                    // 트랜잭션을 시작하는 사이에 취소됐으면 취소할 statement 가 없으므로 세지 않는다
+                    throw new CountTimeoutException();
+                }
+                try {
+                    return count.getAsLong();
+                } finally {
+                    total.session.set(null);
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            // 풀이 밀려 있으면 이 스레드에서 기한 없이 세지 않고, 전체 건수가 필요하면 모르는 페이지가 되게 한다
+            log.debug("Count pool is saturated, the page total is left unknown");
+        }
+        return total;
+    }
+
+    /**
+     * count 쿼리가 트랜잭션(쿼리) timeout 에 걸려 끝난 경우
+     */
+    private static boolean isTimeout(Throwable failure) {
+        return failure instanceof javax.persistence.QueryTimeoutException
+                || failure instanceof QueryTimeoutException
+                || failure instanceof TransactionTimedOutException;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 풀에 넘긴 count 하나, 풀이 밀려서 넘기지 못했으면 future 가 null 이다
+     */
+    private static final class RunningCount {
+        private final long deadline;
+        private final AtomicReference<SessionImplementor> session = new AtomicReference<>();
+        private Future<Long> future;
+        private volatile boolean cancelled;
+
+        private RunningCount(long deadline) {
+            this.deadline = deadline;
+        }
+
+        private long await() {
+            if (future == null) {
+                throw new CountTimeoutException();
+            }
+            try {
+                return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                throw new CountTimeoutException();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CountTimeoutException();
+            } catch (ExecutionException e) {
+                if (isTimeout(e.getCause())) {
+                    throw new CountTimeoutException();
+                }
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        /**
+         * 아직 시작 전이면 실행되지 않게 하고, 돌고 있으면 statement 를 취소한다
+         */
+        private void cancel() {
+            if (future == null || future.isDone()) {
+                return;
+            }
+            cancelled = true;
+            future.cancel(false);
+            final SessionImplementor running = session.getAndSet(null);
+            if (running == null) {
+                return;
+            }
+            try {
+                running.getJdbcCoordinator().cancelLastQuery();
+            } catch (RuntimeException e) {
+                // 그 사이에 count 가 끝나서 세션이 닫혔을 수 있다, 트랜잭션 timeout 이 남아 있으므로 넘어간다
+                log.debug("Could not cancel count query", e);
+            }
+        }
+    }
+
+    /**
+     * count 를 기다리다 timeout 이 났다는 표시, 밖으로 나가지 않으므로 stack trace 를 만들지 않는다
+     */
+    private static final class CountTimeoutException extends RuntimeException {
+        private CountTimeoutException() {
+            super(null, null, false, false);
+        }
+    }
+}
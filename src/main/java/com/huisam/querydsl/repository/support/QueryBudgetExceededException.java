@@ -0,0 +1,13 @@
+package com.huisam.querydsl.repository.support;
+
+/**
+ * 한 요청에서 실행한 SQL 이 예산을 넘었다
+ */
+public class QueryBudgetExceededException extends RuntimeException {
+
+    public QueryBudgetExceededException(int total, int maxStatements, int executed, int maxRepeated, String statement) {
+        super(total > maxStatements
+                ? "SQL 실행 수가 예산을 넘었습니다: " + total + " > " + maxStatements
+                : "같은 SQL 이 예산보다 많이 실행되었습니다 (N+1 의심): " + executed + " > " + maxRepeated + " : " + statement);
+    }
+}
@@ -8,6 +8,7 @@ import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.support.JpaEntityInformation;
 import org.springframework.data.jpa.repository.support.JpaEntityInformationSupport;
 import org.springframework.data.jpa.repository.support.Querydsl;
@@ -33,6 +34,8 @@ public abstract class QueryDsl4RepositorySupport {
     private Querydsl querydsl;
     private EntityManager entityManager;
     private JPAQueryFactory queryFactory;
+    private ParallelCountExecutor parallelCountExecutor;
+    private MemberQueryGuard queryGuard;
 
     public QueryDsl4RepositorySupport(Class<?> domainClass) {
         Assert.notNull(domainClass, "Domain class must not be null!");
@@ -51,11 +54,23 @@ public abstract class QueryDsl4RepositorySupport {
         this.queryFactory = new JPAQueryFactory(entityManager);
     }
 
+    @Autowired
+    public void setParallelCountExecutor(ParallelCountExecutor parallelCountExecutor) {
+        this.parallelCountExecutor = parallelCountExecutor;
+    }
+
+    @Autowired
+    public void setQueryGuard(MemberQueryGuard queryGuard) {
+        this.queryGuard = queryGuard;
+    }
+
     @PostConstruct
     public void validate() {
         Assert.notNull(entityManager, "EntityManager must not be null!");
         Assert.notNull(querydsl, "Querydsl must not be null!");
         Assert.notNull(queryFactory, "QueryFactory must not be null!");
+        Assert.notNull(parallelCountExecutor, "ParallelCountExecutor must not be null!");
+        Assert.notNull(queryGuard, "MemberQueryGuard must not be null!");
     }
 
     protected JPAQueryFactory getQueryFactory() {
@@ -78,19 +93,59 @@ public abstract class QueryDsl4RepositorySupport {
         return getQueryFactory().selectFrom(from);
     }
 
+    protected MemberQueryGuard getQueryGuard() {
+        return queryGuard;
+    }
+
+    /*
+     * 아래 페이징은 페이지 크기가 member.search.guard.max-page-size 를 넘으면 실행하지 않고,
+     * content / count 쿼리에 member.search.guard.query-timeout 을 건다
+     */
+
     protected <T> Page<T> applyPagination(Pageable pageable,
-                                          Function<JPAQueryFactory, JPAQuery> contentQuery) {
-        JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
+                                          Function<JPAQueryFactory, JPAQuery<T>> contentQuery) {
+        queryGuard.checkPageSize(pageable);
+        JPAQuery<T> jpaQuery = queryGuard.withTimeout(contentQuery.apply(getQueryFactory()));
         List<T> content = getQuerydsl().applyPagination(pageable, jpaQuery).fetch();
         return PageableExecutionUtils.getPage(content, pageable, jpaQuery::fetchCount);
     }
 
     protected <T> Page<T> applyPagination(Pageable pageable,
-                                          Function<JPAQueryFactory, JPAQuery> contentQuery, Function<JPAQueryFactory,
-            JPAQuery> countQuery) {
-        JPAQuery jpaContentQuery = contentQuery.apply(getQueryFactory());
+                                          Function<JPAQueryFactory, JPAQuery<T>> contentQuery, Function<JPAQueryFactory,
+            JPAQuery<Long>> countQuery) {
+        queryGuard.checkPageSize(pageable);
+        JPAQuery<T> jpaContentQuery = queryGuard.withTimeout(contentQuery.apply(getQueryFactory()));
         List<T> content = getQuerydsl().applyPagination(pageable, jpaContentQuery).fetch();
-        JPAQuery countResult = countQuery.apply(getQueryFactory());
+        JPAQuery<Long> countResult = queryGuard.withTimeout(countQuery.apply(getQueryFactory()));
         return PageableExecutionUtils.getPage(content, pageable, countResult::fetchCount);
     }
-}
\ No newline at end of file
+
+    /**
+     * count 쿼리 없이 페이지 크기보다 한 건 더 읽어서 다음 페이지가 있는지만 알려준다, 전체 건수가 필요 없는 무한 스크롤용
+     */
+    protected <T> Slice<T> applySlicePagination(Pageable pageable,
+                                                Function<JPAQueryFactory, JPAQuery<T>> contentQuery) {
+        queryGuard.checkPageSize(pageable);
+        JPAQuery<T> jpaQuery = queryGuard.withTimeout(contentQuery.apply(getQueryFactory()));
+        getQuerydsl().applySorting(pageable.getSort(), jpaQuery);
+        if (pageable.isPaged()) {
+            jpaQuery.offset(pageable.getOffset()).limit(Slices.limitOf(pageable));
+        }
+        List<T> content = jpaQuery.fetch();
+        return Slices.of(content, pageable);
+    }
+
+    /**
+     * count 쿼리를 {@link ParallelCountExecutor} 에서 content 쿼리와 동시에 실행하고, content 만으로 건수를 알면 취소한다
+     * count 가 timeout 안에 끝나지 않으면 전체 건수를 모르는 페이지({@link com.huisam.querydsl.dto.UnknownTotalPage})가 된다
+     */
+    protected <T> Page<T> applyPaginationParallel(Pageable pageable,
+                                                  Function<JPAQueryFactory, JPAQuery<T>> contentQuery, Function<JPAQueryFactory,
+            JPAQuery<Long>> countQuery) {
+        queryGuard.checkPageSize(pageable);
+        return parallelCountExecutor.getPage(
+                () -> getQuerydsl().applyPagination(pageable, queryGuard.withTimeout(contentQuery.apply(getQueryFactory()))).fetch(),
+                pageable,
+                () -> queryGuard.withTimeout(countQuery.apply(getQueryFactory())).fetchCount());
+    }
+}
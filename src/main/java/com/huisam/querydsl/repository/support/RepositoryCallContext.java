@@ -0,0 +1,74 @@
+package com.huisam.querydsl.repository.support;
+
+import org.aspectj.lang.JoinPoint;
+
+/**
+ * 지금 스레드에서 실행 중인 repository 메서드 호출 하나가 실행한 SQL 수와 커넥션을 얻는 데 걸린 시간
+ * {@link RepositoryMetricsAspect} 가 열고 닫고, {@link RepositoryMetricsListener} 가 JDBC 이벤트마다 채운다
+ * {@link SlowQueryRecorder} 는 느린 SQL 을 어느 메서드가 어떤 인자로 실행했는지 여기서 찾는다
+ * 다른 스레드에서 실행된 SQL (병렬 count 등) 은 세지 않는다
+ */
+final class RepositoryCallContext {
+
+    private static final ThreadLocal<RepositoryCallContext> CURRENT = new ThreadLocal<>();
+
+    private final RepositoryCallContext parent;
+    private final JoinPoint joinPoint;
+    private int statements;
+    private int connections;
+    private long connectionAcquireNanos;
+
+    private RepositoryCallContext(RepositoryCallContext parent, JoinPoint joinPoint) {
+        this.parent = parent;
+        this.joinPoint = joinPoint;
+    }
+
+    static RepositoryCallContext open(JoinPoint joinPoint) {
+        final RepositoryCallContext context = new RepositoryCallContext(CURRENT.get(), joinPoint);
+        CURRENT.set(context);
+        return context;
+    }
+
+    static RepositoryCallContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * repository 가 다른 repository 를 부르면 안쪽 호출의 SQL 도 바깥 호출에 더한다
+     */
+    void close() {
+        if (parent == null) {
+            CURRENT.remove();
+            return;
+        }
+        parent.statements += statements;
+        parent.connections += connections;
+        parent.connectionAcquireNanos += connectionAcquireNanos;
+        CURRENT.set(parent);
+    }
+
+    void statementExecuted() {
+        statements++;
+    }
+
+    void connectionAcquired(long nanos) {
+        connections++;
+        connectionAcquireNanos += nanos;
+    }
+
+    JoinPoint getJoinPoint() {
+        return joinPoint;
+    }
+
+    int getStatements() {
+        return statements;
+    }
+
+    int getConnections() {
+        return connections;
+    }
+
+    long getConnectionAcquireNanos() {
+        return connectionAcquireNanos;
+    }
+}
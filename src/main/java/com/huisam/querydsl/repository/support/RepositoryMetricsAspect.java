@@ -0,0 +1,229 @@
+package com.huisam.querydsl.repository.support;
+
+import com.huisam.querydsl.dto.CursorPage;
+import com.huisam.querydsl.dto.MemberSearchCondition;
+import com.huisam.querydsl.repository.MemberRepository;
+import com.querydsl.core.types.Predicate;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * MemberRepository, MemberJpaRepository 의 모든 public 메서드 호출을 Micrometer 로 잰다
+ * <ul>
+ *     <li>member.repository.query : 실행 시간 (p50, p95, p99)</li>
+ *     <li>member.repository.rows : 돌려준 행 수</li>
+ *     <li>member.repository.statements : 호출 한번에 실행한 SQL 수</li>
+ *     <li>member.repository.connection.acquire : 호출 한번에 커넥션을 얻는 데 걸린 시간</li>
+ * </ul>
+ * 모두 repository, method, filters (MemberSearchCondition 에서 값이 있는 조건) 태그가 붙고 /actuator/metrics 로 볼 수 있다
+ * 메서드와 조건 조합마다 미터를 한번만 만들어 두므로 호출마다 드는 비용은 시간 측정과 배열 조회 정도다
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "member.metrics.repository.enabled", matchIfMissing = true)
+public class RepositoryMetricsAspect {
+
+    private static final int HAS_USER_NAME = 1;
+    private static final int HAS_TEAM_NAME = 1 << 1;
+    private static final int HAS_AGE_GOE = 1 << 2;
+    private static final int HAS_AGE_LOE = 1 << 3;
+    private static final int PREDICATE = 1 << 4;
+    private static final int NO_CONDITION = PREDICATE + 1;
+    private static final String[] FILTER_TAGS = filterTags();
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<Method, MethodMeters> meters = new ConcurrentHashMap<>();
+
+    public RepositoryMetricsAspect(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.registry = meterRegistry.getIfAvailable();
+    }
+
+    @Around("execution(public * *(..)) && !execution(* java.lang.Object.*(..)) && ("
+            + "target(com.huisam.querydsl.repository.MemberRepository) || target(com.huisam.querydsl.repository.MemberJpaRepository))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        final RepositoryCallContext context = RepositoryCallContext.open(joinPoint);
+        if (registry == null) {
+            try {
+                return joinPoint.proceed();
+            } finally {
+                context.close();
+            }
+        }
+
+        final long start = System.nanoTime();
+        Object result = null;
+        boolean success = false;
+        try {
+            result = joinPoint.proceed();
+            success = true;
+            return result;
+        } finally {
+            final long elapsed = System.nanoTime() - start;
+            context.close();
+            final Meters meters = metersOf(joinPoint);
+            (success ? meters.success : meters.error).record(elapsed, TimeUnit.NANOSECONDS);
+            meters.statements.record(context.getStatements());
+            if (context.getConnections() > 0) {
+                meters.connectionAcquire.record(context.getConnectionAcquireNanos(), TimeUnit.NANOSECONDS);
+            }
+            final int rows = rows(result);
+            if (success && rows >= 0) {
+                meters.rows.record(rows);
+            }
+        }
+    }
+
+    private Meters metersOf(ProceedingJoinPoint joinPoint) {
+        final Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        final MethodMeters methodMeters = meters.computeIfAbsent(method, m -> new MethodMeters(repositoryOf(joinPoint), methodTag(m)));
+        return methodMeters.of(filterOf(joinPoint.getArgs()));
+    }
+
+    /**
+     * 돌려준 행 수, 행 목록이 아닌 결과(count, 저장한 엔티티 등)는 -1
+     */
+    private static int rows(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        } else if (result instanceof Slice) {
+            return ((Slice<?>) result).getNumberOfElements();
+        } else if (result instanceof CursorPage) {
+            return ((CursorPage<?>) result).getContent().size();
+        } else if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        return -1;
+    }
+
+    private static int filterOf(Object[] args) {
+        for (Object arg : args) {
+            if (arg instanceof MemberSearchCondition) {
+                final MemberSearchCondition condition = (MemberSearchCondition) arg;
+                int filter = 0;
+                filter |= hasText(condition.getUserName()) ? HAS_USER_NAME : 0;
+                filter |= hasText(condition.getTeamName()) ? HAS_TEAM_NAME : 0;
+                filter |= condition.getAgeGoe() != null ? HAS_AGE_GOE : 0;
+                filter |= condition.getAgeLoe() != null ? HAS_AGE_LOE : 0;
+                return filter;
+            } else if (arg instanceof Predicate) {
+                return PREDICATE;
+            }
+        }
+        return NO_CONDITION;
+    }
+
+    static String repositoryOf(JoinPoint joinPoint) {
+        return joinPoint.getTarget() instanceof MemberRepository ? "MemberRepository" : "MemberJpaRepository";
+    }
+
+    static String methodTag(Method method) {
+        final StringJoiner parameters = new StringJoiner(",", method.getName() + "(", ")");
+        for (Class<?> type : method.getParameterTypes()) {
+            parameters.add(type.getSimpleName());
+        }
+        return parameters.toString();
+    }
+
+    private static String[] filterTags() {
+        final String[] tags = new String[NO_CONDITION + 1];
+        for (int filter = 0; filter < PREDICATE; filter++) {
+            final StringJoiner tag = new StringJoiner(",");
+            if ((filter & HAS_USER_NAME) != 0) {
+                tag.add("userName");
+            }
+            if ((filter & HAS_TEAM_NAME) != 0) {
+                tag.add("teamName");
+            }
+            if ((filter & HAS_AGE_GOE) != 0) {
+                tag.add("ageGoe");
+            }
+            if ((filter & HAS_AGE_LOE) != 0) {
+                tag.add("ageLoe");
+            }
+            tags[filter] = tag.length() == 0 ? "none" : tag.toString();
+        }
+        tags[PREDICATE] = "predicate";
+        tags[NO_CONDITION] = "n/a";
+        return tags;
+    }
+
+    /**
+     * 메서드 하나의 조건 조합별 미터, 처음 쓰일 때 만든다
+     * 동시에 두번 만들어져도 registry 가 같은 미터를 돌려주므로 상관없다
+     */
+    private final class MethodMeters {
+        private final String repository;
+        private final String method;
+        private final Meters[] byFilter = new Meters[FILTER_TAGS.length];
+
+        private MethodMeters(String repository, String method) {
+            this.repository = repository;
+            this.method = method;
+        }
+
+        private Meters of(int filter) {
+            Meters meters = byFilter[filter];
+            if (meters == null) {
+                meters = new Meters(repository, method, FILTER_TAGS[filter]);
+                byFilter[filter] = meters;
+            }
+            return meters;
+        }
+    }
+
+    private final class Meters {
+        private final Timer success;
+        private final Timer error;
+        private final DistributionSummary rows;
+        private final DistributionSummary statements;
+        private final Timer connectionAcquire;
+
+        private Meters(String repository, String method, String filters) {
+            this.success = queryTimer(repository, method, filters, "success");
+            this.error = queryTimer(repository, method, filters, "error");
+            this.rows = DistributionSummary.builder("member.repository.rows")
+                    .description("rows returned per repository call")
+                    .tags("repository", repository, "method", method, "filters", filters)
+                    .register(registry);
+            this.statements = DistributionSummary.builder("member.repository.statements")
+                    .description("SQL statements executed per repository call")
+                    .tags("repository", repository, "method", method, "filters", filters)
+                    .register(registry);
+            this.connectionAcquire = Timer.builder("member.repository.connection.acquire")
+                    .description("time spent acquiring JDBC connections per repository call")
+                    .tags("repository", repository, "method", method, "filters", filters)
+                    .register(registry);
+        }
+
+        private Timer queryTimer(String repository, String method, String filters, String outcome) {
+            return Timer.builder("member.repository.query")
+                    .description("repository call latency")
+                    .tags("repository", repository, "method", method, "filters", filters, "outcome", outcome)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(registry);
+        }
+    }
+}
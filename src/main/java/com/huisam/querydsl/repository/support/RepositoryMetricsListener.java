@@ -0,0 +1,34 @@
+package com.huisam.querydsl.repository.support;
+
+import com.p6spy.engine.common.ConnectionInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/**
+ * p6spy 가 감싼 DataSource 의 JDBC 이벤트로 repository 호출마다 실행한 SQL 수와 커넥션을 얻는 데 걸린 시간을 센다
+ * repository 호출 밖에서 실행된 SQL 은 ThreadLocal 조회 한번으로 끝난다
+ */
+@Component
+@ConditionalOnProperty(name = "member.metrics.repository.enabled", matchIfMissing = true)
+public class RepositoryMetricsListener extends SimpleJdbcEventListener {
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        final RepositoryCallContext context = RepositoryCallContext.current();
+        if (context != null) {
+            context.statementExecuted();
+        }
+    }
+
+    @Override
+    public void onAfterGetConnection(ConnectionInformation connectionInformation, SQLException e) {
+        final RepositoryCallContext context = RepositoryCallContext.current();
+        if (context != null && e == null) {
+            context.connectionAcquired(connectionInformation.getTimeToGetConnectionNs());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.huisam.querydsl.repository.support;
+
+import com.huisam.querydsl.dto.MemberSearchCondition;
+import org.hibernate.event.spi.EventSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Predicate;
+
+/**
+ * 쓰기가 일어나면 검색 결과 캐시와 count 캐시에서 영향을 받는 조건만 비운다
+ * flush 시점에 한번, 트랜잭션이 끝난 뒤(커밋이든 롤백이든) 한번 더 비워서
+ * 그 사이에 다른 요청이 변경 전 값을 다시 캐시하더라도 남지 않게 한다
+ */
+@Component
+public class SearchCacheInvalidator implements MemberWriteHandler {
+
+    private final MemberSearchCache searchCache;
+    private final CountCache countCache;
+
+    public SearchCacheInvalidator(MemberSearchCache searchCache, CountCache countCache) {
+        this.searchCache = searchCache;
+        this.countCache = countCache;
+    }
+
+    @Override
+    public void onMemberWrite(MemberSnapshot before, MemberSnapshot after, EventSource session) {
+        if (before != null && before.sameSearchValues(after)) {
+            return;
+        }
+        invalidate(condition -> (before != null && before.matches(condition)) || (after != null && after.matches(condition)));
+    }
+
+    @Override
+    public void onTeamWrite(Long teamId, EventSource session) {
+        // team 변경은 드물고, 이름이 바뀌면 그 팀 회원이 포함된 모든 결과가 바뀌므로 전부 비운다
+        invalidate(condition -> true);
+    }
+
+    @Override
+    public void onBulkWrite(String table) {
+        invalidate(condition -> true);
+    }
+
+    private void invalidate(Predicate<MemberSearchCondition> affected) {
+        evict(affected);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(affected);
+                }
+            });
+        }
+    }
+
+    private void evict(Predicate<MemberSearchCondition> affected) {
+        searchCache.invalidateIf(affected);
+        countCache.invalidateIf(key -> key instanceof MemberSearchCondition && affected.test((MemberSearchCondition) key));
+    }
+}
@@ -0,0 +1,11 @@
+package com.huisam.querydsl.repository.support;
+
+/**
+ * 검색이 {@link MemberQueryGuard} 의 페이지 크기나 행 수 상한을 넘었다
+ */
+public class SearchLimitExceededException extends RuntimeException {
+
+    public SearchLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,34 @@
+package com.huisam.querydsl.repository.support;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.List;
+
+/**
+ * count 없이 페이지 크기보다 한 건 더 읽어서 다음 페이지가 있는지 판단하는 Slice 페이징
+ */
+final class Slices {
+
+    private Slices() {
+    }
+
+    /**
+     * @return 페이징할 때 읽을 행 수, 페이지 크기 + 1
+     */
+    static int limitOf(Pageable pageable) {
+        return pageable.getPageSize() + 1;
+    }
+
+    /**
+     * @param rows {@link #limitOf(Pageable)} 건까지 읽은 행, 한 건 더 있으면 그 행은 버린다
+     */
+    static <T> Slice<T> of(List<T> rows, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<>(rows, pageable, false);
+        }
+        final boolean hasNext = rows.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+}
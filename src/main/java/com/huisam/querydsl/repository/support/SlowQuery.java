@@ -0,0 +1,35 @@
+package com.huisam.querydsl.repository.support;
+
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * {@link SlowQueryRecorder} 가 기록한 느린 SQL 하나
+ * repository 밖에서 실행된 SQL 이면 repositoryMethod 와 arguments 가 비어 있다
+ */
+@Getter
+public class SlowQuery {
+
+    private final Instant executedAt;
+    private final long elapsedMillis;
+    private final String repositoryMethod;
+    private final List<String> arguments;
+    private final String sql;
+    private final List<String> binds;
+    private final String plan;
+    private final String error;
+
+    public SlowQuery(Instant executedAt, long elapsedMillis, String repositoryMethod, List<String> arguments,
+                     String sql, List<String> binds, String plan, String error) {
+        this.executedAt = executedAt;
+        this.elapsedMillis = elapsedMillis;
+        this.repositoryMethod = repositoryMethod;
+        this.arguments = arguments;
+        this.sql = sql;
+        this.binds = binds;
+        this.plan = plan;
+        this.error = error;
+    }
+}
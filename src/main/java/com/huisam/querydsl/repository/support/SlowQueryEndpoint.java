@@ -0,0 +1,33 @@
+package com.huisam.querydsl.repository.support;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.jmx.annotation.JmxEndpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * slowQueries 는 {@link SlowQueryRecorder} 가 남긴 느린 SQL 을 최근 것부터 돌려주고, clear 는 비운다
+ * SQL 과 실행 계획이 드러나므로 인증 없는 웹으로는 열지 않고 JMX 로만 연다
+ */
+@Component
+@JmxEndpoint(id = "slowqueries")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "member.slow-query.enabled", matchIfMissing = true)
+public class SlowQueryEndpoint {
+
+    private final SlowQueryRecorder recorder;
+
+    @ReadOperation
+    public List<SlowQuery> slowQueries() {
+        return recorder.getSlowQueries();
+    }
+
+    @DeleteOperation
+    public void clear() {
+        recorder.clear();
+    }
+}
@@ -0,0 +1,194 @@
+package com.huisam.querydsl.repository.support;
+
+import com.p6spy.engine.common.PreparedStatementInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * threshold 보다 오래 걸린 SQL 만 골라서 최근 capacity 건을 링 버퍼에 남긴다, JMX 의 slowqueries endpoint 로 볼 수 있다
+ * 빠른 SQL 은 경과 시간 비교 한번으로 끝나고, 느린 SQL 에서만 다음을 모은다
+ * <ul>
+ *     <li>실행한 repository 메서드와 인자 (MemberSearchCondition, Querydsl Predicate 등), {@link RepositoryMetricsAspect} 가 연 호출에서 찾는다</li>
+ *     <li>SQL 과 바인드 값, use_sql_comments 로 SQL 앞에 Querydsl 이 만든 JPQL 이 주석으로 붙어 있다</li>
+ *     <li>같은 커넥션에서 같은 바인드 값으로 실행한 EXPLAIN 결과 (select / update / delete)</li>
+ * </ul>
+ * p6spy 가 감싸기 전 커넥션으로 EXPLAIN 을 실행하므로 EXPLAIN 자체는 다시 기록되지 않는다
+ * 바인드 값과 인자에는 개인 정보가 들어 있을 수 있으므로 show-values 를 켜지 않으면 가리고 인자는 타입만 남긴다
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "member.slow-query.enabled", matchIfMissing = true)
+public class SlowQueryRecorder extends SimpleJdbcEventListener {
+
+    private static final int MAX_ARGUMENT_LENGTH = 500;
+    private static final String MASKED = "***";
+    private static final Pattern EXPLAINABLE = Pattern.compile("\\s*(/\\*.*?\\*/\\s*)*(select|update|delete)\\b",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    /**
+     * p6spy 는 바인드 값을 SQL 에 끼워 넣은 문자열로만 공개하므로, EXPLAIN 에 다시 바인드할 원래 값은 protected 메서드로 읽는다
+     */
+    private static final Method PARAMETER_VALUES = parameterValuesMethod();
+
+    private final long thresholdNanos;
+    private final boolean explain;
+    private final boolean showValues;
+    private final SlowQuery[] buffer;
+    private int next;
+    private int size;
+
+    public SlowQueryRecorder(@Value("${member.slow-query.threshold:500ms}") Duration threshold,
+                             @Value("${member.slow-query.capacity:100}") int capacity,
+                             @Value("${member.slow-query.explain:true}") boolean explain,
+                             @Value("${member.slow-query.show-values:false}") boolean showValues) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("member.slow-query.capacity must be positive: " + capacity);
+        }
+        this.thresholdNanos = threshold.toNanos();
+        this.explain = explain;
+        this.showValues = showValues;
+        this.buffer = new SlowQuery[capacity];
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        if (timeElapsedNanos < thresholdNanos) {
+            return;
+        }
+        try {
+            add(record(statementInformation, timeElapsedNanos, e));
+        } catch (RuntimeException recordFailure) {
+            log.warn("Failed to record slow query: {}", statementInformation.getSql(), recordFailure);
+        }
+    }
+
+    /**
+     * 최근에 기록한 것부터
+     */
+    public synchronized List<SlowQuery> getSlowQueries() {
+        final List<SlowQuery> slowQueries = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            slowQueries.add(buffer[(next - i + buffer.length) % buffer.length]);
+        }
+        return slowQueries;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(buffer, null);
+        next = 0;
+        size = 0;
+    }
+
+    private synchronized void add(SlowQuery slowQuery) {
+        buffer[next] = slowQuery;
+        next = (next + 1) % buffer.length;
+        size = Math.min(size + 1, buffer.length);
+    }
+
+    private SlowQuery record(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        final String sql = statementInformation.getSql();
+        final Map<Integer, Object> parameters = parametersOf(statementInformation);
+        final List<String> binds = new ArrayList<>(parameters.size());
+        parameters.values().forEach(value -> binds.add(showValues ? String.valueOf(value) : MASKED));
+
+        final RepositoryCallContext context = RepositoryCallContext.current();
+        final JoinPoint joinPoint = context != null ? context.getJoinPoint() : null;
+        return new SlowQuery(
+                Instant.now(),
+                Duration.ofNanos(timeElapsedNanos).toMillis(),
+                joinPoint != null ? repositoryMethodOf(joinPoint) : null,
+                joinPoint != null ? argumentsOf(joinPoint) : Collections.emptyList(),
+                sql,
+                binds,
+                explain ? explain(statementInformation, sql, parameters) : null,
+                e != null ? e.toString() : null);
+    }
+
+    private static String explain(StatementInformation statementInformation, String sql, Map<Integer, Object> parameters) {
+        if (sql == null || !EXPLAINABLE.matcher(sql).lookingAt()) {
+            return null;
+        }
+        final Connection connection = statementInformation.getConnectionInformation().getConnection();
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+            for (Map.Entry<Integer, Object> parameter : parameters.entrySet()) {
+                statement.setObject(parameter.getKey() + 1, parameter.getValue());
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                final StringJoiner plan = new StringJoiner("\n");
+                while (resultSet.next()) {
+                    plan.add(resultSet.getString(1));
+                }
+                return plan.toString();
+            }
+        } catch (SQLException explainFailure) {
+            log.debug("Failed to explain slow query: {}", sql, explainFailure);
+            return "EXPLAIN failed: " + explainFailure.getMessage();
+        }
+    }
+
+    /**
+     * 바인드 순서대로 정렬한 원래 바인드 값, p6spy 는 0 부터 센 index 로 담아둔다
+     */
+    private static Map<Integer, Object> parametersOf(StatementInformation statementInformation) {
+        if (!(statementInformation instanceof PreparedStatementInformation) || PARAMETER_VALUES == null) {
+            return Collections.emptyMap();
+        }
+        final Map<?, ?> values = (Map<?, ?>) ReflectionUtils.invokeMethod(PARAMETER_VALUES, statementInformation);
+        final Map<Integer, Object> parameters = new TreeMap<>();
+        if (values != null) {
+            values.forEach((index, value) -> parameters.put((Integer) index, ((com.p6spy.engine.common.Value) value).getValue()));
+        }
+        return parameters;
+    }
+
+    private static String repositoryMethodOf(JoinPoint joinPoint) {
+        return RepositoryMetricsAspect.repositoryOf(joinPoint) + "."
+                + RepositoryMetricsAspect.methodTag(((MethodSignature) joinPoint.getSignature()).getMethod());
+    }
+
+    private List<String> argumentsOf(JoinPoint joinPoint) {
+        final Object[] args = joinPoint.getArgs();
+        final List<String> arguments = new ArrayList<>(args.length);
+        for (Object arg : args) {
+            if (!showValues) {
+                arguments.add(arg == null ? "null" : arg.getClass().getSimpleName());
+                continue;
+            }
+            final String argument = String.valueOf(arg);
+            arguments.add(argument.length() > MAX_ARGUMENT_LENGTH ? argument.substring(0, MAX_ARGUMENT_LENGTH) + "..." : argument);
+        }
+        return arguments;
+    }
+
+    private static Method parameterValuesMethod() {
+        final Method method = ReflectionUtils.findMethod(PreparedStatementInformation.class, "getParameterValues");
+        if (method == null) {
+            log.warn("PreparedStatementInformation.getParameterValues not found, slow queries are recorded without binds");
+            return null;
+        }
+        ReflectionUtils.makeAccessible(method);
+        return method;
+    }
+}
@@ -0,0 +1,119 @@
+package com.huisam.querydsl.repository.support;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 한 요청(또는 테스트) 동안 현재 스레드에서 실행된 SQL 을 센다
+ * 바인드 값만 다른 같은 SQL 이 여러 번 실행되면 N+1 로 보고, 예산을 넘으면 로그를 남기거나 바로 실패시킨다
+ * 실행된 SQL 은 {@link StatementCountingInspector} 가 알려준다
+ */
+public final class StatementCounter implements AutoCloseable {
+
+    private static final ThreadLocal<StatementCounter> CURRENT = new ThreadLocal<>();
+    private static final Pattern COMMENT = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+
+    private final StatementCounter previous;
+    private final int maxStatements;
+    private final int maxRepeated;
+    private final boolean reject;
+    private final Map<String, Integer> executions = new HashMap<>();
+    private int total;
+
+    private StatementCounter(StatementCounter previous, int maxStatements, int maxRepeated, boolean reject) {
+        this.previous = previous;
+        this.maxStatements = maxStatements;
+        this.maxRepeated = maxRepeated;
+        this.reject = reject;
+    }
+
+    /**
+     * 예산 없이 세기만 한다
+     */
+    public static StatementCounter start() {
+        return start(Integer.MAX_VALUE, Integer.MAX_VALUE, false);
+    }
+
+    /**
+     * @param maxStatements 실행할 수 있는 SQL 수
+     * @param maxRepeated   같은 SQL 을 실행할 수 있는 횟수
+     * @param reject        true 면 예산을 넘는 SQL 을 실행하기 전에 {@link QueryBudgetExceededException} 을 던진다
+     */
+    public static StatementCounter start(int maxStatements, int maxRepeated, boolean reject) {
+        final StatementCounter counter = new StatementCounter(CURRENT.get(), maxStatements, maxRepeated, reject);
+        CURRENT.set(counter);
+        return counter;
+    }
+
+    static StatementCounter current() {
+        return CURRENT.get();
+    }
+
+    void record(String sql) {
+        final String statement = normalize(sql);
+        final int executed = executions.merge(statement, 1, Integer::sum);
+        total++;
+        if (reject && (total > maxStatements || executed > maxRepeated)) {
+            throw new QueryBudgetExceededException(total, maxStatements, executed, maxRepeated, statement);
+        }
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * 두 번 이상 실행된 SQL 과 실행 횟수
+     */
+    public Map<String, Integer> getRepeated() {
+        final Map<String, Integer> repeated = new LinkedHashMap<>();
+        executions.forEach((statement, count) -> {
+            if (count > 1) {
+                repeated.put(statement, count);
+            }
+        });
+        return Collections.unmodifiableMap(repeated);
+    }
+
+    /**
+     * 실행된 SQL, 주석을 지우고 in 절의 바인드를 하나로 줄인 모양이다
+     */
+    public Set<String> getStatements() {
+        return Collections.unmodifiableSet(executions.keySet());
+    }
+
+    public int getMaxRepeated() {
+        return executions.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+    }
+
+    public boolean isOverBudget() {
+        return total > maxStatements || getMaxRepeated() > maxRepeated;
+    }
+
+    public void reset() {
+        executions.clear();
+        total = 0;
+    }
+
+    @Override
+    public void close() {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * 주석과 in 절의 바인드 개수를 지워서 바인드 값만 다른 SQL 을 같은 SQL 로 본다
+     */
+    private static String normalize(String sql) {
+        final String statement = COMMENT.matcher(sql).replaceAll("").trim();
+        return IN_LIST.matcher(statement).replaceAll("(?)");
+    }
+}
@@ -0,0 +1,20 @@
+package com.huisam.querydsl.repository.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hibernate 가 준비하는 SQL 을 현재 스레드의 {@link StatementCounter} 에 알린다, 세는 중이 아니면 아무것도 하지 않는다
+ */
+@Component
+public class StatementCountingInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        final StatementCounter counter = StatementCounter.current();
+        if (counter != null) {
+            counter.record(sql);
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,220 @@
+package com.huisam.querydsl.repository.support;
+
+import com.huisam.querydsl.entity.TeamStatsState;
+import com.querydsl.core.types.dsl.CaseBuilder;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.huisam.querydsl.entity.QMember.member;
+import static com.huisam.querydsl.entity.QTeam.team;
+import static com.huisam.querydsl.entity.QTeamStats.teamStats;
+import static com.huisam.querydsl.entity.QTeamStatsState.teamStatsState;
+
+/**
+ * 회원이 쓰일 때마다 team_stats 요약 테이블을 바뀐 만큼만 고친다
+ * flush 때 받은 변경을 세션별, 팀별로 모아두었다가 커밋 직전에 팀마다 update 한번으로 반영하고, 롤백되면 버린다
+ * count, sum 은 더하고 빼기만 하고, min, max 는 새 나이와 비교하되 빠진 회원이 있으면 (team_id, age) 인덱스로 다시 구한다
+ * bulk update / delete, StatelessSession insert 처럼 엔티티 이벤트를 거치지 않는 쓰기가 있으면 그 트랜잭션 안에서
+ * {@link TeamStatsState} 의 writeVersion 을 올려 두고, 다음 조회 때 회원 테이블을 group by 해서 다시 만든다
+ * 표시가 DB 에 있으므로 다른 노드의 bulk 쓰기도 알 수 있고, chunk 마다 커밋하는 bulk 작업도 다시 만드는 건 한번이다
+ */
+@Component
+public class TeamStatsMaintainer implements MemberWriteHandler {
+
+    private static final String INSERT_FROM_MEMBERS = "insert into TeamStats (teamId, memberCount, ageSum, ageMin, ageMax) "
+            + "select m.team.id, count(m), sum(m.age), min(m.age), max(m.age) from Member m where m.team.id is not null";
+
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<SessionImplementor, Map<Long, Delta>> pending = new ConcurrentHashMap<>();
+
+    public TeamStatsMaintainer(EntityManager em, PlatformTransactionManager transactionManager) {
+        this.em = em;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public void onMemberWrite(MemberSnapshot before, MemberSnapshot after, EventSource session) {
+        if (before != null && after != null
+                && Objects.equals(before.getTeamId(), after.getTeamId()) && before.getAge() == after.getAge()) {
+            return;
+        }
+        final Map<Long, Delta> deltas = pending.computeIfAbsent(session, this::register);
+        if (before != null && before.getTeamId() != null) {
+            deltas.computeIfAbsent(before.getTeamId(), teamId -> new Delta()).remove(before.getAge());
+        }
+        if (after != null && after.getTeamId() != null) {
+            deltas.computeIfAbsent(after.getTeamId(), teamId -> new Delta()).add(after.getAge());
+        }
+    }
+
+    @Override
+    public void onBulkWrite(String table) {
+        if (!"member".equals(table)) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            transactionTemplate.executeWithoutResult(status -> markStale());
+            return;
+        }
+        // 트랜잭션마다 한번, 커밋 직전에 같은 트랜잭션에서 올린다. 롤백되면 표시도 같이 롤백된다
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                markStale();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(TeamStatsMaintainer.this);
+            }
+        });
+    }
+
+    /**
+     * 요약 테이블이 마지막 bulk 쓰기 전에 만들어졌으면 다시 만든다
+     * 호출한 쪽의 트랜잭션과 따로 커밋하므로 읽기 트랜잭션을 시작하기 전에 부른다
+     *
+     * @return 다시 만들었으면 true
+     */
+    public boolean rebuildIfStale() {
+        return rebuild(false);
+    }
+
+    /**
+     * 요약 테이블을 지우고 회원 테이블을 팀별로 group by 해서 다시 채운다
+     */
+    public void rebuild() {
+        rebuild(true);
+    }
+
+    /**
+     * {@link TeamStatsState} 행을 잠그고 다시 만드므로 그동안 커밋하려는 bulk 쓰기는 표시를 올리기 전에 기다린다
+     * 그래서 다 만든 뒤 적는 builtVersion 은 만들 때 본 회원 테이블과 맞고, 여러 노드가 동시에 다시 만들지 않는다
+     */
+    private boolean rebuild(boolean force) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            TeamStatsState state = em.find(TeamStatsState.class, TeamStatsState.ID, LockModeType.PESSIMISTIC_WRITE);
+            if (state == null) {
+                state = new TeamStatsState(TeamStatsState.ID);
+                em.persist(state);
+            } else if (!force && state.isBuilt()) {
+                return false;
+            }
+            final JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+            queryFactory.delete(teamStats).execute();
+            em.createQuery(INSERT_FROM_MEMBERS + " group by m.team.id").executeUpdate();
+            state.built();
+            return true;
+        }));
+    }
+
+    private void markStale() {
+        new JPAQueryFactory(em)
+                .update(teamStatsState)
+                .set(teamStatsState.writeVersion, teamStatsState.writeVersion.add(1L))
+                .where(teamStatsState.id.eq(TeamStatsState.ID))
+                .execute();
+    }
+
+    private Map<Long, Delta> register(SessionImplementor session) {
+        session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) this::apply);
+        session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, completed) -> pending.remove(completed));
+        return new HashMap<>();
+    }
+
+    /**
+     * 커밋 전 flush 가 끝난 뒤에 불리므로 서브쿼리와 insert ... select 는 이 트랜잭션의 변경까지 본다
+     */
+    private void apply(SessionImplementor session) {
+        final Map<Long, Delta> deltas = pending.get(session);
+        if (deltas == null) {
+            return;
+        }
+        final JPAQueryFactory queryFactory = new JPAQueryFactory(session);
+        deltas.forEach((teamId, delta) -> {
+            if (update(queryFactory, teamId, delta) > 0) {
+                return;
+            }
+            // 요약 행이 없는 팀이면 팀 행을 잠가서 같은 팀에 처음 들어오는 두 트랜잭션이 함께 insert 하지 않게 한다
+            final Long locked = queryFactory
+                    .select(team.id)
+                    .from(team)
+                    .where(team.id.eq(teamId))
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .fetchOne();
+            if (locked != null && update(queryFactory, teamId, delta) == 0) {
+                session.createQuery(INSERT_FROM_MEMBERS + " and m.team.id = :teamId group by m.team.id")
+                        .setParameter("teamId", teamId)
+                        .executeUpdate();
+            }
+        });
+    }
+
+    private static long update(JPAQueryFactory queryFactory, Long teamId, Delta delta) {
+        final JPAUpdateClause update = queryFactory
+                .update(teamStats)
+                .set(teamStats.memberCount, teamStats.memberCount.add(delta.count))
+                .set(teamStats.ageSum, teamStats.ageSum.add(delta.sum))
+                .where(teamStats.teamId.eq(teamId));
+        if (delta.removed) {
+            update.set(teamStats.ageMin, JPAExpressions.select(member.age.min()).from(member).where(member.team.id.eq(teamId)))
+                    .set(teamStats.ageMax, JPAExpressions.select(member.age.max()).from(member).where(member.team.id.eq(teamId)));
+        } else if (delta.addedMin != null) {
+            update.set(teamStats.ageMin, new CaseBuilder()
+                    .when(teamStats.ageMin.isNull().or(teamStats.ageMin.gt(delta.addedMin))).then(delta.addedMin)
+                    .otherwise(teamStats.ageMin))
+                    .set(teamStats.ageMax, new CaseBuilder()
+                            .when(teamStats.ageMax.isNull().or(teamStats.ageMax.lt(delta.addedMax))).then(delta.addedMax)
+                            .otherwise(teamStats.ageMax));
+        }
+        return update.execute();
+    }
+
+    /**
+     * 한 트랜잭션 안에서 한 팀에 생긴 변경, 세션은 한 스레드에서만 쓰므로 동기화하지 않는다
+     */
+    private static final class Delta {
+        private long count;
+        private long sum;
+        private Integer addedMin;
+        private Integer addedMax;
+        private boolean removed;
+
+        private void add(int age) {
+            count++;
+            sum += age;
+            addedMin = addedMin == null ? age : Math.min(addedMin, age);
+            addedMax = addedMax == null ? age : Math.max(addedMax, age);
+        }
+
+        private void remove(int age) {
+            count--;
+            sum -= age;
+            removed = true;
+        }
+    }
+}
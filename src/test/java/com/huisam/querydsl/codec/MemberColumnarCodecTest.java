@@ -0,0 +1,96 @@
+package com.huisam.querydsl.codec;
+
+import com.huisam.querydsl.dto.MemberTeamColumns;
+import com.huisam.querydsl.dto.MemberTeamDto;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MemberColumnarCodecTest {
+
+    @Test
+    @DisplayName("인코딩한 batch 를 그대로 디코딩한다")
+    void round_trip_test() {
+        /* given */
+        final List<MemberTeamDto> rows = List.of(
+                new MemberTeamDto(1L, "member1", 10, 100L, "teamA"),
+                new MemberTeamDto(5L, "member2", 20, 100L, "teamA"),
+                new MemberTeamDto(3L, null, 0, null, null),
+                new MemberTeamDto(4L, "member1", -1, 200L, "teamB"),
+                new MemberTeamDto(Long.MAX_VALUE, "회원", Integer.MAX_VALUE, 100L, "teamA")
+        );
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final MemberColumnarEncoder encoder = new MemberColumnarEncoder(out, 2);
+
+        /* when : 2 건씩 나눠 쓴다 */
+        final MemberTeamColumns columns = new MemberTeamColumns(2);
+        for (MemberTeamDto row : rows) {
+            add(columns, row);
+            if (columns.isFull()) {
+                encoder.write(columns);
+                columns.clear();
+            }
+        }
+        encoder.write(columns);
+        encoder.finish(42, 3, 5);
+
+        /* then */
+        final MemberColumnarDecoder decoder = new MemberColumnarDecoder(new ByteArrayInputStream(out.toByteArray()));
+        final List<MemberTeamDto> decoded = new ArrayList<>();
+        for (MemberTeamColumns batch = decoder.next(); batch != null; batch = decoder.next()) {
+            for (int row = 0; row < batch.size(); row++) {
+                decoded.add(batch.toDto(row));
+            }
+        }
+        assertThat(decoded).isEqualTo(rows);
+        assertThat(decoder.getTotalElements()).isEqualTo(42);
+        assertThat(decoder.getPage()).isEqualTo(3);
+        assertThat(decoder.getSize()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("사전이 가득 차면 비우고 이어서 디코딩한다")
+    void dictionary_reset_test() {
+        /* given */
+        final int total = MemberColumnarFormat.MAX_DICTIONARY_SIZE + 3000;
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final MemberColumnarEncoder encoder = new MemberColumnarEncoder(out, 1000);
+        final MemberTeamColumns columns = new MemberTeamColumns(1000);
+
+        /* when */
+        for (int i = 0; i < total; i++) {
+            columns.add(i, "member" + i, i % 100, true, i % 10, "team" + i % 10);
+            if (columns.isFull()) {
+                encoder.write(columns);
+                columns.clear();
+            }
+        }
+        encoder.write(columns);
+        encoder.finish();
+
+        /* then */
+        final List<MemberTeamDto> decoded = MemberColumnarDecoder.decode(new ByteArrayInputStream(out.toByteArray()));
+        assertThat(decoded).hasSize(total);
+        assertThat(decoded.get(total - 1).getUsername()).isEqualTo("member" + (total - 1));
+        assertThat(decoded.get(total - 1).getTeamName()).isEqualTo("team" + (total - 1) % 10);
+    }
+
+    @Test
+    @DisplayName("형식이 다르면 실패한다")
+    void invalid_magic_test() {
+        assertThatThrownBy(() -> new MemberColumnarDecoder(new ByteArrayInputStream(new byte[]{'[', '{', '}', ']', 0})))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void add(MemberTeamColumns columns, MemberTeamDto row) {
+        columns.add(row.getMemberId(), row.getUsername(), row.getAge(), row.getTeamId() != null,
+                row.getTeamId() == null ? 0 : row.getTeamId(), row.getTeamName());
+    }
+}
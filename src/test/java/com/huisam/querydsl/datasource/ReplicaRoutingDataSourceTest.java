@@ -0,0 +1,238 @@
+package com.huisam.querydsl.datasource;
+
+import com.huisam.querydsl.dto.MemberSearchCondition;
+import com.huisam.querydsl.entity.Member;
+import com.huisam.querydsl.entity.Team;
+import com.huisam.querydsl.repository.MemberRepository;
+import com.huisam.querydsl.repository.TeamRepository;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.huisam.querydsl.entity.QMember.member;
+import static com.huisam.querydsl.entity.QTeam.team;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * in-memory H2 세 개를 primary 와 replica 두 개로 쓴다
+ * 복제는 primary 를 SCRIPT 로 떠서 replica 에 다시 실행하는 것으로 흉내 내고, 복제 뒤에 각 DB 의 회원 수를 다르게 만들어서 어디서 읽었는지 구분한다
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReplicaRoutingDataSourceTest.PRIMARY,
+        "member.datasource.replicas[0].url=" + ReplicaRoutingDataSourceTest.REPLICA_0,
+        "member.datasource.replicas[0].username=sa",
+        "member.datasource.replicas[1].url=" + ReplicaRoutingDataSourceTest.REPLICA_1,
+        "member.datasource.replicas[1].username=sa",
+        "member.search.cache.maximum-size=0",
+        "member.search.count.cache-maximum-size=0"
+})
+class ReplicaRoutingDataSourceTest {
+
+    static final String PRIMARY = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_0 = "jdbc:h2:mem:routing-replica-0;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_1 = "jdbc:h2:mem:routing-replica-1;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    TeamRepository teamRepository;
+
+    final List<HikariDataSource> pools = new ArrayList<>();
+
+    /**
+     * primary 5 명, replica-0 4 명, replica-1 3 명
+     */
+    @BeforeEach
+    void setUp() throws SQLException {
+        transactionTemplate.executeWithoutResult(status -> {
+            final Team teamA = new Team("teamA");
+            em.persist(teamA);
+            for (int i = 1; i <= 4; i++) {
+                em.persist(new Member("member" + i, i * 10, teamA));
+            }
+        });
+        replicate(REPLICA_0);
+        replicate(REPLICA_1);
+        execute(REPLICA_1, "delete from member where username = 'member4'");
+        memberRepository.save(new Member("member5", 50));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            final JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+            queryFactory.delete(member).execute();
+            queryFactory.delete(team).execute();
+        });
+        pools.forEach(HikariDataSource::close);
+    }
+
+    @Test
+    @DisplayName("읽기 전용 repository 조회는 replica 에서 차례로 읽는다")
+    void read_only_repository_calls_use_replicas_test() {
+        /* given */
+        final MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(0);
+
+        /* when */
+        final List<Long> counts = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            counts.add(memberRepository.count());
+            counts.add((long) memberRepository.findAll().size());
+            counts.add(memberRepository.count(member.age.goe(0)));
+            counts.add((long) memberRepository.search(condition).size());
+            counts.add(memberRepository.searchPageSimple(condition, PageRequest.of(0, 10)).getTotalElements());
+            counts.add(memberRepository.searchPageComplex(condition, PageRequest.of(0, 10)).getTotalElements());
+        }
+
+        /* then : primary(5) 에서는 읽지 않고, 두 replica 를 모두 쓴다 */
+        assertThat(counts).containsOnly(4L, 3L).contains(4L, 3L);
+    }
+
+    @Test
+    @DisplayName("쓰기와 쓰기 트랜잭션 안의 조회는 primary 에서 한다")
+    void writes_use_primary_test() {
+        /* when */
+        final Long count = transactionTemplate.execute(status -> {
+            memberRepository.save(new Member("member6", 60));
+            return memberRepository.count();
+        });
+
+        /* then */
+        assertThat(count).isEqualTo(6);
+        assertThat(teamRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("least-busy 는 사용 중인 커넥션이 적은 replica 를 고른다")
+    void least_busy_test() throws SQLException {
+        /* given */
+        final ReplicaRoutingDataSource routing = routing(ReplicaRoutingDataSource.Selection.LEAST_BUSY, null);
+        final List<String> served = new ArrayList<>();
+
+        /* when : replica-0 커넥션을 쥐고 있는 동안에는 replica-1 로만 간다 */
+        readOnly(() -> {
+            try (Connection busy = pools.get(0).getConnection()) {
+                for (int i = 0; i < 4; i++) {
+                    served.add(serve(routing));
+                }
+            }
+        });
+
+        /* then */
+        assertThat(served).containsOnly("routing-replica-1");
+    }
+
+    @Test
+    @DisplayName("max-lag 보다 뒤처졌거나 지연을 잴 수 없는 replica 는 건너뛰고, 쓸 replica 가 없으면 primary 에서 읽는다")
+    void replica_lag_test() throws SQLException {
+        /* given */
+        final ReplicaRoutingDataSource lagging = routing(ReplicaRoutingDataSource.Selection.ROUND_ROBIN,
+                (name, replica) -> name.equals("replica-0") ? Duration.ofSeconds(5) : Duration.ZERO);
+        final ReplicaRoutingDataSource unknown = routing(ReplicaRoutingDataSource.Selection.ROUND_ROBIN,
+                (name, replica) -> {
+                    throw new SQLException("replication stopped");
+                });
+        final List<String> fromLagging = new ArrayList<>();
+        final List<String> fromUnknown = new ArrayList<>();
+
+        /* when */
+        readOnly(() -> {
+            for (int i = 0; i < 4; i++) {
+                fromLagging.add(serve(lagging));
+                fromUnknown.add(serve(unknown));
+            }
+        });
+
+        /* then */
+        assertThat(fromLagging).containsOnly("routing-replica-1");
+        assertThat(fromUnknown).containsOnly("routing-primary");
+    }
+
+    private ReplicaRoutingDataSource routing(ReplicaRoutingDataSource.Selection selection, ReplicaLagProbe lagProbe) {
+        final Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", pool(REPLICA_0));
+        replicas.put("replica-1", pool(REPLICA_1));
+        return new ReplicaRoutingDataSource(pool(PRIMARY), replicas, selection, lagProbe, Duration.ofSeconds(1), Duration.ofMinutes(1));
+    }
+
+    private HikariDataSource pool(String url) {
+        final HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername("sa");
+        pools.add(dataSource);
+        return dataSource;
+    }
+
+    private static String serve(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            final String url = connection.getMetaData().getURL();
+            return url.substring("jdbc:h2:mem:".length());
+        }
+    }
+
+    private static void readOnly(SqlWork work) throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try {
+            work.run();
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        }
+    }
+
+    private static void replicate(String replica) throws SQLException {
+        try (Connection source = DriverManager.getConnection(PRIMARY, "sa", "");
+             Connection target = DriverManager.getConnection(replica, "sa", "");
+             Statement script = source.createStatement();
+             Statement apply = target.createStatement()) {
+            apply.execute("drop all objects");
+            try (ResultSet statements = script.executeQuery("script nopasswords nosettings")) {
+                while (statements.next()) {
+                    if (!statements.getString(1).startsWith("--")) {
+                        apply.execute(statements.getString(1));
+                    }
+                }
+            }
+        }
+    }
+
+    private static void execute(String url, String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SqlWork {
+        void run() throws SQLException;
+    }
+}
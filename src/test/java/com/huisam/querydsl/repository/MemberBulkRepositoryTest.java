@@ -0,0 +1,187 @@
+package com.huisam.querydsl.repository;
+
+import com.huisam.querydsl.dto.BulkOperationResult;
+import com.huisam.querydsl.dto.MemberBulkRow;
+import com.huisam.querydsl.dto.MemberSearchCondition;
+import com.huisam.querydsl.entity.Member;
+import com.huisam.querydsl.entity.Team;
+import com.huisam.querydsl.repository.support.QueryCountExtension;
+import com.huisam.querydsl.repository.support.StatementCounter;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static com.huisam.querydsl.entity.QMember.member;
+import static com.huisam.querydsl.entity.QTeam.team;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 대량 insert 는 batch 마다 커밋하므로 트랜잭션 롤백 없이 확인하고 지운다
+ */
+@SpringBootTest
+@ExtendWith(QueryCountExtension.class)
+class MemberBulkRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberBulkRepository memberBulkRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @AfterEach
+    void cleanUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            final JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+            queryFactory.delete(member).execute();
+            queryFactory.delete(team).execute();
+        });
+    }
+
+    @Test
+    @DisplayName("batch 단위 대량 insert 테스트")
+    void insert_members_test() {
+        /* given */
+        final List<Long> teamIds = memberBulkRepository.insertTeams(List.of("teamA", "teamB"));
+
+        /* when */
+        final BulkOperationResult result = memberBulkRepository.insertMembers(rows(1200, teamIds));
+
+        /* then */
+        assertThat(result.getRows()).isEqualTo(1200);
+        assertThat(countByTeam("teamA")).isEqualTo(600);
+        assertThat(countByTeam("teamB")).isEqualTo(600);
+    }
+
+    @Test
+    @DisplayName("StatelessSession 대량 insert 와 검색 캐시 무효화 테스트")
+    void insert_members_stateless_test() {
+        /* given */
+        final List<Long> teamIds = memberBulkRepository.insertTeams(List.of("teamA", "teamB"));
+        final MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        assertThat(memberJpaRepository.search(condition)).isEmpty();
+
+        /* when */
+        final BulkOperationResult result = memberBulkRepository.insertMembersStateless(rows(1200, teamIds));
+
+        /* then */
+        assertThat(result.getRows()).isEqualTo(1200);
+        assertThat(memberJpaRepository.search(condition)).hasSize(600);
+        assertThat(countByTeam("teamB")).isEqualTo(600);
+    }
+
+    @Test
+    @DisplayName("chunk 단위 대량 update 테스트")
+    void bulk_add_age_test(StatementCounter counter) {
+        /* given */
+        final List<Long> teamIds = memberBulkRepository.insertTeams(List.of("teamA", "teamB"));
+        memberBulkRepository.insertMembers(rows(1200, teamIds));
+        counter.reset();
+
+        /* when */
+        final BulkOperationResult result = memberRepository.bulkAddAge(new MemberSearchCondition(), 1);
+
+        /* then : chunk-size(1000) 씩 두번 나눠서 update 한다 */
+        assertThat(result.getRows()).isEqualTo(1200);
+        assertThat(counter.getStatements()).filteredOn(sql -> sql.contains("update member")).hasSize(1);
+        // id 조회 3번 (마지막은 빈 결과) + update 2번 + chunk 트랜잭션마다 team_stats 를 다시 만들라는 표시 2번
+        assertThat(counter.getTotal()).isEqualTo(7);
+        assertThat(sumOfAges()).isEqualTo(IntStream.range(0, 1200).map(i -> i % 100 + 1).sum());
+    }
+
+    @Test
+    @DisplayName("대량 update 뒤에는 영속성 컨텍스트의 회원과 팀을 다시 읽는다")
+    void bulk_update_persistence_context_test() {
+        /* given */
+        final List<Long> teamIds = memberBulkRepository.insertTeams(List.of("teamA", "teamB"));
+        memberBulkRepository.insertMembers(rows(1200, teamIds));
+        final MemberSearchCondition young = new MemberSearchCondition();
+        young.setTeamName("teamA");
+        young.setAgeLoe(9);
+        final MemberSearchCondition old = new MemberSearchCondition();
+        old.setTeamName("teamA");
+        old.setAgeGoe(100);
+
+        /* when */
+        transactionTemplate.executeWithoutResult(status -> {
+            final Member loaded = new JPAQueryFactory(em).selectFrom(member).where(member.username.eq("member0")).fetchOne();
+            final Team teamA = em.find(Team.class, teamIds.get(0));
+            assertThat(teamA.getMembers()).hasSize(600);
+
+            final BulkOperationResult added = memberRepository.bulkAddAge(young, 100);
+            final BulkOperationResult moved = memberRepository.bulkChangeTeam(old, teamIds.get(1));
+
+            /* then */
+            assertThat(added.getRows()).isEqualTo(60);
+            assertThat(moved.getRows()).isEqualTo(60);
+            assertThat(em.contains(loaded)).isFalse();
+            final Member reloaded = em.find(Member.class, loaded.getId());
+            assertThat(reloaded.getAge()).isEqualTo(100);
+            assertThat(reloaded.getTeam().getId()).isEqualTo(teamIds.get(1));
+            assertThat(em.contains(teamA)).isFalse();
+            assertThat(em.find(Team.class, teamIds.get(0)).getMembers()).hasSize(540);
+        });
+    }
+
+    @Test
+    @DisplayName("chunk 단위 팀 변경과 삭제 테스트")
+    void bulk_change_team_and_delete_test() {
+        /* given */
+        final List<Long> teamIds = memberBulkRepository.insertTeams(List.of("teamA", "teamB"));
+        memberBulkRepository.insertMembers(rows(1200, teamIds));
+        final MemberSearchCondition teamA = new MemberSearchCondition();
+        teamA.setTeamName("teamA");
+        teamA.setAgeLoe(9);
+        final MemberSearchCondition teamB = new MemberSearchCondition();
+        teamB.setTeamName("teamB");
+
+        /* when */
+        final BulkOperationResult moved = memberRepository.bulkChangeTeam(teamA, teamIds.get(1));
+        final BulkOperationResult deleted = memberRepository.bulkDelete(teamB);
+
+        /* then */
+        assertThat(moved.getRows()).isEqualTo(60);
+        assertThat(deleted.getRows()).isEqualTo(660);
+        assertThat(deleted.getRowsPerSecond()).isPositive();
+        assertThat(countByTeam("teamA")).isEqualTo(540);
+        assertThat(countByTeam("teamB")).isZero();
+    }
+
+    private Iterator<MemberBulkRow> rows(int count, List<Long> teamIds) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new MemberBulkRow("member" + i, i % 100, teamIds.get(i % teamIds.size())))
+                .iterator();
+    }
+
+    private int sumOfAges() {
+        return new JPAQueryFactory(em).select(member.age.sum()).from(member).fetchOne();
+    }
+
+    private long countByTeam(String teamName) {
+        return new JPAQueryFactory(em)
+                .select(member.count())
+                .from(member)
+                .join(member.team, team)
+                .where(team.name.eq(teamName))
+                .fetchOne();
+    }
+}
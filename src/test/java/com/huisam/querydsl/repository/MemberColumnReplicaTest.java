@@ -0,0 +1,207 @@
+package com.huisam.querydsl.repository;
+
+import com.huisam.querydsl.dto.MemberSearchCondition;
+import com.huisam.querydsl.entity.Member;
+import com.huisam.querydsl.entity.Team;
+import com.huisam.querydsl.repository.support.MemberColumnReplica;
+import com.huisam.querydsl.repository.support.QueryCountExtension;
+import com.huisam.querydsl.repository.support.StatementCounter;
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.huisam.querydsl.entity.QMember.member;
+import static com.huisam.querydsl.entity.QTeam.team;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 복제본은 커밋할 때 고쳐지므로 트랜잭션 롤백 없이 확인하고 지운다
+ * 같은 Predicate 를 JPAQueryFactory 로 직접 읽은 결과와 비교한다
+ */
+@SpringBootTest(properties = {
+        "member.replica.in-memory.enabled=true",
+        "member.replica.in-memory.refresh-interval=2s"
+})
+@ExtendWith(QueryCountExtension.class)
+class MemberColumnReplicaTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberColumnReplica replica;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    JPAQueryFactory queryFactory;
+
+    @BeforeEach
+    void setUp() {
+        queryFactory = new JPAQueryFactory(em);
+        transactionTemplate.executeWithoutResult(status -> {
+            final Team teamA = new Team("teamA");
+            final Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamB));
+            em.persist(new Member("member4", 40, teamB));
+            em.persist(new Member("member5", 50));
+        });
+        replica.reload();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            queryFactory.delete(member).execute();
+            queryFactory.delete(team).execute();
+        });
+    }
+
+    @Test
+    @DisplayName("커밋된 회원, 팀 쓰기가 복제본에 반영되고, count / exists 는 SQL 없이 JPA 와 같은 결과를 돌려준다")
+    void evaluate_in_memory_test(StatementCounter counter) {
+        /* given */
+        transactionTemplate.executeWithoutResult(status -> {
+            final Member member1 = findMember("member1");
+            member1.setAge(11);
+            member1.changeTeam(findTeam("teamB"));
+            findMember("member5").changeTeam(findTeam("teamA"));
+            em.remove(findMember("member4"));
+            findTeam("teamB").setName("teamC");
+            em.persist(new Member("member6", 60, findTeam("teamA")));
+        });
+        counter.reset();
+
+        /* when & then */
+        for (Predicate predicate : predicates()) {
+            final List<Long> expected = queryFactory.select(member.id).from(member).where(predicate).orderBy(member.id.asc()).fetch();
+            counter.reset();
+            assertThat(memberRepository.count(predicate)).as(String.valueOf(predicate)).isEqualTo(expected.size());
+            assertThat(memberRepository.exists(predicate)).as(String.valueOf(predicate)).isEqualTo(!expected.isEmpty());
+            assertThat(counter.getStatements()).as(String.valueOf(predicate)).isEmpty();
+            assertThat(memberRepository.findAll(predicate)).as(String.valueOf(predicate)).extracting("id").containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    @DisplayName("findAll(Predicate, Pageable) 은 복제본에서 정렬하고 잘라낸 id 만 DB 에서 읽는다")
+    void page_test(StatementCounter counter) {
+        /* given */
+        final PageRequest pageable = PageRequest.of(1, 2, Sort.by(Sort.Order.desc("age"), Sort.Order.asc("username")));
+        counter.reset();
+
+        /* when */
+        final Page<Member> page = memberRepository.findAll(member.age.goe(20), pageable);
+
+        /* then */
+        assertThat(page.getTotalElements()).isEqualTo(4);
+        assertThat(page.getContent()).extracting("username").containsExactly("member3", "member2");
+        assertThat(counter.getStatements()).hasSize(1).allMatch(sql -> sql.contains(" in ("));
+    }
+
+    @Test
+    @DisplayName("계산할 수 없는 Predicate, 정렬과 롤백된 쓰기, bulk 쓰기 뒤에는 JPA 로 읽는다")
+    void fall_back_to_jpa_test(StatementCounter counter) {
+        /* given */
+        transactionTemplate.executeWithoutResult(status -> {
+            findMember("member1").setAge(99);
+            em.persist(new Member("member6", 60));
+            em.flush();
+            status.setRollbackOnly();
+        });
+        counter.reset();
+
+        /* when & then : 롤백된 쓰기는 복제본에 없다 */
+        assertThat(memberRepository.count(member.age.goe(60))).isZero();
+        assertThat(counter.getStatements()).isEmpty();
+
+        assertThat(memberRepository.count(member.username.upper().eq("MEMBER1"))).isEqualTo(1);
+        assertThat(memberRepository.findAll(member.age.goe(0), PageRequest.of(0, 2, Sort.by("team.name"))).getTotalElements()).isEqualTo(5);
+        assertThat(counter.getStatements()).hasSize(3);
+
+        final MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        memberRepository.bulkAddAge(condition, 5);
+        assertThat(replica.isAvailable()).isFalse();
+        assertThat(memberRepository.count(member.age.eq(15))).isEqualTo(1);
+
+        replica.reload();
+        counter.reset();
+        assertThat(memberRepository.count(member.age.eq(15))).isEqualTo(1);
+        assertThat(counter.getStatements()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("다른 노드나 Hibernate 를 거치지 않은 쓰기는 refresh-interval 이 지나면 다시 읽어서 반영한다")
+    void refresh_interval_test(StatementCounter counter) throws Exception {
+        /* given : 이 JVM 의 Hibernate 를 거치지 않은 쓰기는 복제본이 모른다 */
+        jdbcTemplate.update("update member set age = age + 1");
+        counter.reset();
+        assertThat(memberRepository.count(member.age.eq(11))).isZero();
+        assertThat(counter.getStatements()).isEmpty();
+
+        /* when */
+        Thread.sleep(2_100);
+
+        /* then : 간격이 지나면 다시 읽을 때까지 JPA 로 읽는다 */
+        assertThat(replica.isAvailable()).isFalse();
+        assertThat(memberRepository.count(member.age.eq(11))).isEqualTo(1);
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!replica.isAvailable() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        counter.reset();
+        assertThat(memberRepository.count(member.age.eq(11))).isEqualTo(1);
+        assertThat(counter.getStatements()).isEmpty();
+    }
+
+    private static List<Predicate> predicates() {
+        return List.of(
+                member.age.goe(20),
+                member.age.between(11, 40).and(member.team.name.eq("teamA")),
+                member.username.eq("member5").or(member.team.name.eq("teamC")),
+                member.username.like("member_").and(member.age.lt(30)),
+                member.username.startsWith("member").and(member.age.gt(40)),
+                member.team.name.in("teamA", "teamC").or(member.age.in(50, 60)),
+                member.age.in(11, 30, 60),
+                member.username.in("member1", "member4", "nobody"),
+                member.team.name.like("%C").or(member.id.loe(0L)),
+                new BooleanBuilder(member.age.loe(40)).and(member.username.contains("ber"))
+        );
+    }
+
+    private Team findTeam(String name) {
+        return queryFactory.selectFrom(team).where(team.name.eq(name)).fetchOne();
+    }
+
+    private Member findMember(String username) {
+        return queryFactory.selectFrom(member).where(member.username.eq(username)).fetchOne();
+    }
+}
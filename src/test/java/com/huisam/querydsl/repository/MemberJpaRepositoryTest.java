@@ -11,9 +11,11 @@ import org.springframework.boot.test.context.SpringBootTest;
 
 import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 @SpringBootTest
 @Transactional
@@ -88,4 +90,81 @@ class MemberJpaRepositoryTest {
         assertThat(result).extracting("username")
                 .containsExactly("member4");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("search stream 테스트")
+    void search_stream_test() {
+        /* given */
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        final MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+
+        /* when */
+        final List<MemberTeamDto> result = new ArrayList<>();
+        final long count = memberJpaRepository.searchStream(condition, result::add);
+
+        /* then */
+        assertThat(count).isEqualTo(2);
+        assertThat(result).extracting("username")
+                .containsExactly("member3", "member4");
+        assertThat(result).extracting("teamName")
+                .containsOnly("teamB");
+    }
+
+    @Test
+    @DisplayName("search jdbc projection 테스트")
+    void search_jdbc_test() {
+        /* given */
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20));
+
+        final MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+
+        /* when */
+        final List<MemberTeamDto> result = memberJpaRepository.searchJdbc(condition);
+
+        /* then : search 와 같은 결과, 팀이 없으면 teamId 는 null */
+        assertThat(result).isEqualTo(memberJpaRepository.search(condition));
+        assertThat(result).extracting("username", "age", "teamId", "teamName")
+                .containsExactly(tuple("member1", 10, teamA.getId(), "teamA"), tuple("member2", 20, null, null));
+    }
+
+    @Test
+    @DisplayName("search 컬럼 batch 테스트")
+    void search_columns_test() {
+        /* given */
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("member" + i, i, teamA));
+        }
+
+        /* when */
+        final List<Integer> batchSizes = new ArrayList<>();
+        final List<String> usernames = new ArrayList<>();
+        final long count = memberJpaRepository.searchColumns(new MemberSearchCondition(), 3, columns -> {
+            batchSizes.add(columns.size());
+            for (int row = 0; row < columns.size(); row++) {
+                usernames.add(columns.username(row));
+                assertThat(columns.teamId(row)).isEqualTo(teamA.getId());
+            }
+        });
+
+        /* then */
+        assertThat(count).isEqualTo(5);
+        assertThat(batchSizes).containsExactly(3, 2);
+        assertThat(usernames).containsExactly("member0", "member1", "member2", "member3", "member4");
+    }
+}
@@ -0,0 +1,136 @@
+package com.huisam.querydsl.repository;
+
+import com.huisam.querydsl.config.RepositorySupportConfig;
+import com.huisam.querydsl.dto.MemberSearchCondition;
+import com.huisam.querydsl.dto.MemberTeamDto;
+import com.huisam.querydsl.entity.Member;
+import com.huisam.querydsl.entity.Team;
+import com.huisam.querydsl.repository.support.QueryCountExtension;
+import com.huisam.querydsl.repository.support.StatementCounter;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * MemberRepositoryImpl 이 만드는 검색 쿼리가 인덱스를 타는지 H2 의 EXPLAIN 으로 확인한다
+ * 조건이 하나라도 있는 모든 조건 조합에 대해 content, count, keyset 쿼리를 실행해 보고, 실행된 SQL 의 실행 계획에 tableScan 이 있으면 실패한다
+ */
+@DataJpaTest
+@Import(RepositorySupportConfig.class)
+@Transactional
+@ExtendWith(QueryCountExtension.class)
+class MemberRepositoryIndexTest {
+
+    private static final String TABLE_SCAN = "tableScan";
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 10; i++) {
+            final Team team = new Team("team" + i);
+            em.persist(team);
+            for (int j = 0; j < 100; j++) {
+                em.persist(new Member("member" + j, j, team));
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    @DisplayName("검색 쿼리 인덱스 사용 테스트")
+    void search_uses_index_test(StatementCounter counter) {
+        /* given */
+        counter.reset();
+
+        /* when */
+        for (MemberSearchCondition condition : conditions()) {
+            memberRepository.search(condition);
+            // 두번째 페이지가 비어 있어야 count 까지 실행된다
+            memberRepository.searchPageSimple(condition, PageRequest.of(100, 10));
+            for (String sortKey : List.of("id", "username", "age")) {
+                final PageRequest pageable = PageRequest.of(0, 10, Sort.by(sortKey));
+                final String cursor = memberRepository.searchByCursor(condition, null, pageable).getNextCursor();
+                memberRepository.searchByCursor(condition, cursor, pageable);
+            }
+        }
+
+        /* then */
+        final Map<String, String> plans = explain(counter);
+        assertThat(plans).isNotEmpty();
+        plans.forEach((sql, plan) -> assertThat(plan).as(sql).doesNotContain(TABLE_SCAN));
+    }
+
+    @Test
+    @DisplayName("조건 없는 검색은 tableScan 으로 잡힌다")
+    void explain_detects_table_scan_test(StatementCounter counter) {
+        /* given */
+        counter.reset();
+
+        /* when */
+        memberRepository.search(new MemberSearchCondition());
+
+        /* then */
+        assertThat(explain(counter).values()).anySatisfy(plan -> assertThat(plan).contains(TABLE_SCAN));
+    }
+
+    /**
+     * userName, teamName, ageGoe, ageLoe 중 하나 이상이 있는 15 가지 조합
+     */
+    private static List<MemberSearchCondition> conditions() {
+        final List<MemberSearchCondition> conditions = new ArrayList<>();
+        for (int shape = 1; shape < 1 << 4; shape++) {
+            final MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUserName((shape & 1) != 0 ? "member1" : null);
+            condition.setTeamName((shape & 1 << 1) != 0 ? "team1" : null);
+            condition.setAgeGoe((shape & 1 << 2) != 0 ? 90 : null);
+            condition.setAgeLoe((shape & 1 << 3) != 0 ? 95 : null);
+            conditions.add(condition);
+        }
+        return conditions;
+    }
+
+    /**
+     * 실행된 SQL 마다 바인드 값 없이 EXPLAIN 한 실행 계획
+     */
+    private Map<String, String> explain(StatementCounter counter) {
+        final Map<String, String> plans = new LinkedHashMap<>();
+        em.unwrap(Session.class).doWork(connection -> {
+            for (String sql : counter.getStatements()) {
+                try (PreparedStatement statement = connection.prepareStatement("explain " + sql)) {
+                    for (int i = 1; i <= statement.getParameterMetaData().getParameterCount(); i++) {
+                        statement.setObject(i, null);
+                    }
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        resultSet.next();
+                        plans.put(sql, resultSet.getString(1));
+                    }
+                }
+            }
+        });
+        return plans;
+    }
+}
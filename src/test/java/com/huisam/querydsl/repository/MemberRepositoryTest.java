@@ -1,25 +1,41 @@
 package com.huisam.querydsl.repository;
 
+import com.huisam.querydsl.codec.MemberColumnarDecoder;
+import com.huisam.querydsl.codec.MemberColumnarEncoder;
+import com.huisam.querydsl.config.RepositorySupportConfig;
+import com.huisam.querydsl.dto.CursorPage;
 import com.huisam.querydsl.dto.MemberSearchCondition;
 import com.huisam.querydsl.dto.MemberTeamDto;
 import com.huisam.querydsl.entity.Member;
 import com.huisam.querydsl.entity.QMember;
 import com.huisam.querydsl.entity.Team;
+import com.huisam.querydsl.repository.support.MemberSearchQueryCompiler;
+import com.huisam.querydsl.repository.support.QueryCountExtension;
+import com.huisam.querydsl.repository.support.StatementCounter;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 
 import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 @DataJpaTest
+@Import(RepositorySupportConfig.class)
 @Transactional
+@ExtendWith(QueryCountExtension.class)
 class MemberRepositoryTest {
     @Autowired
     EntityManager em;
@@ -27,6 +43,12 @@ class MemberRepositoryTest {
     @Autowired
     MemberRepository memberRepository;
 
+    @Autowired
+    TeamRepository teamRepository;
+
+    @Autowired
+    MemberSearchQueryCompiler queryCompiler;
+
     @Test
     @DisplayName("기본 테스트")
     void basic_test() {
@@ -104,6 +126,177 @@ class MemberRepositoryTest {
         assertThat(result.getSize()).isEqualTo(3);
     }
 
+    @Test
+    @DisplayName("search page 컬럼 바이너리 테스트")
+    void search_page_columns_test() {
+        /* given */
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 1; i <= 4; i++) {
+            em.persist(new Member("member" + i, i * 10, i % 2 == 0 ? teamA : null));
+        }
+        final MemberSearchCondition condition = new MemberSearchCondition();
+
+        for (PageRequest pageRequest : List.of(PageRequest.of(0, 3), PageRequest.of(1, 3))) {
+            /* when */
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final MemberColumnarEncoder encoder = new MemberColumnarEncoder(out, 2);
+            final long total = memberRepository.searchPageColumns(condition, pageRequest, 2, encoder::write);
+            encoder.finish(total, pageRequest.getPageNumber(), pageRequest.getPageSize());
+
+            /* then : searchPageSimple 과 같은 페이지 */
+            final Page<MemberTeamDto> expected = memberRepository.searchPageSimple(condition, pageRequest);
+            assertThat(MemberColumnarDecoder.decode(new ByteArrayInputStream(out.toByteArray()))).isEqualTo(expected.getContent());
+            assertThat(total).isEqualTo(expected.getTotalElements()).isEqualTo(4);
+        }
+    }
+
+    @Test
+    @DisplayName("search pagination count 테스트")
+    void search_page_count_test() {
+        /* given */
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 50));
+
+        final MemberSearchCondition condition = new MemberSearchCondition();
+        final MemberSearchCondition teamCondition = new MemberSearchCondition();
+        teamCondition.setTeamName("teamB");
+        final PageRequest pageRequest = PageRequest.of(0, 2);
+
+        /* when */
+        final Page<MemberTeamDto> result = memberRepository.searchPageComplex(condition, pageRequest);
+        final Page<MemberTeamDto> teamResult = memberRepository.searchPageComplex(teamCondition, pageRequest);
+
+        /* then */
+        assertThat(result.getTotalElements()).isEqualTo(5);
+        assertThat(teamResult.getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("countUpTo 는 회원을 읽지 않고 DB 에서 최대 limit 건까지만 센다")
+    void count_up_to_test(StatementCounter counter) {
+        /* given */
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 1; i <= 5; i++) {
+            em.persist(new Member("member" + i, i * 10, teamA));
+        }
+        em.flush();
+        em.clear();
+        counter.reset();
+
+        final MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+
+        /* when */
+        final long limited = queryCompiler.countUpTo(condition, 3);
+        final long all = queryCompiler.countUpTo(condition, 10);
+
+        /* then */
+        assertThat(limited).isEqualTo(3);
+        assertThat(all).isEqualTo(4);
+        assertThat(counter.getStatements()).allMatch(sql -> sql.startsWith("select count(*) from ("));
+    }
+
+    @Test
+    @DisplayName("search slice 는 count 쿼리 없이 한 건 더 읽어서 다음 페이지가 있는지 판단한다")
+    void search_slice_test(StatementCounter counter) {
+        /* given */
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 1; i <= 5; i++) {
+            em.persist(new Member("member" + i, i * 10, teamA));
+        }
+        em.flush();
+        em.clear();
+        counter.reset();
+
+        final MemberSearchCondition condition = new MemberSearchCondition();
+
+        /* when */
+        final Slice<MemberTeamDto> first = memberRepository.searchSlice(condition, PageRequest.of(0, 2));
+        final Slice<MemberTeamDto> second = memberRepository.searchSlice(condition, PageRequest.of(1, 2));
+        final Slice<MemberTeamDto> last = memberRepository.searchSlice(condition, PageRequest.of(2, 2));
+
+        /* then */
+        assertThat(first.getContent()).extracting("username").containsExactly("member1", "member2");
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.getContent()).extracting("username").containsExactly("member3", "member4");
+        assertThat(second.hasNext()).isTrue();
+        assertThat(last.getContent()).extracting("username").containsExactly("member5");
+        assertThat(last.hasNext()).isFalse();
+        assertThat(counter.getTotal()).isEqualTo(3);
+        assertThat(counter.getStatements()).noneMatch(sql -> sql.contains("count("));
+    }
+
+    @Test
+    @DisplayName("search keyset pagination 테스트")
+    void search_cursor_test() {
+        /* given */
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 40, teamB));
+
+        final MemberSearchCondition condition = new MemberSearchCondition();
+        final PageRequest pageRequest = PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "age"));
+
+        /* when */
+        final List<String> usernames = new ArrayList<>();
+        String cursor = null;
+        do {
+            final CursorPage<MemberTeamDto> page = memberRepository.searchByCursor(condition, cursor, pageRequest);
+            page.getContent().forEach(dto -> usernames.add(dto.getUsername()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        /* then */
+        assertThat(usernames).containsExactly("member5", "member4", "member3", "member2", "member1");
+    }
+
+    @Test
+    @DisplayName("search keyset pagination null 정렬 키 테스트")
+    void search_cursor_null_key_test() {
+        /* given */
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member(null, 20, teamA));
+        em.persist(new Member("member2", 30, teamA));
+        em.persist(new Member(null, 40, teamA));
+
+        final MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        final PageRequest pageRequest = PageRequest.of(0, 1, Sort.by("username"));
+
+        /* when */
+        final List<Integer> ages = new ArrayList<>();
+        String cursor = null;
+        do {
+            final CursorPage<MemberTeamDto> page = memberRepository.searchByCursor(condition, cursor, pageRequest);
+            page.getContent().forEach(dto -> ages.add(dto.getAge()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        /* then */
+        assertThat(ages).containsExactly(20, 40, 10, 30);
+    }
+
     @Test
     @DisplayName("queryDsl Predicate 테스트")
     void test_queryDsl_predicate() {
@@ -128,4 +321,119 @@ class MemberRepositoryTest {
             System.out.println("member1 = " + member);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("N+1 감지 테스트")
+    void n_plus_one_detect_test(StatementCounter counter) {
+        /* given */
+        em.persist(new Member("member1", 10));
+        em.persist(new Member("member2", 20));
+        em.flush();
+        em.clear();
+        counter.reset();
+
+        /* when : 회원 이름마다 따로 조회한다 */
+        for (String username : List.of("member1", "member2")) {
+            memberRepository.findByUsername(username);
+        }
+
+        /* then */
+        assertThat(counter.getTotal()).isEqualTo(2);
+        assertThat(counter.getRepeated()).hasSize(1);
+        assertThat(counter.getMaxRepeated()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("member.team, team.members 는 팀 수와 상관없이 batch fetch 한번으로 읽는다")
+    void batch_fetch_test(StatementCounter counter) {
+        for (int teamCount : new int[]{2, 20}) {
+            /* given */
+            persistTeams(teamCount);
+            counter.reset();
+
+            /* when */
+            final List<String> teamNames = new ArrayList<>();
+            for (Member member : memberRepository.findAll()) {
+                teamNames.add(member.getTeam().getName());
+            }
+            int members = 0;
+            for (Team team : teamRepository.findAll()) {
+                members += team.getMembers().size();
+            }
+
+            /* then : member 조회, team batch, team 조회, members batch */
+            assertThat(teamNames).hasSize(teamCount * 2);
+            assertThat(members).isEqualTo(teamCount * 2);
+            assertThat(counter.getTotal()).isEqualTo(4);
+            assertThat(counter.getMaxRepeated()).isEqualTo(1);
+
+            memberRepository.deleteAllInBatch();
+            teamRepository.deleteAllInBatch();
+        }
+    }
+
+    @Test
+    @DisplayName("Member.team 그래프 finder 는 team 을 같이 읽는다")
+    void entity_graph_finder_test(StatementCounter counter) {
+        for (int teamCount : new int[]{2, 20}) {
+            /* given */
+            persistTeams(teamCount);
+            counter.reset();
+
+            /* when */
+            final List<Member> all = memberRepository.findAllWithTeam();
+            final List<Member> byUsername = memberRepository.findWithTeamByUsername("member0-0");
+            final List<Member> byPredicate = memberRepository.findAllWithTeam(QMember.member.age.goe(10));
+
+            /* then */
+            assertThat(all).hasSize(teamCount * 2);
+            assertThat(byUsername).hasSize(1);
+            assertThat(byPredicate).hasSize(teamCount);
+            assertThat(all).allMatch(member -> em.getEntityManagerFactory().getPersistenceUnitUtil().isLoaded(member.getTeam()));
+            assertThat(byPredicate).allMatch(member -> em.getEntityManagerFactory().getPersistenceUnitUtil().isLoaded(member.getTeam()));
+            assertThat(counter.getTotal()).isEqualTo(3);
+            assertThat(counter.getStatements()).allMatch(sql -> sql.contains("left outer join team"));
+
+            memberRepository.deleteAllInBatch();
+            teamRepository.deleteAllInBatch();
+        }
+    }
+
+    @Test
+    @DisplayName("search 쿼리 수 테스트")
+    void search_query_count_test(StatementCounter counter) {
+        /* given */
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.flush();
+        em.clear();
+        counter.reset();
+
+        final MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        /* when */
+        final List<MemberTeamDto> result = memberRepository.search(condition);
+
+        /* then : team 까지 한번에 읽는다 */
+        assertThat(result).extracting("teamName").containsExactly("teamA", "teamA");
+        assertThat(counter.getTotal()).isEqualTo(1);
+        assertThat(counter.getRepeated()).isEmpty();
+    }
+
+    /**
+     * 팀마다 나이 0, 10 인 회원 두 명
+     */
+    private void persistTeams(int teamCount) {
+        for (int i = 0; i < teamCount; i++) {
+            final Team team = new Team("team" + i);
+            em.persist(team);
+            em.persist(new Member("member" + i + "-0", 0, team));
+            em.persist(new Member("member" + i + "-1", 10, team));
+        }
+        em.flush();
+        em.clear();
+    }
+}
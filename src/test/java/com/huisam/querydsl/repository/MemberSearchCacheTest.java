@@ -0,0 +1,191 @@
+package com.huisam.querydsl.repository;
+
+import com.huisam.querydsl.dto.MemberSearchCondition;
+import com.huisam.querydsl.dto.MemberTeamDto;
+import com.huisam.querydsl.entity.Member;
+import com.huisam.querydsl.entity.Team;
+import com.huisam.querydsl.repository.support.CacheWriteVersion;
+import com.huisam.querydsl.repository.support.MemberSearchCache;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.List;
+
+import static com.huisam.querydsl.entity.QMember.member;
+import static com.huisam.querydsl.entity.QTeam.team;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 캐시는 쓰기 트랜잭션 밖에서만 쓰이므로 트랜잭션 롤백 없이 실제로 커밋하면서 확인한다
+ */
+@SpringBootTest
+class MemberSearchCacheTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    MemberSearchCache searchCache;
+
+    @AfterEach
+    void cleanUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            final JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+            queryFactory.delete(member).execute();
+            queryFactory.delete(team).execute();
+        });
+    }
+
+    @Test
+    @DisplayName("검색 결과 캐시와 쓰기 무효화 테스트")
+    void search_cache_test() {
+        /* given */
+        final Long teamId = transactionTemplate.execute(status -> {
+            final Team teamA = new Team("teamA");
+            em.persist(teamA);
+            memberJpaRepository.save(new Member("member1", 10, teamA));
+            return teamA.getId();
+        });
+
+        final MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        final long hitCount = searchCache.stats().hitCount();
+
+        /* when */
+        memberJpaRepository.search(condition);
+        final List<MemberTeamDto> cached = memberJpaRepository.search(condition);
+
+        /* then */
+        assertThat(searchCache.stats().hitCount()).isEqualTo(hitCount + 1);
+        assertThat(cached).extracting("username").containsExactly("member1");
+
+        /* when : save 하면 같은 조건의 결과가 비워진다 */
+        transactionTemplate.executeWithoutResult(status ->
+                memberJpaRepository.save(new Member("member2", 20, em.find(Team.class, teamId))));
+
+        /* then */
+        assertThat(memberJpaRepository.search(condition)).extracting("username")
+                .containsExactly("member1", "member2");
+
+        /* when : bulk update 도 결과를 비운다 */
+        transactionTemplate.executeWithoutResult(status -> new JPAQueryFactory(em)
+                .update(member)
+                .set(member.username, "renamed")
+                .where(member.age.goe(20))
+                .execute());
+
+        /* then */
+        assertThat(memberJpaRepository.search(condition)).extracting("username")
+                .containsExactly("member1", "renamed");
+    }
+
+    @Test
+    @DisplayName("id 조건 하나로 끝나는 bulk update, delete 도 엔티티 쓰기와 구분해서 결과를 비운다")
+    void search_cache_bulk_by_id_test() {
+        /* given */
+        final Long memberId = transactionTemplate.execute(status -> {
+            final Team teamA = new Team("teamA");
+            em.persist(teamA);
+            final Member member1 = new Member("member1", 10, teamA);
+            memberJpaRepository.save(member1);
+            return member1.getId();
+        });
+
+        final MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        memberJpaRepository.search(condition);
+
+        /* when */
+        transactionTemplate.executeWithoutResult(status -> new JPAQueryFactory(em)
+                .update(member)
+                .set(member.username, "renamed")
+                .where(member.id.eq(memberId))
+                .execute());
+
+        /* then */
+        assertThat(memberJpaRepository.search(condition)).extracting("username").containsExactly("renamed");
+
+        /* when */
+        transactionTemplate.executeWithoutResult(status -> new JPAQueryFactory(em)
+                .delete(member)
+                .where(member.id.eq(memberId))
+                .execute());
+
+        /* then */
+        assertThat(memberJpaRepository.search(condition)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("읽는 동안 비워졌거나 replica 가 쓰기를 따라잡기 전에 읽은 결과는 캐시에 넣지 않는다")
+    void search_cache_write_version_test() throws InterruptedException {
+        /* given : replica max-lag 300ms */
+        final MemberSearchCache cache = new MemberSearchCache(Duration.ofSeconds(30), 100,
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class),
+                new CacheWriteVersion("jdbc:h2:mem:replica", Duration.ofMillis(300)));
+        final MemberSearchCondition condition = new MemberSearchCondition();
+        final PageRequest pageable = PageRequest.of(0, 10);
+
+        /* when : 비운 직후에 읽은 결과 */
+        cache.invalidateIf(c -> true);
+        cache.get("search", condition, pageable, () -> "lagging");
+
+        /* then */
+        assertThat(cache.get("search", condition, pageable, () -> "fresh")).isEqualTo("fresh");
+
+        /* when : max-lag 이 지난 뒤에 읽은 결과 */
+        Thread.sleep(400);
+        cache.get("search", condition, pageable, () -> "settled");
+
+        /* then */
+        assertThat(cache.get("search", condition, pageable, () -> "reloaded")).isEqualTo("settled");
+
+        /* when : 읽는 동안 비워진 결과 */
+        cache.invalidateIf(c -> true);
+        Thread.sleep(400);
+        cache.get("search", condition, pageable, () -> {
+            cache.invalidateIf(c -> true);
+            return "before write";
+        });
+
+        /* then */
+        assertThat(cache.get("search", condition, pageable, () -> "after write")).isEqualTo("after write");
+    }
+
+    @Test
+    @DisplayName("cacheable 이 거절한 결과는 넣지 않고, 다른 키에서 읽고 있던 결과도 막지 않는다")
+    void search_cache_not_cacheable_test() {
+        /* given */
+        final MemberSearchCache cache = new MemberSearchCache(Duration.ofSeconds(30), 100,
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class),
+                new CacheWriteVersion("", Duration.ofSeconds(1)));
+        final MemberSearchCondition condition = new MemberSearchCondition();
+        final PageRequest first = PageRequest.of(0, 10);
+        final PageRequest second = PageRequest.of(1, 10);
+
+        /* when : first 를 읽는 동안 second 의 결과를 거절한다 */
+        cache.get("search", condition, first, () -> {
+            cache.get("search", condition, second, () -> "unknown total", loaded -> false);
+            return "first";
+        });
+
+        /* then */
+        assertThat(cache.get("search", condition, second, () -> "recounted")).isEqualTo("recounted");
+        assertThat(cache.get("search", condition, first, () -> "reloaded")).isEqualTo("first");
+    }
+}
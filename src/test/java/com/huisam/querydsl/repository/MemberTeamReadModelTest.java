@@ -0,0 +1,284 @@
+package com.huisam.querydsl.repository;
+
+import com.huisam.querydsl.dto.MemberSearchCondition;
+import com.huisam.querydsl.dto.MemberTeamDto;
+import com.huisam.querydsl.entity.Member;
+import com.huisam.querydsl.entity.Team;
+import com.huisam.querydsl.repository.support.MemberTeamReadModel;
+import com.huisam.querydsl.repository.support.QueryCountExtension;
+import com.huisam.querydsl.repository.support.StatementCounter;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.huisam.querydsl.entity.QMember.member;
+import static com.huisam.querydsl.entity.QMemberTeam.memberTeam;
+import static com.huisam.querydsl.entity.QTeam.team;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 읽기 모델은 커밋할 때 고쳐지므로 트랜잭션 롤백 없이 확인하고 지운다
+ * 같은 조건을 team 을 join 하는 searchByBuilder 와 비교한다
+ */
+@SpringBootTest(properties = {
+        "member.search.read-model.enabled=true",
+        "member.search.cache.maximum-size=0",
+        "member.search.count.cache-maximum-size=0",
+        "member.search.read-model.version-check-interval=100ms"
+})
+@ExtendWith(QueryCountExtension.class)
+class MemberTeamReadModelTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberTeamReadModel readModel;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    JPAQueryFactory queryFactory;
+
+    @BeforeEach
+    void setUp() {
+        queryFactory = new JPAQueryFactory(em);
+        readModel.rebuild();
+        transactionTemplate.executeWithoutResult(status -> {
+            final Team teamA = new Team("teamA");
+            final Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamB));
+            em.persist(new Member("member4", 40, teamB));
+            em.persist(new Member("member5", 50));
+        });
+    }
+
+    @AfterEach
+    void cleanUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            queryFactory.delete(member).execute();
+            queryFactory.delete(team).execute();
+            queryFactory.delete(memberTeam).execute();
+        });
+    }
+
+    @Test
+    @DisplayName("회원, 팀 쓰기가 커밋될 때 읽기 모델도 고쳐지고, 검색은 join 없이 같은 결과를 돌려준다")
+    void search_without_join_test(StatementCounter counter) {
+        /* given */
+        transactionTemplate.executeWithoutResult(status -> {
+            final Member member1 = findMember("member1");
+            member1.setAge(11);
+            member1.changeTeam(findTeam("teamB"));
+            findMember("member5").changeTeam(findTeam("teamA"));
+            em.remove(findMember("member4"));
+            findTeam("teamB").setName("teamC");
+            em.persist(new Member("member6", 60, findTeam("teamA")));
+        });
+        counter.reset();
+
+        /* when & then */
+        for (MemberSearchCondition condition : conditions()) {
+            assertThat(memberRepository.search(condition))
+                    .usingRecursiveFieldByFieldElementComparator()
+                    .containsExactlyInAnyOrderElementsOf(memberJpaRepository.searchByBuilder(condition));
+            assertThat(memberRepository.searchPageComplex(condition, PageRequest.of(0, 2)).getTotalElements())
+                    .isEqualTo(memberJpaRepository.searchByBuilder(condition).size());
+        }
+        assertThat(counter.getStatements()).filteredOn(sql -> sql.contains("from member_team ")).isNotEmpty();
+        assertThat(counter.getStatements()).filteredOn(sql -> sql.contains("from member_team ")).noneMatch(sql -> sql.contains("join"));
+        assertThat(readModel.findInconsistentMemberIds(10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("롤백된 쓰기는 읽기 모델에도 남지 않는다")
+    void rollback_test() {
+        /* when */
+        transactionTemplate.executeWithoutResult(status -> {
+            findMember("member1").setAge(99);
+            em.persist(new Member("member6", 60, findTeam("teamA")));
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        /* then */
+        assertThat(readModel.findInconsistentMemberIds(10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("bulk update 뒤에는 다시 만들 때까지 join 으로 검색한다")
+    void bulk_write_falls_back_to_join_test(StatementCounter counter) {
+        /* given */
+        final MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        memberRepository.bulkAddAge(condition, 5);
+        counter.reset();
+
+        /* when */
+        final List<MemberTeamDto> result = memberRepository.search(condition);
+
+        /* then */
+        assertThat(result).extracting("age").containsExactlyInAnyOrder(15, 25);
+        assertThat(counter.getStatements()).noneMatch(sql -> sql.contains("from member_team "));
+
+        readModel.rebuild();
+        counter.reset();
+        assertThat(memberRepository.search(condition)).extracting("age").containsExactlyInAnyOrder(15, 25);
+        assertThat(counter.getStatements()).anyMatch(sql -> sql.contains("from member_team "));
+        assertThat(readModel.findInconsistentMemberIds(10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("member_team_state 의 두 버전이 같으면 재시작해도 다시 만들지 않는다")
+    void rebuild_if_stale_skips_built_model_test(StatementCounter counter) {
+        /* given */
+        counter.reset();
+
+        /* when : 시작할 때처럼 다시 만들어야 하는지 확인한다 */
+        readModel.rebuildIfStale();
+
+        /* then */
+        assertThat(counter.getStatements()).noneMatch(sql -> sql.startsWith("delete") || sql.startsWith("insert"));
+        assertThat(readModel.findInconsistentMemberIds(10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("다른 노드의 bulk 쓰기는 DB 의 writeVersion 으로 알고 다시 만들 때까지 join 으로 검색한다")
+    void other_node_bulk_write_test(StatementCounter counter) throws Exception {
+        /* given */
+        final MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        /* when : 이 JVM 의 Hibernate 를 거치지 않고 다른 노드가 커밋한 bulk update */
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("update member set age = age + 1");
+            jdbcTemplate.update("update member_team_state set write_version = write_version + 1");
+        });
+        Thread.sleep(200);
+        counter.reset();
+        final List<MemberTeamDto> result = memberRepository.search(condition);
+
+        /* then */
+        assertThat(result).extracting("age").containsExactlyInAnyOrder(11, 21);
+        assertThat(counter.getStatements()).noneMatch(sql -> sql.contains("from member_team "));
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!readModel.isAvailable() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        counter.reset();
+        assertThat(memberRepository.search(condition)).extracting("age").containsExactlyInAnyOrder(11, 21);
+        assertThat(counter.getStatements()).anyMatch(sql -> sql.contains("from member_team "));
+        assertThat(readModel.findInconsistentMemberIds(10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("다시 만드는 중에는 커밋될 때까지 join 으로 검색한다")
+    void search_while_rebuilding_test(StatementCounter counter) throws Exception {
+        /* given : 다른 트랜잭션이 읽기 모델 행을 잡고 있어서 다시 만들기가 커밋되지 못한다 */
+        final MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        final Long member1 = findMember("member1").getId();
+        final CompletableFuture<Void> rebuild;
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("update member_team set age = age where member_id = " + member1);
+            }
+            rebuild = CompletableFuture.runAsync(readModel::rebuild);
+            Thread.sleep(200);
+            counter.reset();
+
+            /* when */
+            final List<MemberTeamDto> result = memberRepository.search(condition);
+
+            /* then */
+            assertThat(rebuild).isNotDone();
+            assertThat(readModel.isAvailable()).isFalse();
+            assertThat(result).extracting("age").containsExactlyInAnyOrder(10, 20);
+            assertThat(counter.getStatements()).noneMatch(sql -> sql.contains("from member_team "));
+            connection.rollback();
+        }
+
+        rebuild.get(5, TimeUnit.SECONDS);
+        counter.reset();
+        assertThat(readModel.isAvailable()).isTrue();
+        assertThat(memberRepository.search(condition)).extracting("age").containsExactlyInAnyOrder(10, 20);
+        assertThat(counter.getStatements()).anyMatch(sql -> sql.contains("from member_team "));
+    }
+
+    @Test
+    @DisplayName("일치 검사는 값이 다르거나 빠진 행, 회원이 없는 행을 찾는다")
+    void consistency_check_test() {
+        /* given */
+        final Long member1 = findMember("member1").getId();
+        final Long member2 = findMember("member2").getId();
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createNativeQuery("update member_team set team_name = 'teamX' where member_id = " + member1).executeUpdate();
+            em.createNativeQuery("delete from member_team where member_id = " + member2).executeUpdate();
+            em.createNativeQuery("insert into member_team (member_id, username, age) values (-1, 'ghost', 0)").executeUpdate();
+        });
+
+        /* when */
+        final List<Long> inconsistent = readModel.findInconsistentMemberIds(10);
+
+        /* then */
+        assertThat(inconsistent).containsExactly(-1L, member1, member2);
+        assertThat(readModel.findInconsistentMemberIds(2)).hasSize(2);
+    }
+
+    private static List<MemberSearchCondition> conditions() {
+        final MemberSearchCondition all = new MemberSearchCondition();
+        final MemberSearchCondition byTeam = new MemberSearchCondition();
+        byTeam.setTeamName("teamA");
+        final MemberSearchCondition byRenamedTeam = new MemberSearchCondition();
+        byRenamedTeam.setTeamName("teamC");
+        byRenamedTeam.setAgeLoe(30);
+        final MemberSearchCondition byName = new MemberSearchCondition();
+        byName.setUserName("member5");
+        final MemberSearchCondition byAge = new MemberSearchCondition();
+        byAge.setAgeGoe(11);
+        byAge.setAgeLoe(50);
+        return List.of(all, byTeam, byRenamedTeam, byName, byAge);
+    }
+
+    private Team findTeam(String name) {
+        return queryFactory.selectFrom(team).where(team.name.eq(name)).fetchOne();
+    }
+
+    private Member findMember(String username) {
+        return queryFactory.selectFrom(member).where(member.username.eq(username)).fetchOne();
+    }
+}
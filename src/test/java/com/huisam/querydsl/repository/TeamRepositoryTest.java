@@ -0,0 +1,118 @@
+package com.huisam.querydsl.repository;
+
+import com.huisam.querydsl.dto.MemberSearchCondition;
+import com.huisam.querydsl.dto.MemberTeamDto;
+import com.huisam.querydsl.entity.Member;
+import com.huisam.querydsl.entity.Team;
+import com.huisam.querydsl.repository.support.QueryCountExtension;
+import com.huisam.querydsl.repository.support.StatementCounter;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.huisam.querydsl.entity.QMember.member;
+import static com.huisam.querydsl.entity.QTeam.team;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 2차 캐시는 커밋된 데이터만 담으므로 트랜잭션 롤백 없이 확인하고 지운다
+ */
+@SpringBootTest
+@ExtendWith(QueryCountExtension.class)
+class TeamRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    TeamRepository teamRepository;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            final Team teamA = new Team("teamA");
+            em.persist(teamA);
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+        });
+    }
+
+    @AfterEach
+    void cleanUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            final JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+            queryFactory.delete(member).execute();
+            queryFactory.delete(team).execute();
+        });
+    }
+
+    @Test
+    @DisplayName("팀 이름 조회 쿼리 캐시 테스트")
+    void find_by_name_query_cache_test(StatementCounter counter) {
+        /* given */
+        teamRepository.findByName("teamA");
+        counter.reset();
+
+        /* when */
+        final List<Team> teams = teamRepository.findByName("teamA");
+
+        /* then */
+        assertThat(teams).extracting("name").containsExactly("teamA");
+        assertThat(counter.getTotal()).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("member.getTeam() 2차 캐시 테스트")
+    void member_team_second_level_cache_test(StatementCounter counter) {
+        /* given */
+        transactionTemplate.executeWithoutResult(status -> memberRepository.findAll().forEach(m -> m.getTeam().getName()));
+        counter.reset();
+
+        /* when */
+        final List<String> teamNames = transactionTemplate.execute(status -> {
+            final List<String> names = new ArrayList<>();
+            memberRepository.findAll().forEach(m -> names.add(m.getTeam().getName()));
+            return names;
+        });
+
+        /* then : member 조회 한번뿐, team 은 캐시에서 읽는다 */
+        assertThat(teamNames).containsExactly("teamA", "teamA");
+        assertThat(counter.getTotal()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("없는 팀 이름 검색 테스트")
+    void search_unknown_team_test(StatementCounter counter) {
+        /* given */
+        final MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+        memberRepository.searchPageSimple(condition, PageRequest.of(0, 10));
+        counter.reset();
+
+        /* when */
+        final Page<MemberTeamDto> result = memberRepository.searchPageSimple(condition, PageRequest.of(0, 10));
+
+        /* then : 팀을 따로 확인하지 않고 team 을 inner join 한 검색 한번이 빈 결과를 돌려준다, 첫 페이지가 비었으므로 count 도 없다 */
+        assertThat(result.getContent()).isEmpty();
+        assertThat(result.getTotalElements()).isEqualTo(0);
+        assertThat(counter.getTotal()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,239 @@
+package com.huisam.querydsl.repository;
+
+import com.huisam.querydsl.dto.MemberBulkRow;
+import com.huisam.querydsl.dto.MemberSearchCondition;
+import com.huisam.querydsl.dto.TeamStatsDto;
+import com.huisam.querydsl.entity.Member;
+import com.huisam.querydsl.entity.Team;
+import com.huisam.querydsl.repository.support.QueryCountExtension;
+import com.huisam.querydsl.repository.support.StatementCounter;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.huisam.querydsl.entity.QMember.member;
+import static com.huisam.querydsl.entity.QTeam.team;
+import static com.huisam.querydsl.entity.QTeamStats.teamStats;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 요약 테이블은 커밋할 때 고쳐지므로 트랜잭션 롤백 없이 확인하고 지운다
+ * 매번 회원 테이블을 group by 한 결과와 비교한다
+ */
+@SpringBootTest
+@ExtendWith(QueryCountExtension.class)
+class TeamStatsRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    TeamStatsRepository teamStatsRepository;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberBulkRepository memberBulkRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    JPAQueryFactory queryFactory;
+
+    @BeforeEach
+    void setUp() {
+        queryFactory = new JPAQueryFactory(em);
+        teamStatsRepository.rebuild();
+        transactionTemplate.executeWithoutResult(status -> {
+            final Team teamA = new Team("teamA");
+            final Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamB));
+            em.persist(new Member("member4", 40, teamB));
+        });
+    }
+
+    @AfterEach
+    void cleanUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            queryFactory.delete(member).execute();
+            queryFactory.delete(team).execute();
+            queryFactory.delete(teamStats).execute();
+        });
+    }
+
+    @Test
+    @DisplayName("회원 insert, update, delete, 팀 변경이 커밋될 때 요약 테이블에 반영된다")
+    void incremental_update_test() {
+        /* given & when & then */
+        assertThat(statsOf(teamStatsRepository.findAll())).containsExactly(
+                "teamA 2 30 15.0 10 20", "teamB 2 70 35.0 30 40");
+        assertThat(statsOf(teamStatsRepository.findAll())).isEqualTo(groupByMembers());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            final Team teamC = new Team("teamC");
+            em.persist(teamC);
+            em.persist(new Member("member5", 5, teamC));
+            em.persist(new Member("member6", 50, findTeam("teamA")));
+        });
+        assertThat(statsOf(teamStatsRepository.findAll())).isEqualTo(groupByMembers());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // 최솟값, 최댓값인 회원이 빠지면 남은 회원으로 다시 구해야 한다
+            findMember("member1").changeTeam(findTeam("teamB"));
+            em.remove(findMember("member4"));
+            findMember("member3").setAge(33);
+        });
+        assertThat(statsOf(teamStatsRepository.findAll())).isEqualTo(groupByMembers());
+
+        transactionTemplate.executeWithoutResult(status -> em.remove(findMember("member5")));
+        final List<String> stats = statsOf(teamStatsRepository.findAll());
+        assertThat(stats).isEqualTo(groupByMembers());
+        assertThat(stats).containsExactly("teamA 2 70 35.0 20 50", "teamB 2 43 21.5 10 33");
+    }
+
+    @Test
+    @DisplayName("롤백된 변경은 반영하지 않고, 통계 조회는 요약 테이블을 한번 읽고 비어 있어도 최신이면 다시 만들지 않는다")
+    void rollback_and_single_statement_test(StatementCounter counter) {
+        /* given */
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new Member("member5", 100, findTeam("teamA")));
+            em.flush();
+            status.setRollbackOnly();
+        });
+        teamStatsRepository.findAll();
+        counter.reset();
+
+        /* when */
+        final List<TeamStatsDto> stats = teamStatsRepository.findAll();
+
+        /* then */
+        assertThat(counter.getTotal()).isEqualTo(1);
+        assertThat(statsOf(stats)).isEqualTo(groupByMembers());
+
+        /* when : 회원이 모두 빠져 요약 테이블이 비어도 상태 행만 더 읽는다 */
+        transactionTemplate.executeWithoutResult(status ->
+                queryFactory.selectFrom(member).fetch().forEach(em::remove));
+        counter.reset();
+        final List<TeamStatsDto> empty = teamStatsRepository.findAll();
+
+        /* then */
+        assertThat(empty).isEmpty();
+        assertThat(counter.getTotal()).isEqualTo(2);
+        assertThat(counter.getStatements()).noneMatch(sql -> sql.contains("for update") || sql.startsWith("delete"));
+    }
+
+    @Test
+    @DisplayName("bulk update 나 StatelessSession insert 뒤에는 다음 조회 때 요약 테이블을 다시 만든다")
+    void bulk_write_rebuild_test() {
+        /* given */
+        final MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        teamStatsRepository.findAll();
+
+        /* when */
+        memberRepository.bulkAddAge(condition, 5);
+        final List<String> afterUpdate = statsOf(teamStatsRepository.findAll());
+        memberBulkRepository.insertMembersStateless(List.of(
+                new MemberBulkRow("member5", 1, findTeamId("teamB")),
+                new MemberBulkRow("member6", 99, findTeamId("teamB"))).iterator());
+        final List<String> afterInsert = statsOf(teamStatsRepository.findAll());
+
+        /* then */
+        assertThat(afterUpdate).containsExactly("teamA 2 40 20.0 15 25", "teamB 2 70 35.0 30 40");
+        assertThat(afterInsert).containsExactly("teamA 2 40 20.0 15 25", "teamB 4 170 42.5 1 99");
+        assertThat(afterInsert).isEqualTo(groupByMembers());
+    }
+
+    @Test
+    @DisplayName("다른 노드의 bulk 쓰기도 DB 의 writeVersion 으로 알고 다시 만든다")
+    void other_node_bulk_write_test() {
+        /* given */
+        teamStatsRepository.findAll();
+
+        /* when : 이 JVM 의 Hibernate 를 거치지 않고 다른 노드가 커밋한 bulk update */
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("update member set age = age + 1");
+            jdbcTemplate.update("update team_stats_state set write_version = write_version + 1");
+        });
+        final List<String> stats = statsOf(teamStatsRepository.findAll());
+
+        /* then */
+        assertThat(stats).containsExactly("teamA 2 32 16.0 11 21", "teamB 2 72 36.0 31 41");
+        assertThat(stats).isEqualTo(groupByMembers());
+    }
+
+    @Test
+    @DisplayName("bulk 쓰기가 롤백되면 다시 만들 필요가 없다")
+    void bulk_write_rollback_test(StatementCounter counter) {
+        /* given */
+        final MemberSearchCondition condition = new MemberSearchCondition();
+        teamStatsRepository.findAll();
+
+        /* when */
+        transactionTemplate.executeWithoutResult(status -> {
+            memberRepository.bulkAddAge(condition, 5);
+            status.setRollbackOnly();
+        });
+        counter.reset();
+        final List<String> stats = statsOf(teamStatsRepository.findAll());
+
+        /* then */
+        assertThat(counter.getTotal()).isEqualTo(1);
+        assertThat(stats).isEqualTo(groupByMembers());
+    }
+
+    private List<String> groupByMembers() {
+        final List<Tuple> tuples = queryFactory
+                .select(team.name, member.count(), member.age.sum(), member.age.avg(), member.age.min(), member.age.max())
+                .from(member)
+                .join(member.team, team)
+                .groupBy(team.name)
+                .orderBy(team.name.asc())
+                .fetch();
+        return tuples.stream()
+                .map(tuple -> String.join(" ", tuple.get(team.name), String.valueOf(tuple.get(member.count())),
+                        String.valueOf(tuple.get(member.age.sum())), String.valueOf(tuple.get(member.age.avg())),
+                        String.valueOf(tuple.get(member.age.min())), String.valueOf(tuple.get(member.age.max()))))
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> statsOf(List<TeamStatsDto> stats) {
+        return stats.stream()
+                .map(row -> String.join(" ", row.getTeamName(), String.valueOf(row.getMemberCount()),
+                        String.valueOf(row.getAgeSum()), String.valueOf(row.getAgeAvg()),
+                        String.valueOf(row.getAgeMin()), String.valueOf(row.getAgeMax())))
+                .collect(Collectors.toList());
+    }
+
+    private Team findTeam(String name) {
+        return queryFactory.selectFrom(team).where(team.name.eq(name)).fetchOne();
+    }
+
+    private Long findTeamId(String name) {
+        return queryFactory.select(team.id).from(team).where(team.name.eq(name)).fetchOne();
+    }
+
+    private Member findMember(String username) {
+        return queryFactory.selectFrom(member).where(member.username.eq(username)).fetchOne();
+    }
+}
@@ -0,0 +1,57 @@
+package com.huisam.querydsl.repository.support;
+
+import com.huisam.querydsl.config.RepositorySupportConfig;
+import org.hibernate.Version;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Hibernate 버전을 올리면 이 테스트가 먼저 깨진다, {@link HibernateSqlTranslator} 가 쓰는 내부 API 를 확인하고 지원 버전을 고친다
+ */
+@DataJpaTest
+@Import(RepositorySupportConfig.class)
+class HibernateSqlTranslatorTest {
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Test
+    @DisplayName("지금 쓰는 Hibernate 버전은 지원 버전이다")
+    void supported_version_test() {
+        assertThat(Version.getVersionString()).startsWith(HibernateSqlTranslator.SUPPORTED_VERSION);
+    }
+
+    @Test
+    @DisplayName("JPQL 을 페이징까지 붙인 SQL 로 번역한다")
+    void translate_test() {
+        /* given */
+        final HibernateSqlTranslator translator = new HibernateSqlTranslator(sessionFactory());
+
+        /* when */
+        final String sql = translator.translate("select m.username from Member m where m.age >= ?1", 10L, 5L).getSql();
+
+        /* then */
+        assertThat(sql).containsIgnoringCase("from member").containsIgnoringCase("age>=?").containsIgnoringCase("limit");
+    }
+
+    @Test
+    @DisplayName("검증하지 않은 Hibernate 버전이면 만들 때 실패한다")
+    void unsupported_version_test() {
+        assertThatThrownBy(() -> new HibernateSqlTranslator(sessionFactory(), "6.0.0.Final"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("6.0.0.Final");
+    }
+
+    private SessionFactoryImplementor sessionFactory() {
+        return entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    }
+}
@@ -0,0 +1,135 @@
+package com.huisam.querydsl.repository.support;
+
+import com.huisam.querydsl.controller.SearchGuardExceptionHandler;
+import com.huisam.querydsl.dto.MemberSearchCondition;
+import com.huisam.querydsl.entity.Member;
+import com.huisam.querydsl.entity.Team;
+import com.huisam.querydsl.repository.MemberJpaRepository;
+import com.huisam.querydsl.repository.MemberRepository;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.QueryTimeoutException;
+import java.time.Duration;
+
+import static com.huisam.querydsl.entity.QMember.member;
+import static com.huisam.querydsl.entity.QTeam.team;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@SpringBootTest(properties = {
+        "member.search.guard.max-page-size=10",
+        "member.search.guard.max-rows=3",
+        "member.search.guard.query-timeout=1s",
+        "member.search.cache.maximum-size=0",
+        "member.search.count.cache-maximum-size=0"
+})
+class MemberQueryGuardTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MemberQueryGuard guard;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            final Team teamA = new Team("teamA");
+            final Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamB));
+            em.persist(new Member("member4", 40, teamB));
+        });
+    }
+
+    @AfterEach
+    void cleanUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            final JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+            queryFactory.delete(member).execute();
+            queryFactory.delete(team).execute();
+        });
+    }
+
+    @Test
+    @DisplayName("최대 페이지 크기를 넘는 페이지 요청은 실행하지 않고 거절한다")
+    void max_page_size_test() {
+        /* given */
+        final MemberSearchCondition condition = new MemberSearchCondition();
+
+        /* when & then */
+        assertThat(memberRepository.searchPageSimple(condition, PageRequest.of(0, 10)).getTotalElements()).isEqualTo(4);
+        assertThatThrownBy(() -> memberRepository.searchPageSimple(condition, PageRequest.of(0, 11)))
+                .isInstanceOf(SearchLimitExceededException.class)
+                .hasMessageContaining("11 > 10");
+        assertThatThrownBy(() -> memberRepository.searchPageComplex(condition, PageRequest.of(0, 100000)))
+                .isInstanceOf(SearchLimitExceededException.class);
+        assertThatThrownBy(() -> memberRepository.searchByCursor(condition, null, PageRequest.of(0, 11)))
+                .isInstanceOf(SearchLimitExceededException.class);
+    }
+
+    @Test
+    @DisplayName("페이징 없는 검색은 최대 행 수를 넘으면 거절하고, 그 안이면 그대로 돌려준다")
+    void max_rows_test() {
+        /* given */
+        final MemberSearchCondition all = new MemberSearchCondition();
+        final MemberSearchCondition teamA = new MemberSearchCondition();
+        teamA.setTeamName("teamA");
+
+        /* when & then */
+        assertThat(memberJpaRepository.search(teamA)).hasSize(2);
+        assertThatThrownBy(() -> memberJpaRepository.search(all))
+                .isInstanceOf(SearchLimitExceededException.class)
+                .hasMessageContaining("3 건");
+        assertThatThrownBy(() -> memberRepository.search(all)).isInstanceOf(SearchLimitExceededException.class);
+        assertThatThrownBy(() -> memberJpaRepository.searchJdbc(all)).isInstanceOf(SearchLimitExceededException.class);
+    }
+
+    @Test
+    @DisplayName("query timeout 을 넘긴 쿼리는 DB 에서 취소되고 503 으로 응답한다")
+    void query_timeout_test() {
+        /* given */
+        final long start = System.nanoTime();
+
+        /* when */
+        final Throwable thrown = catchThrowable(() -> transactionTemplate.execute(status -> guard
+                .withTimeout(em.createNativeQuery("select sum(x) from system_range(1, 10000000000)"))
+                .getSingleResult()));
+
+        /* then : HikariCP 가 커넥션을 버려서 롤백이 실패하면 timeout 은 TransactionSystemException 안에 있다 */
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(10));
+        final Throwable timeout = thrown instanceof TransactionSystemException
+                ? ((TransactionSystemException) thrown).getApplicationException()
+                : thrown;
+        assertThat(timeout).isInstanceOf(QueryTimeoutException.class);
+        final ResponseEntity<?> response = thrown instanceof TransactionSystemException
+                ? new SearchGuardExceptionHandler().rollbackFailed((TransactionSystemException) thrown)
+                : new SearchGuardExceptionHandler().queryTimeout((RuntimeException) thrown);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+}
@@ -0,0 +1,143 @@
+package com.huisam.querydsl.repository.support;
+
+import com.huisam.querydsl.dto.MemberSearchCondition;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class MemberSearchCoalescerTest {
+
+    private static final int CALLERS = 8;
+
+    @Autowired
+    MemberSearchCoalescer coalescer;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("같은 조건의 동시 검색은 한번만 실행하고 결과를 나눠 받는다")
+    void coalesce_test() throws Exception {
+        /* given : 공백 userName 은 조건이 없는 것과 같은 키가 된다 */
+        final String kind = "coalesce_test";
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger executions = new AtomicInteger();
+        final AtomicBoolean readOnly = new AtomicBoolean();
+        final List<Future<List<String>>> results = new ArrayList<>();
+
+        /* when */
+        for (int i = 0; i < CALLERS; i++) {
+            final MemberSearchCondition condition = condition(i % 2 == 0 ? " " : null);
+            results.add(executor.submit(() -> coalescer.execute(kind, condition, PageRequest.of(0, 10), () -> {
+                executions.incrementAndGet();
+                readOnly.set(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+                await(release);
+                return List.of("member1");
+            })));
+        }
+        awaitCount(kind, "coalesced", CALLERS - 1);
+        release.countDown();
+
+        /* then */
+        final List<String> first = results.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<List<String>> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(first);
+        }
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(readOnly.get()).isTrue();
+        assertThat(count(kind, "executed")).isEqualTo(1);
+        assertThat(count(kind, "coalesced")).isEqualTo(CALLERS - 1);
+    }
+
+    @Test
+    @DisplayName("실행이 끝난 뒤의 호출이나 다른 페이지는 따로 실행하고, 실행한 호출의 예외는 기다린 호출도 받는다")
+    void separate_keys_and_failure_test() throws Exception {
+        /* given */
+        final String kind = "separate_keys_and_failure_test";
+        final AtomicInteger executions = new AtomicInteger();
+        final Supplier<String> loader = () -> "page" + executions.incrementAndGet();
+
+        /* when */
+        final String page0 = coalescer.execute(kind, condition(null), PageRequest.of(0, 10), loader);
+        final String page0Again = coalescer.execute(kind, condition(null), PageRequest.of(0, 10), loader);
+        final String page1 = coalescer.execute(kind, condition(null), PageRequest.of(1, 10), loader);
+
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Future<Object>> failures = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            failures.add(executor.submit(() -> coalescer.execute(kind, condition("fail"), PageRequest.of(0, 10), () -> {
+                await(release);
+                throw new IllegalStateException("search failed");
+            })));
+        }
+        awaitCount(kind, "coalesced", 1);
+        release.countDown();
+
+        /* then */
+        assertThat(List.of(page0, page0Again, page1)).containsExactly("page1", "page2", "page3");
+        for (Future<Object> failure : failures) {
+            assertThatThrownBy(() -> failure.get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(IllegalStateException.class)
+                    .hasRootCauseMessage("search failed");
+        }
+    }
+
+    private static MemberSearchCondition condition(String userName) {
+        final MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUserName(userName);
+        condition.setTeamName("teamA");
+        return condition;
+    }
+
+    private double count(String kind, String result) {
+        return meterRegistry.counter("member.search.coalesce", "kind", kind, "result", result).count();
+    }
+
+    private void awaitCount(String kind, String result, int expected) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count(kind, result) < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
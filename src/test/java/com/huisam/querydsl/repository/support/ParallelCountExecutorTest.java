@@ -0,0 +1,227 @@
+package com.huisam.querydsl.repository.support;
+
+import com.huisam.querydsl.dto.UnknownTotalPage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ParallelCountExecutorTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    ParallelCountExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        executor.destroy();
+    }
+
+    @Test
+    @DisplayName("count 는 다른 스레드의 읽기 전용 트랜잭션에서 실행된다")
+    void parallel_count_test() {
+        /* given */
+        executor = new ParallelCountExecutor(em, transactionManager, 2, 10, Duration.ofSeconds(2));
+        final AtomicReference<String> countThread = new AtomicReference<>();
+        final AtomicBoolean readOnly = new AtomicBoolean();
+
+        /* when */
+        final Page<String> page = executor.getPage(() -> List.of("a", "b"), PageRequest.of(0, 2), () -> {
+            countThread.set(Thread.currentThread().getName());
+            readOnly.set(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+            return 10;
+        });
+
+        /* then */
+        assertThat(page.getTotalElements()).isEqualTo(10);
+        assertThat(page.getContent()).containsExactly("a", "b");
+        assertThat(countThread.get()).startsWith("member-count-");
+        assertThat(readOnly.get()).isTrue();
+    }
+
+    @Test
+    @DisplayName("count 가 timeout 안에 끝나지 않으면 전체 건수를 모르는 페이지가 된다")
+    void count_timeout_test() {
+        /* given */
+        executor = new ParallelCountExecutor(em, transactionManager, 2, 10, Duration.ofMillis(100));
+
+        /* when */
+        final Page<String> page = executor.getPage(() -> List.of("a", "b"), PageRequest.of(1, 2), () -> {
+            sleep(1000);
+            return 10;
+        });
+
+        /* then */
+        assertThat(page).isInstanceOf(UnknownTotalPage.class);
+        assertThat(((UnknownTotalPage<String>) page).isTotalKnown()).isFalse();
+        assertThat(page.getTotalElements()).isEqualTo(4);
+        assertThat(page.hasNext()).isTrue();
+    }
+
+    @Test
+    @DisplayName("count 는 content 를 읽는 동안 같이 실행된다")
+    void overlap_test() {
+        /* given */
+        executor = new ParallelCountExecutor(em, transactionManager, 2, 10, Duration.ofSeconds(5));
+        final long start = System.nanoTime();
+
+        /* when */
+        final Page<String> page = executor.getPage(() -> {
+            sleep(500);
+            return List.of("a", "b");
+        }, PageRequest.of(1, 2), () -> {
+            sleep(500);
+            return 10;
+        });
+
+        /* then : 차례로 실행하면 1 초가 걸린다 */
+        assertThat(page.getTotalElements()).isEqualTo(10);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(900));
+    }
+
+    @Test
+    @DisplayName("content 만으로 전체 건수를 알 수 있으면 먼저 시작한 count 를 취소한다")
+    void skip_count_test() {
+        /* given */
+        executor = new ParallelCountExecutor(em, transactionManager, 2, 10, Duration.ofSeconds(5));
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(1);
+        final long start = System.nanoTime();
+
+        /* when */
+        final Page<String> page = executor.getPage(() -> {
+            // count 쿼리가 DB 에서 돌기 시작할 때까지 기다린다
+            await(started);
+            sleep(200);
+            return List.of("a");
+        }, PageRequest.of(0, 2), () -> {
+            started.countDown();
+            try {
+                return ((Number) em.createNativeQuery("select sum(x) from system_range(1, 10000000000)").getSingleResult()).longValue();
+            } catch (RuntimeException e) {
+                failure.set(e);
+                throw e;
+            } finally {
+                finished.countDown();
+            }
+        });
+
+        /* then : count timeout(5초)을 기다리지 않는다 */
+        assertThat(page).isNotInstanceOf(UnknownTotalPage.class);
+        assertThat(page.getTotalElements()).isEqualTo(1);
+        assertThat(await(finished)).isTrue();
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(1500));
+        assertThat(failure.get()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("풀이 밀려 있으면 호출한 스레드에서 세지 않고 전체 건수를 모르는 페이지가 된다")
+    void saturated_pool_test() {
+        /* given : 스레드 하나는 count 중이고 큐도 차 있다 */
+        executor = new ParallelCountExecutor(em, transactionManager, 1, 1, Duration.ofSeconds(5));
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch running = new CountDownLatch(1);
+        final List<CompletableFuture<Page<String>>> busy = List.of(
+                CompletableFuture.supplyAsync(() -> executor.getPage(() -> {
+                    await(release);
+                    return List.of("a", "b");
+                }, PageRequest.of(1, 2), () -> {
+                    running.countDown();
+                    await(release);
+                    return 10;
+                })),
+                CompletableFuture.supplyAsync(() -> {
+                    await(running);
+                    return executor.getPage(() -> {
+                        await(release);
+                        return List.of("a", "b");
+                    }, PageRequest.of(1, 2), () -> 10);
+                }));
+        assertThat(await(running)).isTrue();
+        sleep(200);
+        final AtomicBoolean counted = new AtomicBoolean();
+
+        /* when */
+        final Page<String> page;
+        try {
+            page = executor.getPage(() -> List.of("a", "b"), PageRequest.of(1, 2), () -> {
+                counted.set(true);
+                return 10;
+            });
+        } finally {
+            release.countDown();
+        }
+
+        /* then */
+        assertThat(page).isInstanceOf(UnknownTotalPage.class);
+        assertThat(counted.get()).isFalse();
+        busy.forEach(CompletableFuture::join);
+    }
+
+    @Test
+    @DisplayName("timeout 이 나면 실행 중인 count 쿼리를 취소한다")
+    void cancel_count_test() {
+        /* given */
+        executor = new ParallelCountExecutor(em, transactionManager, 2, 10, Duration.ofMillis(200));
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        final CountDownLatch finished = new CountDownLatch(1);
+        final long start = System.nanoTime();
+
+        /* when */
+        final Page<String> page = executor.getPage(() -> List.of("a", "b"), PageRequest.of(0, 2), () -> {
+            try {
+                return ((Number) em.createNativeQuery("select sum(x) from system_range(1, 10000000000)").getSingleResult()).longValue();
+            } catch (RuntimeException e) {
+                failure.set(e);
+                throw e;
+            } finally {
+                finished.countDown();
+            }
+        });
+
+        /* then : 트랜잭션 timeout(2초)보다 먼저 취소된다 */
+        assertThat(page).isInstanceOf(UnknownTotalPage.class);
+        assertThat(await(finished)).isTrue();
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(1500));
+        assertThat(failure.get()).isNotNull();
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
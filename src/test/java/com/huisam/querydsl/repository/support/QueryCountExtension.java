@@ -0,0 +1,36 @@
+package com.huisam.querydsl.repository.support;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolver;
+
+/**
+ * 테스트마다 실행된 SQL 을 센다
+ * 테스트 메서드에 {@link StatementCounter} 파라미터를 두면 주입되고, given 을 만든 뒤 reset() 해서 when 의 SQL 만 셀 수 있다
+ */
+public class QueryCountExtension implements BeforeEachCallback, AfterEachCallback, ParameterResolver {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(QueryCountExtension.class);
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        context.getStore(NAMESPACE).put(StatementCounter.class, StatementCounter.start());
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        context.getStore(NAMESPACE).remove(StatementCounter.class, StatementCounter.class).close();
+    }
+
+    @Override
+    public boolean supportsParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        return parameterContext.getParameter().getType() == StatementCounter.class;
+    }
+
+    @Override
+    public Object resolveParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+        return extensionContext.getStore(NAMESPACE).get(StatementCounter.class, StatementCounter.class);
+    }
+}
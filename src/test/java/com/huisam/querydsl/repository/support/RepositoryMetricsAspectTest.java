@@ -0,0 +1,75 @@
+package com.huisam.querydsl.repository.support;
+
+import com.huisam.querydsl.dto.MemberSearchCondition;
+import com.huisam.querydsl.entity.Member;
+import com.huisam.querydsl.entity.Team;
+import com.huisam.querydsl.repository.MemberJpaRepository;
+import com.huisam.querydsl.repository.MemberRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+
+import static com.huisam.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class RepositoryMetricsAspectTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+
+    @Test
+    @DisplayName("repository 메서드별, 검색 조건별 메트릭 테스트")
+    void repository_metrics_test() {
+        /* given */
+        final Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.flush();
+
+        final MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(15);
+
+        /* when */
+        memberRepository.search(condition);
+        memberJpaRepository.searchByBuilder(condition);
+        memberRepository.findAll(member.age.goe(10));
+
+        /* then */
+        final Timer search = registry.find("member.repository.query")
+                .tags("repository", "MemberRepository", "method", "search(MemberSearchCondition)",
+                        "filters", "teamName,ageGoe", "outcome", "success")
+                .timer();
+        assertThat(search).isNotNull();
+        assertThat(search.count()).isEqualTo(1);
+
+        final DistributionSummary rows = registry.find("member.repository.rows")
+                .tags("repository", "MemberJpaRepository", "method", "searchByBuilder(MemberSearchCondition)")
+                .summary();
+        assertThat(rows.totalAmount()).isEqualTo(1);
+
+        final DistributionSummary statements = registry.find("member.repository.statements")
+                .tags("repository", "MemberRepository", "method", "findAll(Predicate)", "filters", "predicate")
+                .summary();
+        assertThat(statements.totalAmount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,132 @@
+package com.huisam.querydsl.repository.support;
+
+import com.huisam.querydsl.dto.MemberSearchCondition;
+import com.huisam.querydsl.entity.Member;
+import com.huisam.querydsl.entity.Team;
+import com.huisam.querydsl.repository.MemberRepository;
+import com.p6spy.engine.common.ConnectionInformation;
+import com.p6spy.engine.common.PreparedStatementInformation;
+import com.p6spy.engine.common.StatementInformation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.List;
+
+import static com.huisam.querydsl.entity.QMember.member;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * threshold 를 0 으로 두고 모든 SQL 을 느린 SQL 로 기록해서 확인한다, 바인드 값과 인자를 보려고 show-values 를 켠다
+ */
+@SpringBootTest(properties = {
+        "member.slow-query.threshold=0ms",
+        "member.slow-query.capacity=3",
+        "member.slow-query.show-values=true"
+})
+@Transactional
+class SlowQueryRecorderTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    SlowQueryEndpoint endpoint;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @BeforeEach
+    void setUp() {
+        final Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.flush();
+        em.clear();
+        endpoint.clear();
+    }
+
+    @Test
+    @DisplayName("느린 SQL 을 repository 메서드, 검색 조건, 바인드 값, EXPLAIN 결과와 함께 기록한다")
+    void record_slow_query_test() {
+        /* given */
+        final MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(15);
+
+        /* when */
+        memberRepository.search(condition);
+
+        /* then */
+        final List<SlowQuery> slowQueries = endpoint.slowQueries();
+        assertThat(slowQueries).isNotEmpty().allSatisfy(slowQuery -> {
+            assertThat(slowQuery.getRepositoryMethod()).isEqualTo("MemberRepository.search(MemberSearchCondition)");
+            assertThat(slowQuery.getArguments()).containsExactly(condition.toString());
+        });
+        final SlowQuery slowQuery = slowQueries.stream()
+                .filter(query -> query.getBinds().contains("teamA"))
+                .findFirst()
+                .orElseThrow();
+        assertThat(slowQuery.getSql()).contains("?");
+        assertThat(slowQuery.getBinds()).contains("teamA", "15");
+        assertThat(slowQuery.getPlan()).containsIgnoringCase("select").doesNotStartWith("EXPLAIN failed");
+        assertThat(slowQuery.getError()).isNull();
+    }
+
+    @Test
+    @DisplayName("Querydsl Predicate 를 인자로 남기고, 최근 capacity 건만 최근 것부터 돌려준다")
+    void ring_buffer_test() {
+        /* when */
+        memberRepository.findAll(member.age.goe(10));
+        em.createQuery("select count(m) from Member m").getSingleResult();
+        memberRepository.count(member.username.eq("member1"));
+        memberRepository.findAll(member.age.goe(20));
+
+        /* then */
+        final List<SlowQuery> slowQueries = endpoint.slowQueries();
+        assertThat(slowQueries).hasSize(3);
+        assertThat(slowQueries.get(0).getArguments()).containsExactly(member.age.goe(20).toString());
+        assertThat(slowQueries.get(1).getArguments()).containsExactly(member.username.eq("member1").toString());
+        assertThat(slowQueries.get(2).getRepositoryMethod()).isNull();
+        assertThat(slowQueries).noneMatch(slowQuery -> slowQuery.getSql().startsWith("EXPLAIN"));
+    }
+
+    @Test
+    @DisplayName("threshold 보다 빠른 SQL 은 기록하지 않는다")
+    void threshold_test() {
+        /* given */
+        final SlowQueryRecorder recorder = new SlowQueryRecorder(Duration.ofMillis(500), 3, true, false);
+
+        /* when */
+        recorder.onAfterAnyExecute(new StatementInformation(null), Duration.ofMillis(499).toNanos(), null);
+
+        /* then */
+        assertThat(recorder.getSlowQueries()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("show-values 를 켜지 않으면 바인드 값을 가린다")
+    void mask_values_test() {
+        /* given */
+        final SlowQueryRecorder recorder = new SlowQueryRecorder(Duration.ZERO, 3, false, false);
+        final PreparedStatementInformation statementInformation = new PreparedStatementInformation(
+                ConnectionInformation.fromTestConnection(null), "select * from member where username = ? and age = ?");
+        statementInformation.setParameterValue(0, "member1");
+        statementInformation.setParameterValue(1, 10);
+
+        /* when */
+        recorder.onAfterAnyExecute(statementInformation, 1, null);
+
+        /* then */
+        final List<SlowQuery> slowQueries = recorder.getSlowQueries();
+        assertThat(slowQueries).hasSize(1);
+        assertThat(slowQueries.get(0).getSql()).isEqualTo("select * from member where username = ? and age = ?");
+        assertThat(slowQueries.get(0).getBinds()).containsExactly("***", "***");
+    }
+}